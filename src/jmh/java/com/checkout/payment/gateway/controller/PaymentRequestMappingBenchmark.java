@@ -0,0 +1,27 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequest;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// PaymentRequest to PaymentRequestDTO mapping done by PaymentGatewayController.processPayment
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentRequestMappingBenchmark {
+
+  private final PaymentRequest request = new PaymentRequest("2222405343248877", 4, 2035,
+      CurrencyRegistry.byCode("GBP"), 100L, "123");
+
+  @Benchmark
+  public PaymentRequestDTO toPaymentRequestDTO() {
+    return PaymentGatewayController.toPaymentRequestDTO(request);
+  }
+}
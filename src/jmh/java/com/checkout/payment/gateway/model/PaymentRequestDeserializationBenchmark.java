@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.codec.PaymentJsonCodec;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// POST /payment body to PaymentRequest, through its @JsonCreator with the same ObjectMapper
+// configuration Spring MVC uses and through the streaming PaymentJsonCodec
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentRequestDeserializationBenchmark {
+
+  private static final byte[] BODY = """
+      {
+        "card_number": "2222405343248877",
+        "expiry_month": 4,
+        "expiry_year": 2035,
+        "currency": "GBP",
+        "amount": 100,
+        "cvv": "123"
+      }
+      """.getBytes(StandardCharsets.UTF_8);
+
+  private ObjectReader reader;
+  private JsonFactory jsonFactory;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    reader = objectMapper.readerFor(PaymentRequest.class);
+    jsonFactory = objectMapper.getFactory();
+  }
+
+  @Benchmark
+  public PaymentRequest deserialize() throws IOException {
+    return reader.readValue(BODY);
+  }
+
+  // The path PaymentJsonHttpMessageConverter takes for a well-formed body
+  @Benchmark
+  public PaymentRequest streamingCodec() throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(BODY)) {
+      return PaymentJsonCodec.readPaymentRequest(parser);
+    }
+  }
+}
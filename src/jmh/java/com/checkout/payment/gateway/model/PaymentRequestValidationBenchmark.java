@@ -0,0 +1,65 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.configuration.ExpiryDateValidator;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Bean Validation of a PaymentRequest, including the cascaded CardExpirationDate and its
+// ExpiryDateValidator, for a valid request and for one failing several constraints
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentRequestValidationBenchmark {
+
+  private ValidatorFactory validatorFactory;
+  private Validator validator;
+  private final ExpiryDateValidator expiryDateValidator = new ExpiryDateValidator();
+
+  private PaymentRequest valid;
+  private PaymentRequest invalid;
+  private CardExpirationDate expiryDate;
+
+  @Setup
+  public void setUp() {
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    validator = validatorFactory.getValidator();
+    valid = new PaymentRequest("2222405343248877", 4, 2035, CurrencyRegistry.byCode("GBP"),
+        100L, "123");
+    invalid = new PaymentRequest("2222-4053", 13, 2000, CurrencyRegistry.byCode("GBP"),
+        100L, "12a");
+    expiryDate = new CardExpirationDate(4, 2035);
+  }
+
+  @TearDown
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<PaymentRequest>> validRequest() {
+    return validator.validate(valid);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<PaymentRequest>> invalidRequest() {
+    return validator.validate(invalid);
+  }
+
+  @Benchmark
+  public boolean expiryDateValidator() {
+    return expiryDateValidator.isValid(expiryDate, null);
+  }
+}
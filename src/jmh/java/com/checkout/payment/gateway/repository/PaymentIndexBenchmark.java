@@ -0,0 +1,119 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// GET /payments queries against a pre-filled repository: the first page of each kind of filter,
+// a page deep inside the time index reached through a cursor, and a filter the chosen index
+// cannot answer alone, so candidates are read and discarded. Heap per indexed payment is
+// reported by PaymentIndexTest.footprint_ofTheIndexes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentIndexBenchmark {
+
+  private static final int PAYMENTS = 1 << 20;
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+  private static final String[] CURRENCIES = {"USD", "GBP", "EUR"};
+
+  @Param({"in-memory", "off-heap"})
+  public String store;
+
+  @Param({"50"})
+  public int limit;
+
+  private PaymentsRepository repository;
+  private String[] cursors;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    repository = new PaymentsRepository(switch (store) {
+      case "off-heap" -> new OffHeapPaymentStore(PAYMENTS * 2);
+      default -> new InMemoryPaymentStore();
+    }, Optional.empty(), Optional.of(new PaymentIndex(10_000)), Optional.empty());
+
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < PAYMENTS; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(new UUID(random.nextLong(), random.nextLong()));
+      payment.setStatus(PaymentStatus.values()[random.nextInt(3)]);
+      payment.setCardNumberLastFour(random.nextInt(10_000));
+      payment.setExpiryMonth(4);
+      payment.setExpiryYear(2035);
+      payment.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+      payment.setAmount(100);
+      payment.setCreatedAt(START.plusMillis(i * 10L));
+      repository.add(payment);
+    }
+
+    cursors = new String[64];
+    for (int i = 0; i < cursors.length; i++) {
+      PaymentQuery query = new PaymentQuery(null, null, null, null,
+          START.plusMillis(random.nextInt(PAYMENTS) * 10L), null, 1);
+      cursors[i] = repository.query(query).nextCursor();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    int next(int bound) {
+      return random.nextInt(bound);
+    }
+  }
+
+  @Benchmark
+  public PaymentPage newestFirst() {
+    return repository.query(new PaymentQuery(null, null, null, null, null, null, limit));
+  }
+
+  @Benchmark
+  public PaymentPage byStatus() {
+    return repository.query(
+        new PaymentQuery(PaymentStatus.DECLINED, null, null, null, null, null, limit));
+  }
+
+  @Benchmark
+  public PaymentPage byCardLastFour(Cursor cursor) {
+    return repository.query(
+        new PaymentQuery(null, null, cursor.next(10_000), null, null, null, limit));
+  }
+
+  @Benchmark
+  public PaymentPage byTimeRange(Cursor cursor) {
+    Instant from = START.plusMillis(cursor.next(PAYMENTS) * 10L);
+    return repository.query(
+        new PaymentQuery(null, null, null, from, from.plusSeconds(60), null, limit));
+  }
+
+  @Benchmark
+  public PaymentPage nextPage(Cursor cursor) {
+    return repository.query(new PaymentQuery(null, null, null, null, null,
+        cursors[cursor.next(cursors.length)], limit));
+  }
+
+  // Status is only checked after the currency index, so about two in three candidates are dropped
+  @Benchmark
+  public PaymentPage byCurrencyAndStatus() {
+    return repository.query(
+        new PaymentQuery(PaymentStatus.REJECTED, "GBP", null, null, null, null, limit));
+  }
+}
@@ -0,0 +1,115 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// One stored payment to bytes and back: the fixed-layout record into a heap buffer and into
+// native memory, against Jackson with the ObjectMapper configuration Spring MVC uses and against
+// java.io serialization. PaymentRecordCodecTest checks the encoded sizes against each other.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentRecordCodecBenchmark {
+
+  private PostPaymentResponse payment;
+  private ByteBuffer buffer;
+  private MemorySegment segment;
+  private ObjectWriter writer;
+  private ObjectReader reader;
+  private byte[] json;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws IOException {
+    payment = new PostPaymentResponse();
+    payment.setId(UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e"));
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(8877);
+    payment.setExpiryMonth(4);
+    payment.setExpiryYear(2035);
+    payment.setCurrency("GBP");
+    payment.setAmount(100);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L));
+
+    buffer = ByteBuffer.allocate(PaymentRecordCodec.RECORD_SIZE);
+    PaymentRecordCodec.encode(payment, buffer, 0);
+    segment = Arena.ofAuto().allocate(PaymentRecordCodec.RECORD_SIZE, Long.BYTES);
+    PaymentRecordCodec.encode(payment, segment, 0);
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    writer = objectMapper.writerFor(PostPaymentResponse.class);
+    reader = objectMapper.readerFor(PostPaymentResponse.class);
+    json = writer.writeValueAsBytes(payment);
+    serialized = javaSerialize();
+  }
+
+  @Benchmark
+  public ByteBuffer recordEncode() {
+    PaymentRecordCodec.encode(payment, buffer, 0);
+    return buffer;
+  }
+
+  @Benchmark
+  public PostPaymentResponse recordDecode() {
+    return PaymentRecordCodec.decode(buffer, 0);
+  }
+
+  @Benchmark
+  public MemorySegment segmentEncode() {
+    PaymentRecordCodec.encode(payment, segment, 0);
+    return segment;
+  }
+
+  @Benchmark
+  public PostPaymentResponse segmentDecode() {
+    return PaymentRecordCodec.decode(segment, 0);
+  }
+
+  @Benchmark
+  public byte[] jacksonSerialize() throws IOException {
+    return writer.writeValueAsBytes(payment);
+  }
+
+  @Benchmark
+  public PostPaymentResponse jacksonDeserialize() throws IOException {
+    return reader.readValue(json);
+  }
+
+  @Benchmark
+  public byte[] javaSerialize() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(payment);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public PostPaymentResponse javaDeserialize() throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      return (PostPaymentResponse) in.readObject();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// PaymentsRepository under contention: three readers per writer against a pre-filled store, for
+// each store backend
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentsRepositoryBenchmark {
+
+  private static final int PAYMENTS = 1 << 16;
+
+  @Param({"in-memory", "off-heap"})
+  public String store;
+
+  private PaymentsRepository repository;
+  private PostPaymentResponse[] payments;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    repository = new PaymentsRepository(switch (store) {
+      case "off-heap" -> new OffHeapPaymentStore(PAYMENTS * 2);
+      default -> new InMemoryPaymentStore();
+    });
+
+    SplittableRandom random = new SplittableRandom(42);
+    payments = new PostPaymentResponse[PAYMENTS];
+    for (int i = 0; i < PAYMENTS; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(new UUID(random.nextLong(), random.nextLong()));
+      payment.setStatus(PaymentStatus.AUTHORIZED);
+      payment.setCardNumberLastFour(8877);
+      payment.setExpiryMonth(4);
+      payment.setExpiryYear(2035);
+      payment.setCurrency("GBP");
+      payment.setAmount(100);
+      payments[i] = payment;
+      repository.add(payment);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    int next() {
+      return random.nextInt(PAYMENTS);
+    }
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public Optional<PostPaymentResponse> get(Cursor cursor) {
+    return repository.get(payments[cursor.next()].getId());
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public void put(Cursor cursor) {
+    repository.add(payments[cursor.next()]);
+  }
+}
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.client.AcquiringBankPaymentResponse;
+import com.checkout.payment.gateway.client.AcquiringBankRequestEncoder;
+import com.checkout.payment.gateway.client.AcquiringBankingClient;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// PaymentGatewayService.processPayment with a bank that answers instantly, so only our own
+// encoding, repository write and metrics are measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentGatewayServiceBenchmark {
+
+  // Authorization codes are reused so the repository stays at a fixed size
+  private static final int AUTHORIZATION_CODES = 4096;
+
+  private PaymentGatewayService service;
+  private PaymentRequestDTO request;
+  private AcquiringBankPaymentResponse[] responses;
+  private int next;
+  private byte[] lastBody;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    responses = new AcquiringBankPaymentResponse[AUTHORIZATION_CODES];
+    for (int i = 0; i < AUTHORIZATION_CODES; i++) {
+      responses[i] = AcquiringBankPaymentResponse.builder()
+          .authorized(true)
+          .authorizationCode(new UUID(random.nextLong(), random.nextLong()).toString())
+          .build();
+    }
+
+    AcquiringBankingClient bank = new AcquiringBankingClient(null, null, null, "http://bank",
+        null, null) {
+      @Override
+      public AcquiringBankPaymentResponse processPayment(PaymentRequestDTO payment) {
+        // Encoding the wire body is our own work, so it stays in the measurement
+        lastBody = AcquiringBankRequestEncoder.encode(payment);
+        return responses[next++ & (AUTHORIZATION_CODES - 1)];
+      }
+    };
+    // Bound, so the benchmark includes the cost of recording stage timings and outcomes
+    PaymentMetrics metrics = new PaymentMetrics(List.of("GBP"));
+    metrics.bindTo(new SimpleMeterRegistry());
+    service = new PaymentGatewayService(new PaymentsRepository(), bank, Runnable::run,
+        new PaymentIdempotencyCache(Duration.ofMinutes(1), 1), metrics, Duration.ofSeconds(10));
+
+    request = PaymentRequestDTO.builder()
+        .cardNumber("2222405343248877")
+        .expiryMonth(4)
+        .expiryYear(2035)
+        .currency(CurrencyRegistry.byCode("GBP"))
+        .amount(100)
+        .cvv("123")
+        .build();
+  }
+
+  @Benchmark
+  public PostPaymentResponse processPayment() {
+    return service.processPayment(request);
+  }
+}
@@ -0,0 +1,86 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.ErrorResponse;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+// GET /payment/{id} for unknown IDs, as a probe storm would send them. exceptionPath is what a
+// miss used to cost: an exception with its stack trace, rendered the way the handler's ERROR log
+// did. The rendering goes to a null stream, so the log I/O the old path also
+// paid is left out and the gap is, if anything, understated.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class PaymentNotFoundBenchmark {
+
+  private static final ErrorResponse NOT_FOUND = new ErrorResponse("Page not found");
+
+  private PaymentsRepository repository;
+  private PaymentGatewayService service;
+  private PrintStream log;
+
+  @Setup
+  public void setUp() {
+    repository = new PaymentsRepository();
+    PaymentMetrics metrics = new PaymentMetrics(List.of("GBP"));
+    metrics.bindTo(new SimpleMeterRegistry());
+    service = new PaymentGatewayService(repository, null, Runnable::run,
+        new PaymentIdempotencyCache(Duration.ofMinutes(1), 1), metrics, Duration.ofSeconds(10));
+    log = new PrintStream(OutputStream.nullOutputStream());
+  }
+
+  // UUID.randomUUID() would measure SecureRandom instead of the lookup
+  @State(Scope.Thread)
+  public static class Probe {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    UUID unknownId() {
+      return new UUID(random.nextLong(), random.nextLong());
+    }
+  }
+
+  @Benchmark
+  public Object exceptionPath(Probe probe) {
+    try {
+      return repository.get(probe.unknownId())
+          .orElseThrow(() -> new PaymentNotFoundException("Invalid ID"));
+    } catch (PaymentNotFoundException ex) {
+      ex.printStackTrace(log);
+      return NOT_FOUND;
+    }
+  }
+
+  @Benchmark
+  public Object optionalPath(Probe probe) {
+    Optional<PostPaymentResponse> payment = service.findPaymentById(probe.unknownId());
+    return payment.isPresent() ? payment.get() : NOT_FOUND;
+  }
+
+  // Stands in for the exception the service used to throw for a miss
+  private static final class PaymentNotFoundException extends RuntimeException {
+
+    PaymentNotFoundException(String message) {
+      super(message);
+    }
+  }
+}
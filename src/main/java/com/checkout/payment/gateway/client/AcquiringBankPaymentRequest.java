@@ -18,7 +18,7 @@ public class AcquiringBankPaymentRequest implements Serializable {
   private String expiryDate;
 
   private String currency;
-  private int amount;
+  private long amount;
   private String cvv;
 
 }
@@ -5,10 +5,12 @@ import java.io.Serializable;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.jackson.Jacksonized;
 
 @Setter
 @Getter
 @Builder
+@Jacksonized
 public class AcquiringBankPaymentResponse implements Serializable {
 
   private boolean authorized;
@@ -0,0 +1,127 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import java.nio.charset.StandardCharsets;
+
+// Writes the acquiring bank's JSON straight from a PaymentRequestDTO, producing the same bytes
+// Jackson writes for the equivalent AcquiringBankPaymentRequest. Field names are pre-encoded and
+// the body is sized up front, so the only allocation is the returned array itself; the
+// intermediate request object, the expiry date string and Jackson's serializer are all skipped.
+public final class AcquiringBankRequestEncoder {
+
+  private static final byte[] CARD_NUMBER = ascii("{\"card_number\":");
+  private static final byte[] EXPIRY_DATE = ascii(",\"expiry_date\":");
+  private static final byte[] CURRENCY = ascii(",\"currency\":");
+  private static final byte[] AMOUNT = ascii(",\"amount\":");
+  private static final byte[] CVV = ascii(",\"cvv\":");
+  private static final byte[] NULL = ascii("null");
+
+  private AcquiringBankRequestEncoder() {
+  }
+
+  public static byte[] encode(final PaymentRequestDTO payment) {
+    String cardNumber = payment.cardNumber();
+    String currency = payment.currency() != null ? payment.currency().code() : null;
+    long amount = payment.amount();
+    String cvv = payment.cvv();
+
+    int length = CARD_NUMBER.length + stringLength(cardNumber)
+        + EXPIRY_DATE.length + 3 + longLength(payment.expiryMonth())
+        + longLength(payment.expiryYear())
+        + CURRENCY.length + stringLength(currency)
+        + AMOUNT.length + longLength(amount)
+        + CVV.length + stringLength(cvv)
+        + 1;
+
+    byte[] body = new byte[length];
+    int position = put(body, 0, CARD_NUMBER);
+    position = putString(body, position, cardNumber);
+    position = put(body, position, EXPIRY_DATE);
+    body[position++] = '"';
+    position = putLong(body, position, payment.expiryMonth());
+    body[position++] = '/';
+    position = putLong(body, position, payment.expiryYear());
+    body[position++] = '"';
+    position = put(body, position, CURRENCY);
+    position = putString(body, position, currency);
+    position = put(body, position, AMOUNT);
+    position = putLong(body, position, amount);
+    position = put(body, position, CVV);
+    position = putString(body, position, cvv);
+    body[position] = '}';
+    return body;
+  }
+
+  private static int put(byte[] body, int position, byte[] bytes) {
+    System.arraycopy(bytes, 0, body, position, bytes.length);
+    return position + bytes.length;
+  }
+
+  private static int stringLength(String value) {
+    if (value == null) {
+      return NULL.length;
+    }
+    return isPlain(value) ? value.length() + 2 : escaped(value).length + 2;
+  }
+
+  private static int putString(byte[] body, int position, String value) {
+    if (value == null) {
+      return put(body, position, NULL);
+    }
+    body[position++] = '"';
+    if (isPlain(value)) {
+      for (int i = 0; i < value.length(); i++) {
+        body[position++] = (byte) value.charAt(i);
+      }
+    } else {
+      position = put(body, position, escaped(value));
+    }
+    body[position++] = '"';
+    return position;
+  }
+
+  // Printable ASCII that needs no escaping - card numbers, CVVs and currency codes always are
+  private static boolean isPlain(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] escaped(String value) {
+    return JsonStringEncoder.getInstance().quoteAsUTF8(value);
+  }
+
+  // Digits are taken off the negated value, so Long.MIN_VALUE needs no special case
+  private static int longLength(long value) {
+    long remaining = value < 0 ? value : -value;
+    int length = value < 0 ? 2 : 1;
+    while (remaining <= -10) {
+      remaining /= 10;
+      length++;
+    }
+    return length;
+  }
+
+  private static int putLong(byte[] body, int position, long value) {
+    int end = position + longLength(value);
+    long remaining = value < 0 ? value : -value;
+    int digit = end;
+    do {
+      body[--digit] = (byte) ('0' - remaining % 10);
+      remaining /= 10;
+    } while (remaining < 0);
+    if (value < 0) {
+      body[position] = '-';
+    }
+    return end;
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -1,35 +1,168 @@
 package com.checkout.payment.gateway.client;
 
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
 
 @Component
 public class AcquiringBankingClient {
 
-  // TODO - RestClient should be used based on the latest Spring Boot
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
-  private final RestTemplate restTemplate;
-  private final String baseUrl;
+  private final RestClient restClient;
+  private final CloseableHttpAsyncClient asyncHttpClient;
+  private final ObjectMapper objectMapper;
+  private final URI paymentsUri;
+  private final BankCircuitBreaker circuitBreaker;
+  private final BankRetryPolicy retryPolicy;
 
-  public AcquiringBankingClient(final RestTemplate restTemplate,
-      @Value("${services.acquiring-banking.base-url}") final String baseUrl) {
+  public AcquiringBankingClient(final RestClient acquiringBankRestClient,
+      final CloseableHttpAsyncClient acquiringBankAsyncHttpClient,
+      final ObjectMapper objectMapper,
+      @Value("${services.acquiring-banking.base-url}") final String baseUrl,
+      final BankCircuitBreaker circuitBreaker, final BankRetryPolicy retryPolicy) {
 
-    this.restTemplate = restTemplate;
-    this.baseUrl = baseUrl;
+    this.restClient = acquiringBankRestClient;
+    this.asyncHttpClient = acquiringBankAsyncHttpClient;
+    this.objectMapper = objectMapper;
+    this.paymentsUri = URI.create(baseUrl + "/payments");
+    this.circuitBreaker = circuitBreaker;
+    this.retryPolicy = retryPolicy;
   }
 
   public AcquiringBankPaymentResponse processPayment(final AcquiringBankPaymentRequest request) {
+    return processPayment(request, UUID.randomUUID().toString());
+  }
+
+  // Every attempt for this payment, retries included, carries the same idempotency key
+  public AcquiringBankPaymentResponse processPayment(final AcquiringBankPaymentRequest request,
+      final String idempotencyKey) {
+
+    return execute(serialize(request), idempotencyKey);
+  }
+
+  // The payment is encoded once, straight from the DTO, and the same bytes go out on every attempt
+  public AcquiringBankPaymentResponse processPayment(final PaymentRequestDTO payment) {
+    return execute(AcquiringBankRequestEncoder.encode(payment), UUID.randomUUID().toString());
+  }
+
+  // Same call without holding a thread: the future completes on the HTTP client's I/O threads,
+  // so callers must not block in their continuations
+  public CompletableFuture<AcquiringBankPaymentResponse> processPaymentAsync(
+      final AcquiringBankPaymentRequest request) {
+    return processPaymentAsync(request, UUID.randomUUID().toString());
+  }
+
+  public CompletableFuture<AcquiringBankPaymentResponse> processPaymentAsync(
+      final AcquiringBankPaymentRequest request, final String idempotencyKey) {
+
+    byte[] body;
+    try {
+      body = serialize(request);
+    } catch (AcquiringBankException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    return executeAsync(body, idempotencyKey);
+  }
+
+  public CompletableFuture<AcquiringBankPaymentResponse> processPaymentAsync(
+      final PaymentRequestDTO payment) {
+    return processPaymentAsync(payment, UUID.randomUUID().toString());
+  }
 
-    ResponseEntity<AcquiringBankPaymentResponse> response = restTemplate.postForEntity(
-        baseUrl + "/payments", request, AcquiringBankPaymentResponse.class);
+  public CompletableFuture<AcquiringBankPaymentResponse> processPaymentAsync(
+      final PaymentRequestDTO payment, final String idempotencyKey) {
+    return executeAsync(AcquiringBankRequestEncoder.encode(payment), idempotencyKey);
+  }
+
+  private AcquiringBankPaymentResponse execute(final byte[] body, final String idempotencyKey) {
+    return retryPolicy.execute(() -> circuitBreaker.execute(() -> post(body, idempotencyKey)));
+  }
+
+  private CompletableFuture<AcquiringBankPaymentResponse> executeAsync(final byte[] body,
+      final String idempotencyKey) {
+
+    return retryPolicy.executeAsync(
+        () -> circuitBreaker.executeAsync(() -> send(body, idempotencyKey)));
+  }
+
+  private byte[] serialize(final AcquiringBankPaymentRequest request) {
+    try {
+      return objectMapper.writeValueAsBytes(request);
+    } catch (JsonProcessingException ex) {
+      throw new AcquiringBankException(ex);
+    }
+  }
 
-    if (response.getStatusCode().is5xxServerError() || response.getStatusCode()
-        .is4xxClientError()) {
-      throw new RuntimeException("Error processing payment");
+  private AcquiringBankPaymentResponse post(final byte[] body, final String idempotencyKey) {
+    try {
+      return restClient.post()
+          .uri("/payments")
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+          .body(body)
+          .retrieve()
+          .onStatus(HttpStatusCode::isError, (req, response) -> {
+            throw new AcquiringBankException(response.getStatusCode().value());
+          })
+          .body(AcquiringBankPaymentResponse.class);
+    } catch (ResourceAccessException ex) {
+      // Connection failures and timeouts
+      throw new AcquiringBankException(ex);
     }
+  }
+
+  private CompletableFuture<AcquiringBankPaymentResponse> send(final byte[] body,
+      final String idempotencyKey) {
+
+    SimpleHttpRequest httpRequest = SimpleRequestBuilder.post(paymentsUri)
+        .addHeader(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+        .setBody(body, ContentType.APPLICATION_JSON)
+        .build();
+
+    CompletableFuture<AcquiringBankPaymentResponse> result = new CompletableFuture<>();
+    asyncHttpClient.execute(httpRequest, new FutureCallback<>() {
+      @Override
+      public void completed(SimpleHttpResponse response) {
+        if (response.getCode() >= 400) {
+          result.completeExceptionally(new AcquiringBankException(response.getCode()));
+          return;
+        }
+        try {
+          result.complete(objectMapper.readValue(response.getBodyBytes(),
+              AcquiringBankPaymentResponse.class));
+        } catch (IOException ex) {
+          result.completeExceptionally(new AcquiringBankException(ex));
+        }
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        result.completeExceptionally(new AcquiringBankException(ex));
+      }
 
-    return response.getBody();
+      @Override
+      public void cancelled() {
+        result.cancel(false);
+      }
+    });
+    return result;
   }
 }
@@ -0,0 +1,267 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.enums.CircuitBreakerState;
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.exception.AcquiringBankUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Circuit breaker and bulkhead in front of the acquiring bank. The breaker keeps the outcomes of
+// the last slidingWindowSize calls and opens once the failure rate reaches the threshold; slow
+// calls count as failures. While open every call is rejected straight away; after openDuration a
+// few probe calls are let through and decide whether to close again. Independently, the bulkhead
+// caps how many calls may be waiting on the bank at once.
+@Component
+public class BankCircuitBreaker implements MeterBinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BankCircuitBreaker.class);
+
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int halfOpenProbes;
+  private final int maxConcurrentCalls;
+
+  private final Semaphore bulkhead;
+
+  // Guards the sliding window and every state transition:
+  private final ReentrantLock lock = new ReentrantLock();
+  private final boolean[] window;
+  private int windowIndex;
+  private int windowCount;
+  private int windowFailures;
+
+  private volatile CircuitBreakerState state = CircuitBreakerState.CLOSED;
+  private volatile long openUntil;
+  private final AtomicInteger probesStarted = new AtomicInteger();
+  private int probesSucceeded;
+
+  private final Map<CircuitBreakerState, LongAdder> transitions =
+      new EnumMap<>(CircuitBreakerState.class);
+  private final LongAdder rejectedOpen = new LongAdder();
+  private final LongAdder rejectedBulkhead = new LongAdder();
+
+  public BankCircuitBreaker(
+      @Value("${services.acquiring-banking.circuit-breaker.sliding-window-size}")
+      final int slidingWindowSize,
+      @Value("${services.acquiring-banking.circuit-breaker.minimum-calls}")
+      final int minimumCalls,
+      @Value("${services.acquiring-banking.circuit-breaker.failure-rate-threshold}")
+      final int failureRateThreshold,
+      @Value("${services.acquiring-banking.circuit-breaker.slow-call-duration}")
+      final Duration slowCallDuration,
+      @Value("${services.acquiring-banking.circuit-breaker.open-duration}")
+      final Duration openDuration,
+      @Value("${services.acquiring-banking.circuit-breaker.half-open-probes}")
+      final int halfOpenProbes,
+      @Value("${services.acquiring-banking.bulkhead.max-concurrent-calls}")
+      final int maxConcurrentCalls) {
+
+    this.window = new boolean[slidingWindowSize];
+    this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallNanos = slowCallDuration.toNanos();
+    this.openNanos = openDuration.toNanos();
+    this.halfOpenProbes = halfOpenProbes;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.bulkhead = new Semaphore(maxConcurrentCalls);
+    for (CircuitBreakerState target : CircuitBreakerState.values()) {
+      transitions.put(target, new LongAdder());
+    }
+  }
+
+  public <T> T execute(Supplier<T> call) {
+    acquirePermission();
+    long start = System.nanoTime();
+    try {
+      T result = call.get();
+      record(null, System.nanoTime() - start);
+      return result;
+    } catch (RuntimeException ex) {
+      record(ex, System.nanoTime() - start);
+      throw ex;
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+    try {
+      acquirePermission();
+    } catch (AcquiringBankUnavailableException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException ex) {
+      bulkhead.release();
+      record(ex, System.nanoTime() - start);
+      return CompletableFuture.failedFuture(ex);
+    }
+    return future.whenComplete((result, ex) -> {
+      bulkhead.release();
+      record(ex, System.nanoTime() - start);
+    });
+  }
+
+  public CircuitBreakerState state() {
+    return state;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (CircuitBreakerState candidate : CircuitBreakerState.values()) {
+      Gauge.builder("bank.client.circuit.state", this, b -> b.state == candidate ? 1 : 0)
+          .description("1 for the current state of the acquiring bank circuit breaker")
+          .tag("state", name(candidate))
+          .register(registry);
+      FunctionCounter.builder("bank.client.circuit.transitions", transitions.get(candidate),
+              LongAdder::sum)
+          .description("Circuit breaker transitions into the given state")
+          .tag("state", name(candidate))
+          .register(registry);
+    }
+    Gauge.builder("bank.client.circuit.failure-rate", this, BankCircuitBreaker::failureRate)
+        .description("Failure rate over the circuit breaker's sliding window, in percent")
+        .register(registry);
+    FunctionCounter.builder("bank.client.circuit.rejected", rejectedOpen, LongAdder::sum)
+        .description("Calls rejected because the circuit breaker was open")
+        .tag("reason", "circuit_open")
+        .register(registry);
+    FunctionCounter.builder("bank.client.circuit.rejected", rejectedBulkhead, LongAdder::sum)
+        .description("Calls rejected because the bulkhead was full")
+        .tag("reason", "bulkhead_full")
+        .register(registry);
+    Gauge.builder("bank.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+        .description("Further calls the bulkhead lets through to the acquiring bank")
+        .register(registry);
+    Gauge.builder("bank.client.bulkhead.max", () -> maxConcurrentCalls)
+        .description("Maximum concurrent calls to the acquiring bank")
+        .register(registry);
+  }
+
+  private void acquirePermission() {
+    CircuitBreakerState current = state;
+    if (current == CircuitBreakerState.OPEN) {
+      if (System.nanoTime() - openUntil < 0) {
+        rejectedOpen.increment();
+        throw new AcquiringBankUnavailableException("Acquiring bank circuit breaker is open");
+      }
+      lock.lock();
+      try {
+        if (state == CircuitBreakerState.OPEN) {
+          transition(CircuitBreakerState.HALF_OPEN);
+        }
+      } finally {
+        lock.unlock();
+      }
+      current = state;
+    }
+    // The bulkhead goes first: a probe it turned away would hold a probe slot without ever
+    // recording an outcome, leaving the breaker half-open for good
+    if (!bulkhead.tryAcquire()) {
+      rejectedBulkhead.increment();
+      throw new AcquiringBankUnavailableException("Too many concurrent calls to acquiring bank");
+    }
+    if (current == CircuitBreakerState.HALF_OPEN
+        && probesStarted.incrementAndGet() > halfOpenProbes) {
+      bulkhead.release();
+      rejectedOpen.increment();
+      throw new AcquiringBankUnavailableException("Acquiring bank circuit breaker is half-open");
+    }
+  }
+
+  private void record(Throwable error, long elapsedNanos) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+    if (cause instanceof AcquiringBankException bankError && bankError.isClientError()) {
+      // The bank is healthy, it just did not like the request
+      cause = null;
+    }
+    boolean failure = cause != null || elapsedNanos >= slowCallNanos;
+
+    lock.lock();
+    try {
+      switch (state) {
+        case CLOSED -> {
+          if (window[windowIndex] && windowCount == window.length) {
+            windowFailures--;
+          }
+          window[windowIndex] = failure;
+          windowIndex = (windowIndex + 1) % window.length;
+          windowCount = Math.min(windowCount + 1, window.length);
+          if (failure) {
+            windowFailures++;
+          }
+          if (windowCount >= minimumCalls
+              && windowFailures * 100 >= failureRateThreshold * windowCount) {
+            transition(CircuitBreakerState.OPEN);
+          }
+        }
+        case HALF_OPEN -> {
+          if (failure) {
+            transition(CircuitBreakerState.OPEN);
+          } else if (++probesSucceeded >= halfOpenProbes) {
+            transition(CircuitBreakerState.CLOSED);
+          }
+        }
+        // Calls that started before the breaker opened have nothing left to decide
+        case OPEN -> {
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Called with the lock held
+  private void transition(CircuitBreakerState target) {
+    CircuitBreakerState previous = state;
+    if (target == CircuitBreakerState.OPEN) {
+      openUntil = System.nanoTime() + openNanos;
+    } else if (target == CircuitBreakerState.HALF_OPEN) {
+      probesStarted.set(0);
+      probesSucceeded = 0;
+    } else {
+      windowIndex = 0;
+      windowCount = 0;
+      windowFailures = 0;
+    }
+    state = target;
+    transitions.get(target).increment();
+    LOG.warn("Acquiring bank circuit breaker moved from {} to {}", previous, target);
+  }
+
+  private double failureRate() {
+    lock.lock();
+    try {
+      return windowCount == 0 ? 0 : windowFailures * 100.0 / windowCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static String name(CircuitBreakerState state) {
+    return state.name().toLowerCase(Locale.ROOT);
+  }
+}
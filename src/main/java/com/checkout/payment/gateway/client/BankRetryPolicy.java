@@ -0,0 +1,229 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Retries failed bank calls with exponential backoff and full jitter, within an overall deadline.
+// Only server errors and I/O failures are retried; the caller passes the same idempotency key to
+// every attempt, so the bank can tell a retry from a new payment. The asynchronous path can also
+// hedge: if an attempt has not answered by the observed p95 latency, a second one is started and
+// whichever answers first wins.
+@Component
+public class BankRetryPolicy implements MeterBinder {
+
+  private static final int LATENCY_SAMPLES = 1024;
+  private static final int P95_REFRESH_INTERVAL = 128;
+
+  private final int maxAttempts;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final long deadlineNanos;
+  private final boolean hedgingEnabled;
+  private final long minHedgeDelayNanos;
+
+  // Recent successful attempt latencies; the p95 is refreshed every P95_REFRESH_INTERVAL samples
+  private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+  private final AtomicLong latencyCount = new AtomicLong();
+  private volatile long p95Nanos;
+
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private final LongAdder deadlinesExceeded = new LongAdder();
+
+  public BankRetryPolicy(
+      @Value("${services.acquiring-banking.retry.max-attempts}") final int maxAttempts,
+      @Value("${services.acquiring-banking.retry.initial-backoff}") final Duration initialBackoff,
+      @Value("${services.acquiring-banking.retry.max-backoff}") final Duration maxBackoff,
+      @Value("${services.acquiring-banking.retry.deadline}") final Duration deadline,
+      @Value("${services.acquiring-banking.hedging.enabled}") final boolean hedgingEnabled,
+      @Value("${services.acquiring-banking.hedging.min-delay}") final Duration minHedgeDelay) {
+
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialBackoffNanos = initialBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+    this.deadlineNanos = deadline.toNanos();
+    this.hedgingEnabled = hedgingEnabled;
+    this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+  }
+
+  // Blocking attempts; each is bounded by the client's read timeout and no retry starts once its
+  // backoff would run past the deadline
+  public <T> T execute(Supplier<T> attempt) {
+    long deadline = System.nanoTime() + deadlineNanos;
+    for (int attemptNumber = 1; ; attemptNumber++) {
+      long start = System.nanoTime();
+      try {
+        T result = attempt.get();
+        recordLatency(System.nanoTime() - start);
+        return result;
+      } catch (AcquiringBankException ex) {
+        long backoff = backoffNanos(attemptNumber);
+        if (!isRetryable(ex) || attemptNumber >= maxAttempts
+            || System.nanoTime() + backoff - deadline >= 0) {
+          throw ex;
+        }
+        retries.increment();
+        sleep(backoff);
+      }
+    }
+  }
+
+  public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> attempt) {
+    long deadline = System.nanoTime() + deadlineNanos;
+    CompletableFuture<T> result = new CompletableFuture<>();
+    attemptAsync(attempt, 1, deadline, result);
+    return result.orTimeout(deadlineNanos, TimeUnit.NANOSECONDS)
+        .exceptionally(ex -> {
+          Throwable cause = unwrap(ex);
+          if (cause instanceof TimeoutException) {
+            deadlinesExceeded.increment();
+            throw new AcquiringBankException(cause);
+          }
+          throw ex instanceof CompletionException completion
+              ? completion : new CompletionException(cause);
+        });
+  }
+
+  // The hedge delay in use right now: the observed p95, but never below the configured minimum
+  public Duration hedgeDelay() {
+    return Duration.ofNanos(Math.max(minHedgeDelayNanos, p95Nanos));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("bank.client.retries", retries, LongAdder::sum)
+        .description("Bank calls retried after a server error or I/O failure")
+        .register(registry);
+    FunctionCounter.builder("bank.client.hedges", hedges, LongAdder::sum)
+        .description("Hedged second attempts sent to the bank")
+        .register(registry);
+    FunctionCounter.builder("bank.client.hedge.wins", hedgeWins, LongAdder::sum)
+        .description("Payments answered by the hedged attempt first")
+        .register(registry);
+    FunctionCounter.builder("bank.client.deadline.exceeded", deadlinesExceeded, LongAdder::sum)
+        .description("Payments that ran out of time across all attempts")
+        .register(registry);
+    Gauge.builder("bank.client.hedge.delay", this, policy -> policy.hedgeDelay().toNanos() / 1e6)
+        .description("Delay after which a slow bank call is hedged")
+        .baseUnit("milliseconds")
+        .register(registry);
+  }
+
+  private <T> void attemptAsync(Supplier<CompletableFuture<T>> attempt, int attemptNumber,
+      long deadline, CompletableFuture<T> result) {
+    if (result.isDone()) {
+      return;
+    }
+    hedged(attempt).whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+        return;
+      }
+      long backoff = backoffNanos(attemptNumber);
+      if (!isRetryable(error) || attemptNumber >= maxAttempts
+          || System.nanoTime() + backoff - deadline >= 0) {
+        result.completeExceptionally(unwrap(error));
+        return;
+      }
+      retries.increment();
+      CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS)
+          .execute(() -> attemptAsync(attempt, attemptNumber + 1, deadline, result));
+    });
+  }
+
+  // One attempt, plus a second one with the same idempotency key if the first is slow. Fails only
+  // once every started attempt has failed.
+  private <T> CompletableFuture<T> hedged(Supplier<CompletableFuture<T>> attempt) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger outstanding = new AtomicInteger(1);
+    start(attempt, result, outstanding, false);
+
+    if (hedgingEnabled) {
+      long delay = hedgeDelay().toNanos();
+      CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+        // No hedge once the attempt has answered or every started attempt has already failed
+        if (!result.isDone() && outstanding.getAndUpdate(n -> n == 0 ? 0 : n + 1) > 0) {
+          hedges.increment();
+          start(attempt, result, outstanding, true);
+        }
+      });
+    }
+    return result;
+  }
+
+  private <T> void start(Supplier<CompletableFuture<T>> attempt, CompletableFuture<T> result,
+      AtomicInteger outstanding, boolean hedge) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = attempt.get();
+    } catch (RuntimeException ex) {
+      future = CompletableFuture.failedFuture(ex);
+    }
+    future.whenComplete((value, error) -> {
+      if (error == null) {
+        recordLatency(System.nanoTime() - start);
+        if (result.complete(value) && hedge) {
+          hedgeWins.increment();
+        }
+      } else if (outstanding.decrementAndGet() == 0) {
+        result.completeExceptionally(error);
+      }
+    });
+  }
+
+  private long backoffNanos(int attemptNumber) {
+    long ceiling = Math.min(maxBackoffNanos,
+        initialBackoffNanos << Math.min(attemptNumber - 1, 30));
+    return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  private void recordLatency(long nanos) {
+    long count = latencyCount.incrementAndGet();
+    latencies.set((int) ((count - 1) % LATENCY_SAMPLES), nanos);
+    if (count % P95_REFRESH_INTERVAL == 0) {
+      long[] sorted = new long[(int) Math.min(count, LATENCY_SAMPLES)];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = latencies.get(i);
+      }
+      Arrays.sort(sorted);
+      p95Nanos = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+  }
+
+  private static boolean isRetryable(Throwable error) {
+    return unwrap(error) instanceof AcquiringBankException bankError && !bankError.isClientError();
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+  }
+
+  private static void sleep(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new AcquiringBankException(ex);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.repository.PaymentPeerTransport;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+
+// Talks to the internal endpoints of other gateway nodes over pooled keep-alive connections:
+// /internal/payments in sharded mode and /internal/replication on a replication peer. Bodies are
+// raw payment records, so nothing is parsed as JSON on either side. Every request carries the
+// shared secret the other node checks before reading the body.
+public class PaymentPeerClient implements PaymentPeerTransport, AutoCloseable {
+
+  public static final String PATH = "/internal/payments";
+  public static final String REPLICATION_PATH = "/internal/replication";
+  public static final String SECRET_HEADER = "X-Gateway-Peer-Secret";
+
+  private final CloseableHttpClient httpClient;
+  private final String path;
+  private final String secret;
+
+  public PaymentPeerClient(final CloseableHttpClient peerHttpClient, final String path,
+      final String secret) {
+
+    if (secret == null || secret.isBlank()) {
+      throw new IllegalStateException("Calls between gateway nodes are authenticated; set "
+          + "payments.internal.secret");
+    }
+    this.httpClient = peerHttpClient;
+    this.path = path;
+    this.secret = secret;
+  }
+
+  // Its HTTP client is private to it rather than a bean, so the bank clients stay the only ones
+  public static PaymentPeerClient pooled(String path, String secret, int maxConnections,
+      Duration connectTimeout, Duration readTimeout) {
+
+    return new PaymentPeerClient(HttpClients.custom()
+        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                .build())
+            .build())
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+            .build())
+        .build(), path, secret);
+  }
+
+  @Override
+  public void put(String node, byte[] records) {
+    HttpPut request = new HttpPut(node + path);
+    request.setHeader(SECRET_HEADER, secret);
+    request.setEntity(new ByteArrayEntity(records, ContentType.APPLICATION_OCTET_STREAM));
+    try {
+      httpClient.execute(request, response -> {
+        if (response.getCode() != HttpStatus.SC_NO_CONTENT) {
+          throw new IOException("Unexpected status " + response.getCode() + " from " + node);
+        }
+        EntityUtils.consume(response.getEntity());
+        return null;
+      });
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @Override
+  public byte[] get(String node, UUID id) {
+    HttpGet request = new HttpGet(node + path + "/" + id);
+    request.setHeader(SECRET_HEADER, secret);
+    try {
+      return httpClient.execute(request, response -> switch (response.getCode()) {
+        case HttpStatus.SC_OK -> EntityUtils.toByteArray(response.getEntity());
+        case HttpStatus.SC_NOT_FOUND -> {
+          EntityUtils.consume(response.getEntity());
+          yield null;
+        }
+        default -> throw new IOException(
+            "Unexpected status " + response.getCode() + " from " + node);
+      });
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+}
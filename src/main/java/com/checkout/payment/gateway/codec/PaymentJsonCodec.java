@@ -0,0 +1,171 @@
+package com.checkout.payment.gateway.codec;
+
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.SupportedCurrency;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.util.UUID;
+
+// Hand-written streaming reader for PaymentRequest and writer for PostPaymentResponse. Field names
+// come back from the parser already canonicalized, and are written from pre-encoded strings;
+// currencies are resolved from the parser's own characters by CurrencyRegistry. The reader only
+// accepts the shapes a well-behaved client sends. For anything else, such as numbers as strings,
+// fractional amounts, amounts past a long or unsupported currency codes, it returns null, and the
+// caller falls back to ObjectMapper so coercions and error messages stay exactly Jackson's.
+public final class PaymentJsonCodec {
+
+  private static final SerializableString ID = new SerializedString("id");
+  private static final SerializableString STATUS = new SerializedString("status");
+  private static final SerializableString CARD_NUMBER_LAST_FOUR =
+      new SerializedString("cardNumberLastFour");
+  private static final SerializableString EXPIRY_MONTH = new SerializedString("expiryMonth");
+  private static final SerializableString EXPIRY_YEAR = new SerializedString("expiryYear");
+  private static final SerializableString CURRENCY = new SerializedString("currency");
+  private static final SerializableString AMOUNT = new SerializedString("amount");
+  private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+  private static final SerializableString FOUND = new SerializedString("found");
+  private static final SerializableString PAYMENT = new SerializedString("payment");
+
+  private PaymentJsonCodec() {
+  }
+
+  // Null means the body needs the general-purpose ObjectMapper path
+  public static PaymentRequest readPaymentRequest(final JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+
+    String cardNumber = null;
+    Integer expiryMonth = null;
+    Integer expiryYear = null;
+    SupportedCurrency currency = null;
+    Long amount = null;
+    String cvv = null;
+
+    String field;
+    while ((field = parser.nextFieldName()) != null) {
+      JsonToken value = parser.nextToken();
+      boolean isNull = value == JsonToken.VALUE_NULL;
+      switch (field) {
+        case "card_number" -> {
+          if (!isNull && value != JsonToken.VALUE_STRING) {
+            return null;
+          }
+          cardNumber = isNull ? null : parser.getText();
+        }
+        case "expiry_month" -> {
+          if (!isNull && !isInt(parser, value)) {
+            return null;
+          }
+          expiryMonth = isNull ? null : parser.getIntValue();
+        }
+        case "expiry_year" -> {
+          if (!isNull && !isInt(parser, value)) {
+            return null;
+          }
+          expiryYear = isNull ? null : parser.getIntValue();
+        }
+        case "currency" -> {
+          if (isNull) {
+            currency = null;
+          } else if (value != JsonToken.VALUE_STRING
+              || (currency = currency(parser)) == null) {
+            return null;
+          }
+        }
+        case "amount" -> {
+          if (!isNull && !isLong(parser, value)) {
+            return null;
+          }
+          amount = isNull ? null : parser.getLongValue();
+        }
+        case "cvv" -> {
+          if (!isNull && value != JsonToken.VALUE_STRING) {
+            return null;
+          }
+          cvv = isNull ? null : parser.getText();
+        }
+        // Unknown properties are ignored, as with Spring Boot's ObjectMapper
+        default -> parser.skipChildren();
+      }
+    }
+    if (parser.currentToken() != JsonToken.END_OBJECT) {
+      return null;
+    }
+    return new PaymentRequest(cardNumber, expiryMonth, expiryYear, currency, amount, cvv);
+  }
+
+  // Same fields, order and values ObjectMapper writes for the bean
+  public static void writePostPaymentResponse(final JsonGenerator generator,
+      final PostPaymentResponse payment) throws IOException {
+
+    generator.writeStartObject();
+    generator.writeFieldName(ID);
+    if (payment.getId() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(payment.getId().toString());
+    }
+    generator.writeFieldName(STATUS);
+    if (payment.getStatus() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(payment.getStatus().getName());
+    }
+    generator.writeFieldName(CARD_NUMBER_LAST_FOUR);
+    generator.writeNumber(payment.getCardNumberLastFour());
+    generator.writeFieldName(EXPIRY_MONTH);
+    generator.writeNumber(payment.getExpiryMonth());
+    generator.writeFieldName(EXPIRY_YEAR);
+    generator.writeNumber(payment.getExpiryYear());
+    generator.writeFieldName(CURRENCY);
+    generator.writeString(payment.getCurrency());
+    generator.writeFieldName(AMOUNT);
+    generator.writeNumber(payment.getAmount());
+    generator.writeFieldName(CREATED_AT);
+    if (payment.getCreatedAt() == null) {
+      generator.writeNull();
+    } else {
+      // Instant.toString() is ISO_INSTANT, the format Jackson's InstantSerializer writes
+      generator.writeString(payment.getCreatedAt().toString());
+    }
+    generator.writeEndObject();
+  }
+
+  // An entry of the POST /payments/lookup response; the payment is only written when found
+  public static void writePaymentLookup(final JsonGenerator generator, final UUID id,
+      final PostPaymentResponse payment) throws IOException {
+
+    generator.writeStartObject();
+    generator.writeFieldName(ID);
+    generator.writeString(id.toString());
+    generator.writeFieldName(FOUND);
+    generator.writeBoolean(payment != null);
+    if (payment != null) {
+      generator.writeFieldName(PAYMENT);
+      writePostPaymentResponse(generator, payment);
+    }
+    generator.writeEndObject();
+  }
+
+  private static boolean isInt(JsonParser parser, JsonToken value) throws IOException {
+    return value == JsonToken.VALUE_NUMBER_INT
+        && parser.getNumberType() == JsonParser.NumberType.INT;
+  }
+
+  private static boolean isLong(JsonParser parser, JsonToken value) throws IOException {
+    return value == JsonToken.VALUE_NUMBER_INT
+        && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER;
+  }
+
+  private static SupportedCurrency currency(JsonParser parser) throws IOException {
+    return CurrencyRegistry.byCode(parser.getTextCharacters(), parser.getTextOffset(),
+        parser.getTextLength());
+  }
+}
@@ -0,0 +1,95 @@
+package com.checkout.payment.gateway.codec;
+
+import com.checkout.payment.gateway.model.PaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+// Serves the payment endpoints ahead of Spring's generic Jackson converter: PaymentRequest bodies
+// are read and PostPaymentResponse bodies written through PaymentJsonCodec, everything else is
+// left to the default converters. Responses go straight to the servlet output stream.
+@Component
+public class PaymentJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  private final ObjectMapper objectMapper;
+  private final JsonFactory jsonFactory;
+
+  public PaymentJsonHttpMessageConverter(final ObjectMapper objectMapper) {
+    super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    this.objectMapper = objectMapper;
+    this.jsonFactory = objectMapper.getFactory();
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return clazz == PaymentRequest.class || clazz == PostPaymentResponse.class;
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return clazz == PaymentRequest.class && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+    return clazz == PostPaymentResponse.class && canWrite(mediaType);
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    Charset charset = charset(inputMessage.getHeaders().getContentType());
+    try {
+      if (!StandardCharsets.UTF_8.equals(charset)) {
+        return objectMapper.readValue(new InputStreamReader(inputMessage.getBody(), charset),
+            PaymentRequest.class);
+      }
+      // Request bodies are small: buffer once and let the parser work on the array directly,
+      // so the fallback can re-read the same bytes
+      byte[] body = inputMessage.getBody().readAllBytes();
+      PaymentRequest request;
+      try (JsonParser parser = jsonFactory.createParser(body)) {
+        request = PaymentJsonCodec.readPaymentRequest(parser);
+      } catch (JsonProcessingException ex) {
+        request = null;
+      }
+      return request != null ? request : objectMapper.readValue(body, PaymentRequest.class);
+    } catch (InvalidDefinitionException ex) {
+      throw new HttpMessageConversionException("Type definition error: " + ex.getType(), ex);
+    } catch (JsonProcessingException ex) {
+      throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(), ex,
+          inputMessage);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object payment, HttpOutputMessage outputMessage)
+      throws IOException {
+
+    try (JsonGenerator generator = jsonFactory.createGenerator(
+        StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+      PaymentJsonCodec.writePostPaymentResponse(generator, (PostPaymentResponse) payment);
+    }
+  }
+
+  private static Charset charset(MediaType contentType) {
+    return contentType != null && contentType.getCharset() != null
+        ? contentType.getCharset() : StandardCharsets.UTF_8;
+  }
+}
@@ -0,0 +1,18 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.model.PaymentRequest;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class AmountValidator implements ConstraintValidator<ValidAmount, PaymentRequest> {
+
+  @Override
+  public boolean isValid(PaymentRequest value, ConstraintValidatorContext context) {
+    // Let @NotNull on the fields handle missing amounts and currencies
+    if (value == null || value.getAmount() == null || value.getCurrency() == null) {
+      return true;
+    }
+    return value.getCurrency().isValidAmount(value.getAmount());
+  }
+
+}
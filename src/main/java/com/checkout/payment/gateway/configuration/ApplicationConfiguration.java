@@ -1,18 +1,155 @@
 package com.checkout.payment.gateway.configuration;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.time.Duration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
 
 @Configuration
 public class ApplicationConfiguration {
 
+  // Pooled HTTP/1.1 keep-alive connections to the acquiring bank:
   @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder.connectTimeout(Duration.ofMillis(10000))
-        .readTimeout(Duration.ofMillis(10000))
+  public PoolingHttpClientConnectionManager acquiringBankConnectionManager(
+      @Value("${services.acquiring-banking.max-connections}") final int maxConnections,
+      @Value("${services.acquiring-banking.max-connections-per-route}") final int maxPerRoute,
+      @Value("${services.acquiring-banking.connect-timeout}") final Duration connectTimeout,
+      @Value("${services.acquiring-banking.read-timeout}") final Duration readTimeout) {
+
+    return PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(maxConnections)
+        .setMaxConnPerRoute(maxPerRoute)
+        .setDefaultConnectionConfig(connectionConfig(connectTimeout, readTimeout))
         .build();
   }
+
+  @Bean
+  public CloseableHttpClient acquiringBankHttpClient(
+      final PoolingHttpClientConnectionManager acquiringBankConnectionManager,
+      @Value("${services.acquiring-banking.read-timeout}") final Duration readTimeout,
+      @Value("${services.acquiring-banking.pool-acquire-timeout}") final Duration acquireTimeout,
+      @Value("${services.acquiring-banking.keep-alive}") final Duration keepAlive,
+      @Value("${services.acquiring-banking.idle-eviction}") final Duration idleEviction) {
+
+    TimeValue keepAliveDuration = TimeValue.ofMilliseconds(keepAlive.toMillis());
+    return HttpClients.custom()
+        .setConnectionManager(acquiringBankConnectionManager)
+        .setDefaultRequestConfig(requestConfig(readTimeout, acquireTimeout))
+        // The simulator does not send Keep-Alive hints, so reuse connections for a fixed period:
+        .setKeepAliveStrategy((response, context) -> keepAliveDuration)
+        .evictExpiredConnections()
+        .evictIdleConnections(TimeValue.ofMilliseconds(idleEviction.toMillis()))
+        .build();
+  }
+
+  @Bean
+  public RestClient acquiringBankRestClient(final RestClient.Builder builder,
+      final CloseableHttpClient acquiringBankHttpClient,
+      @Value("${services.acquiring-banking.base-url}") final String baseUrl) {
+
+    return builder.baseUrl(baseUrl)
+        .requestFactory(new HttpComponentsClientHttpRequestFactory(acquiringBankHttpClient))
+        .build();
+  }
+
+  // Non-blocking counterpart used by the asynchronous payment path; same limits and timeouts
+  @Bean
+  public PoolingAsyncClientConnectionManager acquiringBankAsyncConnectionManager(
+      @Value("${services.acquiring-banking.max-connections}") final int maxConnections,
+      @Value("${services.acquiring-banking.max-connections-per-route}") final int maxPerRoute,
+      @Value("${services.acquiring-banking.connect-timeout}") final Duration connectTimeout,
+      @Value("${services.acquiring-banking.read-timeout}") final Duration readTimeout) {
+
+    return PoolingAsyncClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(maxConnections)
+        .setMaxConnPerRoute(maxPerRoute)
+        .setDefaultConnectionConfig(connectionConfig(connectTimeout, readTimeout))
+        .build();
+  }
+
+  @Bean
+  public CloseableHttpAsyncClient acquiringBankAsyncHttpClient(
+      final PoolingAsyncClientConnectionManager acquiringBankAsyncConnectionManager,
+      @Value("${services.acquiring-banking.read-timeout}") final Duration readTimeout,
+      @Value("${services.acquiring-banking.pool-acquire-timeout}") final Duration acquireTimeout,
+      @Value("${services.acquiring-banking.keep-alive}") final Duration keepAlive,
+      @Value("${services.acquiring-banking.idle-eviction}") final Duration idleEviction) {
+
+    TimeValue keepAliveDuration = TimeValue.ofMilliseconds(keepAlive.toMillis());
+    CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+        .setConnectionManager(acquiringBankAsyncConnectionManager)
+        .setDefaultRequestConfig(requestConfig(readTimeout, acquireTimeout))
+        .setKeepAliveStrategy((response, context) -> keepAliveDuration)
+        .evictExpiredConnections()
+        .evictIdleConnections(TimeValue.ofMilliseconds(idleEviction.toMillis()))
+        .build();
+    client.start();
+    return client;
+  }
+
+  @Bean
+  public MeterBinder acquiringBankConnectionPoolMetrics(
+      final PoolingHttpClientConnectionManager acquiringBankConnectionManager,
+      final PoolingAsyncClientConnectionManager acquiringBankAsyncConnectionManager) {
+
+    return registry -> {
+      bindPoolGauges(registry, acquiringBankConnectionManager, "blocking");
+      bindPoolGauges(registry, acquiringBankAsyncConnectionManager, "async");
+    };
+  }
+
+  private static ConnectionConfig connectionConfig(Duration connectTimeout,
+      Duration readTimeout) {
+    return ConnectionConfig.custom()
+        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+        .build();
+  }
+
+  private static RequestConfig requestConfig(Duration readTimeout, Duration acquireTimeout) {
+    return RequestConfig.custom()
+        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeout.toMillis()))
+        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+        .build();
+  }
+
+  private static void bindPoolGauges(MeterRegistry registry, ConnPoolControl<HttpRoute> pool,
+      String client) {
+    Gauge.builder("bank.client.pool.leased", pool, p -> p.getTotalStats().getLeased())
+        .description("Connections to the acquiring bank currently in use")
+        .tag("client", client)
+        .register(registry);
+    Gauge.builder("bank.client.pool.available", pool, p -> p.getTotalStats().getAvailable())
+        .description("Idle keep-alive connections to the acquiring bank")
+        .tag("client", client)
+        .register(registry);
+    Gauge.builder("bank.client.pool.pending", pool, p -> p.getTotalStats().getPending())
+        .description("Requests waiting for a connection to the acquiring bank")
+        .tag("client", client)
+        .register(registry);
+    Gauge.builder("bank.client.pool.max", pool, p -> p.getTotalStats().getMax())
+        .description("Maximum connections to the acquiring bank")
+        .tag("client", client)
+        .register(registry);
+  }
 }
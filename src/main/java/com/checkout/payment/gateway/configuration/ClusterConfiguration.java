@@ -0,0 +1,49 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.repository.ConsistentHashRing;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.checkout.payment.gateway.repository.ShardedPaymentStore;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// Sharded mode. The store built by RepositoryConfiguration becomes this node's local shard, and
+// the sharded store in front of it is what PaymentsRepository gets.
+@Configuration
+@ConditionalOnProperty("payments.cluster.enabled")
+public class ClusterConfiguration {
+
+  @Bean
+  public PaymentPeerClient paymentPeerClient(
+      @Value("${payments.internal.secret}") final String secret,
+      @Value("${payments.cluster.max-connections}") final int maxConnections,
+      @Value("${payments.cluster.connect-timeout}") final Duration connectTimeout,
+      @Value("${payments.cluster.read-timeout}") final Duration readTimeout) {
+
+    return PaymentPeerClient.pooled(PaymentPeerClient.PATH, secret, maxConnections,
+        connectTimeout, readTimeout);
+  }
+
+  @Bean
+  @Primary
+  public ShardedPaymentStore shardedPaymentStore(
+      @Value("${payments.cluster.self}") final String self,
+      @Value("${payments.cluster.nodes}") final List<String> nodes,
+      @Value("${payments.cluster.replication-factor}") final int replicationFactor,
+      @Value("${payments.cluster.virtual-nodes}") final int virtualNodes,
+      @Qualifier("paymentStore") final PaymentStore paymentStore,
+      final PaymentPeerClient paymentPeerClient,
+      @Qualifier("applicationTaskExecutor") final Executor peerExecutor) {
+
+    return new ShardedPaymentStore(self, paymentStore,
+        new ConsistentHashRing(nodes, virtualNodes), replicationFactor, paymentPeerClient,
+        peerExecutor);
+  }
+}
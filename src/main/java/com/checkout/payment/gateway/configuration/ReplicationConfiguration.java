@@ -0,0 +1,50 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.repository.PaymentJournal;
+import com.checkout.payment.gateway.repository.PaymentReplicator;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+// Write-behind replication to a peer node. The replicator follows the journal, so it is only
+// started once the payment store has replayed it.
+@Configuration
+@ConditionalOnProperty("payments.replication.enabled")
+public class ReplicationConfiguration {
+
+  @Bean
+  @DependsOn("paymentStore")
+  public PaymentReplicator paymentReplicator(
+      @Value("${payments.replication.peer}") final String peer,
+      @Value("${payments.internal.secret}") final String secret,
+      @Value("${payments.replication.directory}") final Path directory,
+      @Value("${payments.replication.backlog-capacity}") final int backlogCapacity,
+      @Value("${payments.replication.max-batch-size}") final int maxBatchSize,
+      @Value("${payments.replication.max-linger}") final Duration maxLinger,
+      @Value("${payments.replication.max-backpressure-wait}") final Duration maxBackpressureWait,
+      @Value("${payments.replication.retry-backoff}") final Duration retryBackoff,
+      @Value("${payments.replication.max-retry-backoff}") final Duration maxRetryBackoff,
+      @Value("${payments.replication.connect-timeout}") final Duration connectTimeout,
+      @Value("${payments.replication.read-timeout}") final Duration readTimeout,
+      @Value("${spring.threads.virtual.enabled}") final boolean virtualThreads,
+      final ObjectProvider<PaymentJournal> journal) {
+
+    PaymentJournal paymentJournal = journal.getIfAvailable();
+    if (paymentJournal == null) {
+      throw new IllegalStateException("Payment replication reads back from the journal; set "
+          + "payments.repository.journal.enabled=true");
+    }
+    // Batches go out one at a time, so a single connection is all the sender uses
+    PaymentPeerClient client = PaymentPeerClient.pooled(PaymentPeerClient.REPLICATION_PATH,
+        secret, 1, connectTimeout, readTimeout);
+    return new PaymentReplicator(paymentJournal, client, peer, directory, backlogCapacity,
+        maxBatchSize, maxLinger, maxBackpressureWait, retryBackoff, maxRetryBackoff,
+        virtualThreads);
+  }
+}
@@ -0,0 +1,90 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.enums.JournalFsyncPolicy;
+import com.checkout.payment.gateway.enums.PaymentStoreType;
+import com.checkout.payment.gateway.repository.InMemoryPaymentStore;
+import com.checkout.payment.gateway.repository.JournaledPaymentStore;
+import com.checkout.payment.gateway.repository.OffHeapPaymentStore;
+import com.checkout.payment.gateway.repository.PaymentIdBloomFilter;
+import com.checkout.payment.gateway.repository.PaymentIndex;
+import com.checkout.payment.gateway.repository.PaymentJournal;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.checkout.payment.gateway.repository.SortedSegmentPaymentStore;
+import com.checkout.payment.gateway.repository.TieredPaymentStore;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RepositoryConfiguration {
+
+  @Bean
+  @ConditionalOnProperty("payments.repository.journal.enabled")
+  public PaymentJournal paymentJournal(
+      @Value("${payments.repository.journal.directory}") final Path directory,
+      @Value("${payments.repository.journal.segment-size}") final int segmentSize,
+      @Value("${payments.repository.journal.fsync-policy}") final JournalFsyncPolicy fsyncPolicy,
+      @Value("${payments.repository.journal.fsync-interval}") final Duration fsyncInterval,
+      @Value("${payments.repository.journal.group-commit.ring-capacity}") final int ringCapacity,
+      @Value("${payments.repository.journal.group-commit.max-batch-size}") final int maxBatchSize,
+      @Value("${payments.repository.journal.group-commit.max-linger}") final Duration maxLinger,
+      @Value("${spring.threads.virtual.enabled}") final boolean virtualThreads) {
+
+    return new PaymentJournal(directory, segmentSize, fsyncPolicy, fsyncInterval, ringCapacity,
+        maxBatchSize, maxLinger, virtualThreads);
+  }
+
+  @Bean
+  public PaymentStore paymentStore(
+      @Value("${payments.repository.store}") final PaymentStoreType storeType,
+      @Value("${payments.repository.off-heap.initial-capacity}") final int initialCapacity,
+      @Value("${payments.repository.tiered.hot-capacity}") final long hotCapacity,
+      @Value("${payments.repository.tiered.directory}") final Path segmentDirectory,
+      @Value("${payments.repository.tiered.memtable-capacity}") final int memtableCapacity,
+      @Value("${payments.repository.tiered.max-segments}") final int maxSegments,
+      @Value("${payments.repository.tiered.index-interval}") final int indexInterval,
+      @Value("${payments.repository.journal.compaction-interval}") final Duration compactionPeriod,
+      @Value("${payments.repository.journal.compaction-min-garbage-ratio}")
+      final double minGarbage,
+      @Value("${spring.threads.virtual.enabled}") final boolean virtualThreads,
+      final ObjectProvider<PaymentJournal> journal) {
+
+    PaymentStore store = switch (storeType) {
+      case IN_MEMORY -> new InMemoryPaymentStore();
+      case OFF_HEAP -> new OffHeapPaymentStore(initialCapacity);
+      case TIERED -> new TieredPaymentStore(hotCapacity, new SortedSegmentPaymentStore(
+          segmentDirectory, memtableCapacity, maxSegments, indexInterval, virtualThreads));
+    };
+
+    PaymentJournal paymentJournal = journal.getIfAvailable();
+    if (paymentJournal == null) {
+      return store;
+    }
+    return new JournaledPaymentStore(store, paymentJournal, compactionPeriod, minGarbage);
+  }
+
+  // In sharded mode payments also arrive from other nodes, which this filter would never see
+  @Bean
+  @ConditionalOnExpression("${payments.repository.bloom-filter.enabled}"
+      + " && !${payments.cluster.enabled}")
+  public PaymentIdBloomFilter paymentIdBloomFilter(
+      @Value("${payments.repository.bloom-filter.expected-payments}") final long expectedPayments,
+      @Value("${payments.repository.bloom-filter.false-positive-rate}")
+      final double falsePositiveRate) {
+
+    return new PaymentIdBloomFilter(expectedPayments, falsePositiveRate);
+  }
+
+  @Bean
+  @ConditionalOnProperty("payments.repository.index.enabled")
+  public PaymentIndex paymentIndex(
+      @Value("${payments.query.max-scanned}") final int maxScanned) {
+
+    return new PaymentIndex(maxScanned);
+  }
+}
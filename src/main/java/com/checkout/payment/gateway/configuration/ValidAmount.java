@@ -0,0 +1,22 @@
+package com.checkout.payment.gateway.configuration;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Custom validator checking the amount is positive and within the limit of its currency:
+@Documented
+@Constraint(validatedBy = AmountValidator.class)
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidAmount {
+  String message() default "Amount must be positive and within the limit for the currency";
+
+  Class<?>[] groups() default {};
+
+  Class<? extends Payload>[] payload() default {};
+}
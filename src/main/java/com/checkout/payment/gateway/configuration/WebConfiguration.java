@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.controller.PeerSecretInterceptor;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentTotalTimingInterceptor;
+import com.checkout.payment.gateway.metrics.TimedValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+  private final PaymentMetrics paymentMetrics;
+  private final LocalValidatorFactoryBean validator;
+  private final String internalSecret;
+
+  public WebConfiguration(final PaymentMetrics paymentMetrics,
+      final LocalValidatorFactoryBean validator,
+      @Value("${payments.internal.secret}") final String internalSecret) {
+
+    this.paymentMetrics = paymentMetrics;
+    this.validator = validator;
+    this.internalSecret = internalSecret;
+  }
+
+  @Override
+  public Validator getValidator() {
+    return new TimedValidator(validator, paymentMetrics);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new PaymentTotalTimingInterceptor(paymentMetrics))
+        .addPathPatterns("/payment");
+    registry.addInterceptor(new PeerSecretInterceptor(internalSecret))
+        .addPathPatterns(PaymentPeerClient.PATH + "/**",
+            PaymentPeerClient.REPLICATION_PATH + "/**");
+  }
+}
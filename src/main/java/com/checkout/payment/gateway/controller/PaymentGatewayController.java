@@ -1,39 +1,263 @@
 package com.checkout.payment.gateway.controller;
 
+import com.checkout.payment.gateway.codec.PaymentJsonCodec;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BatchTooLargeException;
+import com.checkout.payment.gateway.exception.InvalidPaymentQueryException;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.ErrorResponse;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
 import com.checkout.payment.gateway.model.PaymentRequest;
 import com.checkout.payment.gateway.model.PaymentRequestDTO;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.PaymentBatchProcessor;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController("api")
 public class PaymentGatewayController {
 
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayController.class);
+
+  private static final ErrorResponse PAYMENT_NOT_FOUND = new ErrorResponse("Page not found");
+
   private final PaymentGatewayService paymentGatewayService;
+  private final PaymentBatchProcessor paymentBatchProcessor;
+  private final ObjectReader batchReader;
+  private final JsonFactory jsonFactory;
+  private final Validator validator;
+  private final int maxBatchSize;
+  private final Duration batchTimeout;
+  private final int maxLookupSize;
+  private final int defaultQueryLimit;
+  private final int maxQueryLimit;
+
+  public PaymentGatewayController(final PaymentGatewayService paymentGatewayService,
+      final PaymentBatchProcessor paymentBatchProcessor, final ObjectMapper objectMapper,
+      final Validator validator,
+      @Value("${payments.batch.max-size}") final int maxBatchSize,
+      @Value("${payments.batch.timeout}") final Duration batchTimeout,
+      @Value("${payments.lookup.max-ids}") final int maxLookupSize,
+      @Value("${payments.query.default-limit}") final int defaultQueryLimit,
+      @Value("${payments.query.max-limit}") final int maxQueryLimit) {
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
     this.paymentGatewayService = paymentGatewayService;
+    this.paymentBatchProcessor = paymentBatchProcessor;
+    this.batchReader = objectMapper.readerFor(PaymentRequest.class);
+    this.jsonFactory = objectMapper.getFactory();
+    this.validator = validator;
+    this.maxBatchSize = maxBatchSize;
+    this.batchTimeout = batchTimeout;
+    this.maxLookupSize = maxLookupSize;
+    this.defaultQueryLimit = defaultQueryLimit;
+    this.maxQueryLimit = maxQueryLimit;
   }
 
+  // An unknown ID is answered directly, without going through an exception and its handler
   @GetMapping("/payment/{id}")
-  public ResponseEntity<PostPaymentResponse> getPostPaymentEventById(@PathVariable UUID id) {
-    return new ResponseEntity<>(paymentGatewayService.getPaymentById(id), HttpStatus.OK);
+  public ResponseEntity<?> getPostPaymentEventById(@PathVariable UUID id) {
+    return paymentGatewayService.findPaymentById(id)
+        .<ResponseEntity<?>>map(payment -> new ResponseEntity<>(payment, HttpStatus.OK))
+        .orElseGet(() -> new ResponseEntity<>(PAYMENT_NOT_FOUND, HttpStatus.NOT_FOUND));
+  }
+
+  // Lists stored payments newest first, optionally filtered by status, currency, card last four
+  // and a creation time range [from, to). Pass the nextCursor of a page to get the one after it.
+  @GetMapping("/payments")
+  public ResponseEntity<PaymentPage> findPayments(
+      @RequestParam(required = false) final String status,
+      @RequestParam(required = false) final String currency,
+      @RequestParam(required = false) final Integer cardNumberLastFour,
+      @RequestParam(required = false) final Instant from,
+      @RequestParam(required = false) final Instant to,
+      @RequestParam(required = false) final String cursor,
+      @RequestParam(required = false) final Integer limit) {
+
+    PaymentStatus paymentStatus = null;
+    if (status != null) {
+      paymentStatus = PaymentStatus.fromName(status);
+      if (paymentStatus == null) {
+        throw new InvalidPaymentQueryException("Unknown payment status: " + status);
+      }
+    }
+    if (cardNumberLastFour != null && (cardNumberLastFour < 0 || cardNumberLastFour > 9999)) {
+      throw new InvalidPaymentQueryException("cardNumberLastFour must be between 0 and 9999");
+    }
+    int pageSize = limit == null ? defaultQueryLimit : limit;
+    if (pageSize < 1 || pageSize > maxQueryLimit) {
+      throw new InvalidPaymentQueryException("limit must be between 1 and " + maxQueryLimit);
+    }
+
+    PaymentQuery query = new PaymentQuery(paymentStatus,
+        currency == null ? null : currency.toUpperCase(Locale.ROOT), cardNumberLastFour, from, to,
+        cursor, pageSize);
+    return new ResponseEntity<>(paymentGatewayService.findPayments(query), HttpStatus.OK);
+  }
+
+  // Takes a JSON array of payment IDs and answers them all in one repository pass, as NDJSON in
+  // request order. Unknown IDs come back with "found":false rather than as a 404, and each line is
+  // written as soon as the repository hands it over instead of buffering the whole response.
+  @PostMapping(value = "/payments/lookup", consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> lookupPayments(
+      @RequestBody final List<UUID> ids) {
+
+    if (ids.size() > maxLookupSize) {
+      throw new BatchTooLargeException("A lookup may contain at most " + maxLookupSize + " IDs");
+    }
+    if (ids.contains(null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Payment IDs must not be null");
+    }
+
+    StreamingResponseBody body = outputStream -> {
+      try (JsonGenerator generator =
+          jsonFactory.createGenerator(StreamUtils.nonClosing(outputStream))) {
+        // Lines are separated by the newline written after each entry, not by Jackson's space
+        generator.setRootValueSeparator(null);
+        paymentGatewayService.lookupPayments(ids, (id, payment) -> {
+          try {
+            PaymentJsonCodec.writePaymentLookup(generator, id, payment);
+            generator.writeRaw('\n');
+          } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+          }
+        });
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
   }
 
   @PostMapping("/payment")
-  public ResponseEntity<PostPaymentResponse> processPayment(
-      @Valid @RequestBody final PaymentRequest paymentRequest) {
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> processPayment(
+      @Valid @RequestBody final PaymentRequest paymentRequest,
+      @RequestHeader(value = "Idempotency-Key", required = false) final String idempotencyKey) {
+
+    // The servlet thread is released while the acquiring bank answers:
+    return paymentGatewayService.processPaymentAsync(toPaymentRequestDTO(paymentRequest),
+            idempotencyKey)
+        .thenApply(response -> new ResponseEntity<>(response, HttpStatus.CREATED));
+  }
 
-    // Convert PaymentRequest to PaymentRequestDTO (internal DTO object):
-    PaymentRequestDTO paymentRequestDTO = PaymentRequestDTO.builder()
+  // Accepts a JSON array or newline-delimited JSON. Every payment is validated up front; invalid
+  // ones are answered straight away as Rejected and the rest go to the bank concurrently. One
+  // NDJSON line per payment is streamed back as soon as that payment has been stored.
+  @PostMapping(value = "/payments/batch",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseBodyEmitter processPaymentBatch(final HttpServletRequest request)
+      throws IOException {
+
+    List<PaymentRequest> paymentRequests = readBatch(new ServletServerHttpRequest(request));
+
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout.toMillis());
+    List<PaymentBatchProcessor.Item> items = new ArrayList<>(paymentRequests.size());
+    for (int index = 0; index < paymentRequests.size(); index++) {
+      PaymentRequest paymentRequest = paymentRequests.get(index);
+      String violations = violations(paymentRequest);
+      if (violations == null) {
+        items.add(new PaymentBatchProcessor.Item(index, toPaymentRequestDTO(paymentRequest)));
+      } else {
+        send(emitter, BatchPaymentResult.rejected(index, "Invalid input data - " + violations));
+      }
+    }
+
+    paymentBatchProcessor.process(items, result -> send(emitter, result))
+        .whenComplete((ignored, failure) -> {
+          if (failure == null) {
+            emitter.complete();
+          } else {
+            emitter.completeWithError(failure);
+          }
+        });
+    return emitter;
+  }
+
+  private List<PaymentRequest> readBatch(final HttpInputMessage inputMessage) throws IOException {
+    List<PaymentRequest> paymentRequests = new ArrayList<>();
+    try (MappingIterator<PaymentRequest> values = batchReader.readValues(inputMessage.getBody())) {
+      while (values.hasNextValue()) {
+        if (paymentRequests.size() == maxBatchSize) {
+          throw new BatchTooLargeException(
+              "A batch may contain at most " + maxBatchSize + " payments");
+        }
+        paymentRequests.add(values.nextValue());
+      }
+    } catch (JsonProcessingException ex) {
+      throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(),
+          ex, inputMessage);
+    }
+    return paymentRequests;
+  }
+
+  // Same constraints @Valid applies to a single POST /payment; null when the payment is valid
+  private String violations(final PaymentRequest paymentRequest) {
+    if (paymentRequest == null) {
+      return "Payment must be provided";
+    }
+    Set<ConstraintViolation<PaymentRequest>> violations = validator.validate(paymentRequest);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return violations.stream()
+        .map(ConstraintViolation::getMessage)
+        .sorted()
+        .collect(Collectors.joining("; "));
+  }
+
+  private static void send(final ResponseBodyEmitter emitter, final BatchPaymentResult result) {
+    try {
+      emitter.send(result, MediaType.APPLICATION_JSON);
+      emitter.send("\n", MediaType.TEXT_PLAIN);
+    } catch (IOException ex) {
+      // The merchant hung up; its payments are still stored and can be looked up one by one
+      LOG.debug("Unable to stream batch result {}", result.index(), ex);
+    }
+  }
+
+  // Convert PaymentRequest to PaymentRequestDTO (internal DTO object):
+  static PaymentRequestDTO toPaymentRequestDTO(final PaymentRequest paymentRequest) {
+    return PaymentRequestDTO.builder()
         .cardNumber(paymentRequest.getCardNumber())
         .expiryMonth(paymentRequest.getExpiryDate().getExpiryMonth())
         .expiryYear(paymentRequest.getExpiryDate().getExpiryYear())
@@ -41,9 +265,5 @@ public class PaymentGatewayController {
         .amount(paymentRequest.getAmount())
         .cvv(paymentRequest.getCvv())
         .build();
-
-    PostPaymentResponse response = paymentGatewayService.processPayment(paymentRequestDTO);
-
-    return new ResponseEntity<>(response, HttpStatus.CREATED);
   }
 }
@@ -0,0 +1,45 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.ShardedPaymentStore;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+// Node-to-node endpoint of sharded mode: other gateway nodes store the payments this node owns
+// and read them back here. It only touches the local store, so a request is never forwarded again.
+// Stored payments go through the repository, so this node's index lists them.
+@RestController
+@ConditionalOnProperty("payments.cluster.enabled")
+public class PaymentReplicaController {
+
+  private final PaymentsRepository paymentsRepository;
+  private final ShardedPaymentStore shardedPaymentStore;
+
+  public PaymentReplicaController(final PaymentsRepository paymentsRepository,
+      final ShardedPaymentStore shardedPaymentStore) {
+
+    this.paymentsRepository = paymentsRepository;
+    this.shardedPaymentStore = shardedPaymentStore;
+  }
+
+  @PutMapping(value = PaymentPeerClient.PATH, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<Void> putReplicas(@RequestBody byte[] records) {
+    paymentsRepository.addOwned(records);
+    return ResponseEntity.noContent().build();
+  }
+
+  @GetMapping(value = PaymentPeerClient.PATH + "/{id}",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> getReplica(@PathVariable UUID id) {
+    byte[] record = shardedPaymentStore.getReplica(id);
+    return record == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(record);
+  }
+}
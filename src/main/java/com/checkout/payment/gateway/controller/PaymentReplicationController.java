@@ -0,0 +1,30 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+// Receiving end of write-behind replication: the peer node sends the payments it stored here, so
+// this node can answer GET /payment/{id} for them if the peer goes down.
+@RestController
+@ConditionalOnProperty("payments.replication.accept-replicas")
+public class PaymentReplicationController {
+
+  private final PaymentsRepository paymentsRepository;
+
+  public PaymentReplicationController(final PaymentsRepository paymentsRepository) {
+    this.paymentsRepository = paymentsRepository;
+  }
+
+  @PutMapping(value = PaymentPeerClient.REPLICATION_PATH,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<Void> putReplicas(@RequestBody byte[] records) {
+    paymentsRepository.addReplicas(records);
+    return ResponseEntity.noContent().build();
+  }
+}
@@ -0,0 +1,32 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Guards the node-to-node endpoints: a request must carry payments.internal.secret in the
+// PaymentPeerClient.SECRET_HEADER header. It runs before the handler reads the body, so an
+// unauthenticated request never reaches the store. Without a secret every request is refused.
+public class PeerSecretInterceptor implements HandlerInterceptor {
+
+  private final byte[] secret;
+
+  public PeerSecretInterceptor(final String secret) {
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    String presented = request.getHeader(PaymentPeerClient.SECRET_HEADER);
+    if (secret.length > 0 && presented != null
+        && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8))) {
+      return true;
+    }
+    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+    return false;
+  }
+}
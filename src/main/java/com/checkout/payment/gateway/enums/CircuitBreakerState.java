@@ -0,0 +1,10 @@
+package com.checkout.payment.gateway.enums;
+
+public enum CircuitBreakerState {
+  // Calls go through and their outcomes fill the sliding window
+  CLOSED,
+  // Calls are rejected without reaching the bank until the open duration has passed
+  OPEN,
+  // A limited number of probe calls decide whether to close again or re-open
+  HALF_OPEN
+}
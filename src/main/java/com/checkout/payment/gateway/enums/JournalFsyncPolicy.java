@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.enums;
+
+public enum JournalFsyncPolicy {
+  // Force every record to disk before the write returns
+  PER_WRITE,
+  // Force outstanding records on a fixed interval (group commit every N ms)
+  INTERVAL,
+  // Writers wait for a shared force of the whole batch of records queued alongside theirs
+  GROUP_COMMIT,
+  // Leave flushing to the operating system
+  NONE
+}
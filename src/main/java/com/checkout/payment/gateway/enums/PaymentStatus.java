@@ -17,4 +17,14 @@ public enum PaymentStatus {
   public String getName() {
     return this.name;
   }
+
+  // Accepts the JSON name or the constant, ignoring case; null when neither matches
+  public static PaymentStatus fromName(String name) {
+    for (PaymentStatus status : values()) {
+      if (status.name.equalsIgnoreCase(name) || status.name().equalsIgnoreCase(name)) {
+        return status;
+      }
+    }
+    return null;
+  }
 }
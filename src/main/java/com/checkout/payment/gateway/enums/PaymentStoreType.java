@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.enums;
+
+public enum PaymentStoreType {
+  IN_MEMORY,
+  OFF_HEAP,
+  TIERED
+}
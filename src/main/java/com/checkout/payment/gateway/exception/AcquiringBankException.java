@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway.exception;
+
+// The acquiring bank answered with an error status, or could not be reached at all (status 0)
+public class AcquiringBankException extends RuntimeException {
+
+  private final int statusCode;
+
+  public AcquiringBankException(int statusCode) {
+    super("Error processing payment");
+    this.statusCode = statusCode;
+  }
+
+  public AcquiringBankException(Throwable cause) {
+    super("Error processing payment", cause);
+    this.statusCode = 0;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  // Client errors are caused by the request and say nothing about the bank's health
+  public boolean isClientError() {
+    return statusCode >= 400 && statusCode < 500;
+  }
+}
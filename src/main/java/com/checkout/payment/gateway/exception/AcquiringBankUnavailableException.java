@@ -0,0 +1,10 @@
+package com.checkout.payment.gateway.exception;
+
+// Thrown without calling the acquiring bank when its circuit breaker or bulkhead rejects the call.
+// It is raised for every request while the bank is down, so it skips filling in a stack trace.
+public class AcquiringBankUnavailableException extends RuntimeException {
+
+  public AcquiringBankUnavailableException(String message) {
+    super(message, null, false, false);
+  }
+}
@@ -0,0 +1,9 @@
+package com.checkout.payment.gateway.exception;
+
+// A POST /payments/batch request held more payments than payments.batch.max-size allows
+public class BatchTooLargeException extends RuntimeException {
+
+  public BatchTooLargeException(String message) {
+    super(message);
+  }
+}
@@ -14,12 +14,71 @@ public class CommonExceptionHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(CommonExceptionHandler.class);
 
-  @ExceptionHandler(EventProcessingException.class)
-  public ResponseEntity<ErrorResponse> handleException(EventProcessingException ex) {
-    LOG.error("Exception happened", ex);
+  // Raised before the bank is called, so the merchant can safely retry later:
+  @ExceptionHandler(AcquiringBankUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleBankUnavailable(
+      final AcquiringBankUnavailableException exception) {
+    LOG.warn("Payment rejected without calling the acquiring bank: {}", exception.getMessage());
 
-    return new ResponseEntity<>(new ErrorResponse("Page not found"),
-        HttpStatus.NOT_FOUND);
+    return new ResponseEntity<>(new ErrorResponse("Acquiring bank unavailable"),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  // Retries are already exhausted here, so a bank that errors or cannot be reached is reported
+  // like an open circuit breaker. A client error means the gateway sent a bad request.
+  @ExceptionHandler(AcquiringBankException.class)
+  public ResponseEntity<ErrorResponse> handleBankError(final AcquiringBankException exception) {
+    if (exception.isClientError()) {
+      LOG.error("Acquiring bank refused the request with status {}", exception.getStatusCode());
+
+      return new ResponseEntity<>(new ErrorResponse("Error processing payment"),
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    LOG.warn("Acquiring bank failed with status {}: {}", exception.getStatusCode(),
+        exception.getCause() != null ? exception.getCause().toString() : exception.getMessage());
+
+    return new ResponseEntity<>(new ErrorResponse("Acquiring bank unavailable"),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(PaymentClusterUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleClusterUnavailable(
+      final PaymentClusterUnavailableException exception) {
+    LOG.warn("Payment storage unavailable: {}", exception.getMessage());
+
+    return new ResponseEntity<>(new ErrorResponse("Payment storage unavailable"),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(IdempotencyKeyReuseException.class)
+  public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuse(
+      final IdempotencyKeyReuseException exception) {
+
+    return new ResponseEntity<>(new ErrorResponse(exception.getMessage()),
+        HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  @ExceptionHandler(BatchTooLargeException.class)
+  public ResponseEntity<ErrorResponse> handleBatchTooLarge(final BatchTooLargeException exception) {
+
+    return new ResponseEntity<>(new ErrorResponse(exception.getMessage()),
+        HttpStatus.PAYLOAD_TOO_LARGE);
+  }
+
+  @ExceptionHandler(InvalidPaymentQueryException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidPaymentQuery(
+      final InvalidPaymentQueryException exception) {
+
+    return new ResponseEntity<>(new ErrorResponse(exception.getMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(PaymentQueriesDisabledException.class)
+  public ResponseEntity<ErrorResponse> handlePaymentQueriesDisabled(
+      final PaymentQueriesDisabledException exception) {
+
+    return new ResponseEntity<>(new ErrorResponse(exception.getMessage()),
+        HttpStatus.NOT_IMPLEMENTED);
   }
 
   @ExceptionHandler(exception = {MethodArgumentNotValidException.class})
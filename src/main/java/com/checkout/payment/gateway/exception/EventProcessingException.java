@@ -1,7 +0,0 @@
-package com.checkout.payment.gateway.exception;
-
-public class EventProcessingException extends RuntimeException{
-  public EventProcessingException(String message) {
-    super(message);
-  }
-}
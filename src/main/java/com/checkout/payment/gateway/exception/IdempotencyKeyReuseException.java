@@ -0,0 +1,9 @@
+package com.checkout.payment.gateway.exception;
+
+// The Idempotency-Key of a payment request was already used for a payment with different details
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+  public IdempotencyKeyReuseException(String message) {
+    super(message);
+  }
+}
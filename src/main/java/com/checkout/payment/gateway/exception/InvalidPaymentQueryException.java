@@ -0,0 +1,9 @@
+package com.checkout.payment.gateway.exception;
+
+// A GET /payments request with a filter, limit or cursor that cannot be used
+public class InvalidPaymentQueryException extends RuntimeException {
+
+  public InvalidPaymentQueryException(String message) {
+    super(message);
+  }
+}
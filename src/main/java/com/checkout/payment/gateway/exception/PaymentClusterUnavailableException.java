@@ -0,0 +1,10 @@
+package com.checkout.payment.gateway.exception;
+
+// Thrown when none of the nodes owning a payment could be reached, so the gateway can neither
+// store the payment nor say whether it exists.
+public class PaymentClusterUnavailableException extends RuntimeException {
+
+  public PaymentClusterUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,10 @@
+package com.checkout.payment.gateway.exception;
+
+// GET /payments on a gateway started without payments.repository.index.enabled, so there is no
+// index to answer it from
+public class PaymentQueriesDisabledException extends RuntimeException {
+
+  public PaymentQueriesDisabledException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,151 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.SupportedCurrency;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Latency of every stage of POST /payment and the outcome of every payment. Meters are looked up
+// once when the registry is bound, never per request: recording is a field read plus an array
+// lookup, so the hot path neither builds tags nor allocates. Until a registry is bound (unit
+// tests, benchmarks) every record call is a no-op.
+@Component
+public class PaymentMetrics implements MeterBinder {
+
+  private static final String OTHER_CURRENCY = "other";
+  private static final int MAX_STATUS_CODE = 600;
+
+  private final List<SupportedCurrency> currencies;
+
+  private volatile Meters meters;
+
+  public PaymentMetrics(@Value("${payments.metrics.currencies}") final List<String> currencies) {
+    this.currencies = currencies.stream().map(SupportedCurrency::of).toList();
+  }
+
+  public void recordParse(long nanos) {
+    Meters current = meters;
+    if (current != null) {
+      current.parse().record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordValidation(long nanos) {
+    Meters current = meters;
+    if (current != null) {
+      current.validation().record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordBankCall(long nanos) {
+    Meters current = meters;
+    if (current != null) {
+      current.bank().record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordRepositoryWrite(long nanos) {
+    Meters current = meters;
+    if (current != null) {
+      current.repositoryWrite().record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordTotal(long nanos) {
+    Meters current = meters;
+    if (current != null) {
+      current.total().record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordOutcome(PaymentStatus status, SupportedCurrency currency) {
+    Meters current = meters;
+    if (current != null) {
+      Counter[] byStatus = currency == null ? null : current.outcomes()[currency.numericCode()];
+      (byStatus == null ? current.otherOutcomes() : byStatus)[status.ordinal()].increment();
+    }
+  }
+
+  // 0 stands for an I/O error or timeout, where the bank never answered
+  public void recordBankError(int statusCode) {
+    Meters current = meters;
+    if (current == null) {
+      return;
+    }
+    int index = statusCode > 0 && statusCode < MAX_STATUS_CODE ? statusCode : 0;
+    Counter counter = current.bankErrors().get(index);
+    if (counter == null) {
+      // Registered once per status code; Micrometer hands back the same counter on a race
+      counter = Counter.builder("payments.bank.errors")
+          .description("Payments that failed because of the acquiring bank, by HTTP status")
+          .tag("status", index == 0 ? "io_error" : Integer.toString(index))
+          .register(current.registry());
+      current.bankErrors().set(index, counter);
+    }
+    counter.increment();
+  }
+
+  // GET /payment/{id} for an ID that is not stored
+  public void recordLookupMiss() {
+    Meters current = meters;
+    if (current != null) {
+      current.lookupMisses().increment();
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Counter[][] outcomes = new Counter[CurrencyRegistry.NUMERIC_CODES][];
+    for (SupportedCurrency currency : currencies) {
+      outcomes[currency.numericCode()] = outcomeCounters(registry, currency.code());
+    }
+    meters = new Meters(registry,
+        stageTimer(registry, "parse"),
+        stageTimer(registry, "validation"),
+        stageTimer(registry, "bank"),
+        stageTimer(registry, "repository_write"),
+        stageTimer(registry, "total"),
+        outcomes,
+        outcomeCounters(registry, OTHER_CURRENCY),
+        new AtomicReferenceArray<>(MAX_STATUS_CODE),
+        Counter.builder("payments.lookup.misses")
+            .description("GET /payment/{id} requests for an ID that is not stored")
+            .register(registry));
+  }
+
+  private static Timer stageTimer(MeterRegistry registry, String stage) {
+    return Timer.builder("payments.stage.duration")
+        .description("Time spent in one stage of processing POST /payment")
+        .tag("stage", stage)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  private static Counter[] outcomeCounters(MeterRegistry registry, String currency) {
+    PaymentStatus[] statuses = PaymentStatus.values();
+    Counter[] counters = new Counter[statuses.length];
+    for (PaymentStatus status : statuses) {
+      counters[status.ordinal()] = Counter.builder("payments.processed")
+          .description("Payments processed, by outcome and currency")
+          .tag("status", status.name().toLowerCase(Locale.ROOT))
+          .tag("currency", currency)
+          .register(registry);
+    }
+    return counters;
+  }
+
+  private record Meters(MeterRegistry registry, Timer parse, Timer validation, Timer bank,
+      Timer repositoryWrite, Timer total, Counter[][] outcomes,
+      Counter[] otherOutcomes, AtomicReferenceArray<Counter> bankErrors, Counter lookupMisses) {
+
+  }
+}
@@ -0,0 +1,58 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.model.PaymentRequest;
+import java.lang.reflect.Type;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+// Times reading and deserializing the POST /payment body, from the first byte read to the
+// finished PaymentRequest. The start is kept on the request attributes, so the input message
+// reaches the converter unwrapped.
+@ControllerAdvice
+public class PaymentRequestParseTimingAdvice extends RequestBodyAdviceAdapter {
+
+  private static final String PARSE_START =
+      PaymentRequestParseTimingAdvice.class.getName() + ".PARSE_START";
+
+  private final PaymentMetrics metrics;
+
+  public PaymentRequestParseTimingAdvice(final PaymentMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public boolean supports(MethodParameter methodParameter, Type targetType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return targetType == PaymentRequest.class;
+  }
+
+  @Override
+  public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter,
+      Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes != null) {
+      attributes.setAttribute(PARSE_START, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+    }
+    return inputMessage;
+  }
+
+  @Override
+  public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+      Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return body;
+    }
+    Object start = attributes.getAttribute(PARSE_START, RequestAttributes.SCOPE_REQUEST);
+    if (start instanceof Long startNanos) {
+      metrics.recordParse(System.nanoTime() - startNanos);
+      attributes.removeAttribute(PARSE_START, RequestAttributes.SCOPE_REQUEST);
+    }
+    return body;
+  }
+}
@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.metrics;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Times POST /payment end to end. The request is handled asynchronously, so the clock starts on
+// the initial dispatch and stops when the async dispatch that writes the response completes.
+public class PaymentTotalTimingInterceptor implements HandlerInterceptor {
+
+  private static final String START = PaymentTotalTimingInterceptor.class.getName() + ".start";
+
+  private final PaymentMetrics metrics;
+
+  public PaymentTotalTimingInterceptor(final PaymentMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    if (request.getDispatcherType() == DispatcherType.REQUEST) {
+      request.setAttribute(START, System.nanoTime());
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    if (request.getAttribute(START) instanceof Long start) {
+      metrics.recordTotal(System.nanoTime() - start);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.metrics;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+// Wraps the MVC validator so @Valid request bodies report the validation stage
+public class TimedValidator implements SmartValidator {
+
+  private final SmartValidator delegate;
+  private final PaymentMetrics metrics;
+
+  public TimedValidator(final SmartValidator delegate, final PaymentMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public boolean supports(Class<?> clazz) {
+    return delegate.supports(clazz);
+  }
+
+  @Override
+  public void validate(Object target, Errors errors) {
+    long start = System.nanoTime();
+    delegate.validate(target, errors);
+    metrics.recordValidation(System.nanoTime() - start);
+  }
+
+  @Override
+  public void validate(Object target, Errors errors, Object... validationHints) {
+    long start = System.nanoTime();
+    delegate.validate(target, errors, validationHints);
+    metrics.recordValidation(System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,24 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the POST /payments/batch response, for the item at the given position of the
+// request: the stored payment, or the reason it was not processed. Items that fail validation
+// are Rejected; items the bank could not process carry only an error.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchPaymentResult(int index, PaymentStatus status, PostPaymentResponse payment,
+                                 String error) {
+
+  public static BatchPaymentResult processed(int index, PostPaymentResponse payment) {
+    return new BatchPaymentResult(index, payment.getStatus(), payment, null);
+  }
+
+  public static BatchPaymentResult rejected(int index, String error) {
+    return new BatchPaymentResult(index, PaymentStatus.REJECTED, null, error);
+  }
+
+  public static BatchPaymentResult failed(int index, String error) {
+    return new BatchPaymentResult(index, null, null, error);
+  }
+}
@@ -0,0 +1,74 @@
+package com.checkout.payment.gateway.model;
+
+// The currencies the gateway supports, built once. Lookups are array reads: by ISO 4217 numeric
+// code directly, and by alphabetic code through a table indexed by its three letters, so request
+// binding, validation, metrics and storage never go through java.util.Currency.
+public final class CurrencyRegistry {
+
+  // ISO 4217 numeric codes have three digits
+  public static final int NUMERIC_CODES = 1000;
+
+  private static final int LETTERS = 26;
+
+  private static final SupportedCurrency[] BY_NUMERIC_CODE = new SupportedCurrency[NUMERIC_CODES];
+  private static final SupportedCurrency[] BY_CODE =
+      new SupportedCurrency[LETTERS * LETTERS * LETTERS];
+
+  static {
+    // Limits are in major units. Stored payments keep the amount as an int, so no limit may go
+    // past Integer.MAX_VALUE minor units.
+    register("GBP", 826, 2, 1_000_000);
+    register("EUR", 978, 2, 1_000_000);
+    register("USD", 840, 2, 1_000_000);
+    register("JPY", 392, 0, 100_000_000);
+  }
+
+  private CurrencyRegistry() {
+  }
+
+  public static SupportedCurrency byCode(final String code) {
+    if (code == null || code.length() != 3) {
+      return null;
+    }
+    int index = index(code.charAt(0), code.charAt(1), code.charAt(2));
+    return index < 0 ? null : BY_CODE[index];
+  }
+
+  // The code as a parser holds it, without copying it into a String
+  public static SupportedCurrency byCode(final char[] chars, final int offset, final int length) {
+    if (length != 3) {
+      return null;
+    }
+    int index = index(chars[offset], chars[offset + 1], chars[offset + 2]);
+    return index < 0 ? null : BY_CODE[index];
+  }
+
+  public static SupportedCurrency byNumericCode(final int numericCode) {
+    return numericCode > 0 && numericCode < BY_NUMERIC_CODE.length
+        ? BY_NUMERIC_CODE[numericCode] : null;
+  }
+
+  private static void register(String code, int numericCode, int minorUnits, long maxMajorUnits) {
+    long maxAmount = maxMajorUnits;
+    for (int i = 0; i < minorUnits; i++) {
+      maxAmount *= 10;
+    }
+    if (maxAmount > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Amount limit of " + code + " does not fit a stored payment");
+    }
+    SupportedCurrency currency = new SupportedCurrency(code, numericCode, minorUnits, maxAmount);
+    BY_NUMERIC_CODE[numericCode] = currency;
+    BY_CODE[index(code.charAt(0), code.charAt(1), code.charAt(2))] = currency;
+  }
+
+  private static int index(char first, char second, char third) {
+    if (!isUpperCaseLetter(first) || !isUpperCaseLetter(second) || !isUpperCaseLetter(third)) {
+      return -1;
+    }
+    return ((first - 'A') * LETTERS + (second - 'A')) * LETTERS + (third - 'A');
+  }
+
+  private static boolean isUpperCaseLetter(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+}
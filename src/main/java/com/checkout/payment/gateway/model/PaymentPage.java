@@ -0,0 +1,9 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.List;
+
+// One page of GET /payments, newest first; nextCursor is null on the last page. A page can come
+// back short, or empty, with a nextCursor when it stopped at the scan limit.
+public record PaymentPage(List<PostPaymentResponse> payments, String nextCursor) {
+
+}
@@ -0,0 +1,16 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.time.Instant;
+
+// Filters of GET /payments; null filters match everything. from is inclusive, to exclusive, and
+// cursor is the nextCursor of the previous page, or null for the first one.
+public record PaymentQuery(PaymentStatus status, String currency, Integer cardNumberLastFour,
+                           Instant from, Instant to, String cursor, int limit) {
+
+  public boolean matches(PostPaymentResponse payment) {
+    return (status == null || status == payment.getStatus())
+        && (currency == null || currency.equals(payment.getCurrency()))
+        && (cardNumberLastFour == null || cardNumberLastFour == payment.getCardNumberLastFour());
+  }
+}
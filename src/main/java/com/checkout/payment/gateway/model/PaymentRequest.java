@@ -1,15 +1,15 @@
 package com.checkout.payment.gateway.model;
 
+import com.checkout.payment.gateway.configuration.ValidAmount;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
-import java.math.BigInteger;
-import java.util.Currency;
 import lombok.Getter;
 
 @Getter
+@ValidAmount
 public class PaymentRequest {
 
   @JsonProperty("card_number")
@@ -22,10 +22,11 @@ public class PaymentRequest {
   private CardExpirationDate expiryDate;
 
   @NotNull(message = "Currency must be provided")
-  private Currency currency;
+  private SupportedCurrency currency;
 
+  // Minor units of the currency; JSON numbers that do not fit a long are rejected when binding
   @NotNull(message = "Amount must be provided")
-  private BigInteger amount;
+  private Long amount;
 
   @NotNull(message = "CVV number must be provided")
   @Pattern(regexp = "\\d{3,4}", message = "CVV number must contain only numeric characters and has length of 3 or 4 digits")
@@ -37,8 +38,8 @@ public class PaymentRequest {
       @JsonProperty("card_number") String cardNumber,
       @JsonProperty("expiry_month") Integer expiryMonth,
       @JsonProperty("expiry_year") Integer expiryYear,
-      @JsonProperty("currency") Currency currency,
-      @JsonProperty("amount") BigInteger amount,
+      @JsonProperty("currency") SupportedCurrency currency,
+      @JsonProperty("amount") Long amount,
       @JsonProperty("cvv") String cvv) {
     this.cardNumber = cardNumber;
     this.currency = currency;
@@ -1,6 +1,9 @@
 package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
 import java.util.UUID;
 import lombok.Builder;
 import lombok.Getter;
@@ -8,7 +11,10 @@ import lombok.Setter;
 
 @Setter
 @Getter
-public class PostPaymentResponse {
+public class PostPaymentResponse implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
 
   private UUID id;
   private PaymentStatus status;
@@ -17,6 +23,8 @@ public class PostPaymentResponse {
   private int expiryYear;
   private String currency;
   private int amount;
+  // Millisecond precision, which is what the payment journal keeps
+  private Instant createdAt;
 
 
   @Override
@@ -29,6 +37,7 @@ public class PostPaymentResponse {
         ", expiryYear=" + expiryYear +
         ", currency='" + currency + '\'' +
         ", amount=" + amount +
+        ", createdAt=" + createdAt +
         '}';
   }
 }
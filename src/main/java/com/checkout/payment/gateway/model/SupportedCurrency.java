@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+// A currency the gateway takes payments in. Amounts are whole minor units (pence, cents, yen),
+// and maxAmount is the largest single payment accepted, in those units.
+public record SupportedCurrency(String code, int numericCode, int minorUnits, long maxAmount) {
+
+  // Binds the ISO 4217 code in a request; anything the gateway does not support is rejected
+  @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+  public static SupportedCurrency of(final String code) {
+    SupportedCurrency currency = CurrencyRegistry.byCode(code);
+    if (currency == null) {
+      throw new IllegalArgumentException("Unsupported currency: " + code);
+    }
+    return currency;
+  }
+
+  public boolean isValidAmount(long amount) {
+    return amount > 0 && amount <= maxAmount;
+  }
+
+  @JsonValue
+  @Override
+  public String toString() {
+    return code;
+  }
+}
@@ -0,0 +1,84 @@
+package com.checkout.payment.gateway.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+// Maps payment IDs to the gateway nodes that own them. Each node is placed on a 64-bit ring at
+// virtualNodes points; the owners of an ID are the first distinct nodes found walking clockwise
+// from the ID's hash. Every node must be given the same node list to agree on the owners, and
+// adding a node only moves the IDs that now land on one of its points.
+public final class ConsistentHashRing {
+
+  private final List<String> nodes;
+  private final long[] tokens;
+  private final int[] tokenNodes;
+
+  public ConsistentHashRing(final List<String> nodes, final int virtualNodes) {
+    if (nodes.isEmpty() || virtualNodes < 1) {
+      throw new IllegalArgumentException("A hash ring needs nodes and virtual nodes");
+    }
+    this.nodes = List.copyOf(nodes);
+
+    long[][] points = new long[nodes.size() * virtualNodes][];
+    for (int node = 0; node < nodes.size(); node++) {
+      for (int i = 0; i < virtualNodes; i++) {
+        points[node * virtualNodes + i] = new long[]{hash(nodes.get(node) + "#" + i), node};
+      }
+    }
+    Arrays.sort(points, (first, second) -> Long.compare(first[0], second[0]));
+    this.tokens = new long[points.length];
+    this.tokenNodes = new int[points.length];
+    for (int i = 0; i < points.length; i++) {
+      tokens[i] = points[i][0];
+      tokenNodes[i] = (int) points[i][1];
+    }
+  }
+
+  // The first node is the primary owner; there are fewer than count when the ring is smaller
+  public List<String> owners(UUID id, int count) {
+    int wanted = Math.min(count, nodes.size());
+    List<String> owners = new ArrayList<>(wanted);
+    int start = Arrays.binarySearch(tokens, hash(id));
+    if (start < 0) {
+      start = -start - 1;
+    }
+    for (int i = 0; owners.size() < wanted; i++) {
+      String node = nodes.get(tokenNodes[(start + i) % tokens.length]);
+      if (!owners.contains(node)) {
+        owners.add(node);
+      }
+    }
+    return owners;
+  }
+
+  public List<String> nodes() {
+    return nodes;
+  }
+
+  private static long hash(UUID id) {
+    return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+  }
+
+  // FNV-1a, then mixed so nearby node names spread over the whole ring
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,53 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class InMemoryPaymentStore implements PaymentStore, MeterBinder {
+
+  // Reads are lock-free; a put is atomic per entry, so concurrent writers never lose updates:
+  private final ConcurrentHashMap<UUID, PostPaymentResponse> payments = new ConcurrentHashMap<>();
+
+  private final LongAdder overwrites = new LongAdder();
+
+  @Override
+  public void put(PostPaymentResponse payment) {
+    if (payments.put(payment.getId(), payment) != null) {
+      overwrites.increment();
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    return payments.get(id);
+  }
+
+  @Override
+  public long size() {
+    return payments.mappingCount();
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    payments.values().forEach(action);
+  }
+
+  public long overwrites() {
+    return overwrites.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("payments.repository.writes.overwritten", this,
+            InMemoryPaymentStore::overwrites)
+        .description("Writes that replaced an existing payment with the same ID")
+        .register(registry);
+  }
+
+}
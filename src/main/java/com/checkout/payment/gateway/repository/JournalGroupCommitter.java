@@ -0,0 +1,181 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Group commit for the journal: request threads enqueue their records and wait on a future, while
+// a single writer thread appends whatever has queued up, forces the journal once for the whole
+// batch and then completes every caller's future. One fsync is shared by up to maxBatchSize writes.
+class JournalGroupCommitter implements MeterBinder, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JournalGroupCommitter.class);
+
+  private static final long LINGER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final PaymentJournal journal;
+  private final MpscRing<PendingAppend> ring;
+  private final int maxBatchSize;
+  private final Duration maxLinger;
+  private final Thread writer;
+
+  private volatile boolean running = true;
+  private volatile DistributionSummary batchSizes;
+  private volatile Timer lingerTimes;
+
+  JournalGroupCommitter(final PaymentJournal journal, final int ringCapacity,
+      final int maxBatchSize, final Duration maxLinger, final ThreadFactory threadFactory) {
+
+    this.journal = journal;
+    this.ring = new MpscRing<>(ringCapacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxLinger = maxLinger;
+    this.writer = threadFactory.newThread(this::run);
+    this.writer.start();
+  }
+
+  CompletableFuture<Long> submit(PostPaymentResponse payment) {
+    if (!running) {
+      throw new IllegalStateException("Payment journal is closed");
+    }
+    PendingAppend pending = new PendingAppend(payment, new CompletableFuture<>());
+    // A full ring means the disk is behind - hold the caller back until there is room:
+    while (!ring.offer(pending)) {
+      if (!running) {
+        throw new IllegalStateException("Payment journal is closed");
+      }
+      LockSupport.parkNanos(LINGER_PARK_NANOS);
+    }
+    LockSupport.unpark(writer);
+    return pending.future();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    lingerTimes = Timer.builder("payments.journal.group-commit.linger")
+        .description("Time from the first record of a batch arriving to the batch being flushed")
+        .publishPercentileHistogram()
+        .register(registry);
+    batchSizes = DistributionSummary.builder("payments.journal.group-commit.batch.size")
+        .description("Records made durable by a single journal force")
+        .publishPercentileHistogram()
+        .register(registry);
+    Gauge.builder("payments.journal.group-commit.max-batch-size", () -> maxBatchSize)
+        .description("Configured maximum number of records per group commit")
+        .register(registry);
+    Gauge.builder("payments.journal.group-commit.max-linger", maxLinger,
+            linger -> linger.toNanos() / 1_000_000.0)
+        .description("Configured maximum time a batch waits to fill up")
+        .baseUnit("milliseconds")
+        .register(registry);
+    Gauge.builder("payments.journal.group-commit.pending", ring, MpscRing::size)
+        .description("Records waiting in the group commit ring")
+        .register(registry);
+  }
+
+  // Flushes everything already queued, then stops the writer thread
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+    long maxLingerNanos = maxLinger.toNanos();
+
+    while (running || ring.size() > 0) {
+      PendingAppend first = ring.poll();
+      if (first == null) {
+        // submit and close both unpark the writer
+        if (running) {
+          LockSupport.park(this);
+        }
+        continue;
+      }
+
+      long lingerStart = System.nanoTime();
+      batch.add(first);
+      while (batch.size() < maxBatchSize) {
+        PendingAppend next = ring.poll();
+        if (next != null) {
+          batch.add(next);
+          continue;
+        }
+        long remaining = lingerStart + maxLingerNanos - System.nanoTime();
+        if (remaining <= 0 || !running) {
+          break;
+        }
+        LockSupport.parkNanos(this, Math.min(remaining, LINGER_PARK_NANOS));
+      }
+
+      flush(batch, System.nanoTime() - lingerStart);
+      batch.clear();
+    }
+  }
+
+  private void flush(List<PendingAppend> batch, long lingerNanos) {
+    long[] sequences = new long[batch.size()];
+    int appended = 0;
+    RuntimeException failure = null;
+    try {
+      for (; appended < batch.size(); appended++) {
+        sequences[appended] = journal.appendWithoutForce(batch.get(appended).payment());
+      }
+    } catch (RuntimeException ex) {
+      failure = ex;
+    }
+    // Records appended before a failure are in the journal, and possibly replicated already: they
+    // come back on replay, so their callers are completed once they are forced
+    if (appended > 0) {
+      try {
+        journal.force();
+      } catch (RuntimeException ex) {
+        LOG.error("Group commit of {} payments failed", batch.size(), ex);
+        fail(batch, 0, ex);
+        return;
+      }
+    }
+    if (failure != null) {
+      LOG.error("Group commit failed after {} of {} payments", appended, batch.size(), failure);
+      fail(batch, appended, failure);
+    }
+
+    for (int i = 0; i < appended; i++) {
+      batch.get(i).future().complete(sequences[i]);
+    }
+
+    DistributionSummary sizes = batchSizes;
+    if (sizes != null && appended > 0) {
+      sizes.record(appended);
+      lingerTimes.record(lingerNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static void fail(List<PendingAppend> batch, int from, RuntimeException ex) {
+    for (PendingAppend pending : batch.subList(from, batch.size())) {
+      pending.future().completeExceptionally(ex);
+    }
+  }
+
+  private record PendingAppend(PostPaymentResponse payment, CompletableFuture<Long> future) {
+
+  }
+}
@@ -0,0 +1,130 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Persistence mode: every payment is appended to the journal before it reaches the wrapped store,
+// and the wrapped store is rebuilt from the journal on startup.
+public class JournaledPaymentStore implements PaymentStore, MeterBinder, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JournaledPaymentStore.class);
+
+  private static final int LOCK_STRIPES = 1024;
+
+  private final PaymentStore delegate;
+  private final PaymentJournal journal;
+
+  // Writes of the same payment ID must reach the journal and the store in the same order:
+  private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+  public JournaledPaymentStore(final PaymentStore delegate, final PaymentJournal journal,
+      final Duration compactionInterval, final double compactionMinGarbageRatio) {
+
+    this.delegate = delegate;
+    this.journal = journal;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+
+    long start = System.nanoTime();
+    long replayed = journal.open(delegate::put);
+    LOG.info("Replayed {} payments from the journal in {} ms", replayed,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    journal.scheduleCompaction(compactionInterval, compactionMinGarbageRatio, this::isLive);
+  }
+
+  @Override
+  public void put(PostPaymentResponse payment) {
+    ReentrantLock stripe = stripes[stripe(payment.getId())];
+    stripe.lock();
+    try {
+      journal.append(payment);
+      delegate.put(payment);
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  // The stripes of the whole batch are taken in ascending order, so concurrent batches cannot
+  // deadlock, and the batch reaches the journal with a single append call
+  @Override
+  public void putAll(List<PostPaymentResponse> payments) {
+    BitSet held = new BitSet(LOCK_STRIPES);
+    for (PostPaymentResponse payment : payments) {
+      held.set(stripe(payment.getId()));
+    }
+    for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+      stripes[i].lock();
+    }
+    try {
+      journal.appendAll(payments);
+      for (PostPaymentResponse payment : payments) {
+        delegate.put(payment);
+      }
+    } finally {
+      for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+        stripes[i].unlock();
+      }
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    return delegate.get(id);
+  }
+
+  @Override
+  public PostPaymentResponse peek(UUID id) {
+    return delegate.peek(id);
+  }
+
+  @Override
+  public void getAll(List<UUID> ids, BiConsumer<UUID, PostPaymentResponse> results) {
+    delegate.getAll(ids, results);
+  }
+
+  @Override
+  public long size() {
+    return delegate.size();
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    delegate.forEach(action);
+  }
+
+  // The journal is a bean of its own and binds its meters itself
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (delegate instanceof MeterBinder binder) {
+      binder.bindTo(registry);
+    }
+  }
+
+  @Override
+  public void close() {
+    journal.close();
+  }
+
+  private static int stripe(UUID id) {
+    return (id.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+  }
+
+  // A journal record is live while it still matches what the store holds for its ID. Compaction
+  // visits every record, so the lookup must not promote or count them as reads.
+  private boolean isLive(PostPaymentResponse record) {
+    return PaymentRecordCodec.sameRecord(delegate.peek(record.getId()), record);
+  }
+}
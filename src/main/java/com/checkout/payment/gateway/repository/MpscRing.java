@@ -0,0 +1,74 @@
+package com.checkout.payment.gateway.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free multi-producer/single-consumer ring. Every slot carries a sequence number:
+// producers claim a slot by CAS on the tail and publish it by advancing the slot's sequence; the
+// single consumer only reads slots whose sequence says they have been published.
+final class MpscRing<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+
+  // Written by the consumer only, volatile so size() can be read from other threads
+  private volatile long head;
+
+  MpscRing(int requestedCapacity) {
+    this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  // Returns false when the ring is full
+  boolean offer(E element) {
+    long position;
+    while (true) {
+      position = tail.get();
+      long available = sequences.get((int) position & mask) - position;
+      if (available == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+      } else if (available < 0) {
+        return false;
+      }
+    }
+
+    int index = (int) position & mask;
+    elements.set(index, element);
+    sequences.set(index, position + 1);
+    return true;
+  }
+
+  // Returns null when no published element is waiting; consumer thread only
+  E poll() {
+    long position = head;
+    int index = (int) position & mask;
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+
+    E element = elements.get(index);
+    elements.set(index, null);
+    sequences.set(index, position + capacity);
+    head = position + 1;
+    return element;
+  }
+
+  int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  int capacity() {
+    return capacity;
+  }
+}
@@ -0,0 +1,186 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.EMPTY;
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.LSB_OFFSET;
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.MSB_OFFSET;
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.STATUS_OFFSET;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+// Open-addressing table of fixed-width records kept outside the Java heap. Each slot is a
+// PaymentRecordCodec record - the two halves of the payment ID followed by the payment itself - so
+// a stored payment costs 40 bytes of native memory and no heap objects at all:
+public class OffHeapPaymentStore implements PaymentStore, MeterBinder {
+
+  private static final long SLOT_SIZE = PaymentRecordCodec.RECORD_SIZE;
+
+  private final StampedLock lock = new StampedLock();
+
+  // The probe mask is always derived from the table itself, so an optimistic reader can never
+  // pair a new mask with an old table:
+  private MemorySegment table;
+  private volatile long size;
+
+  public OffHeapPaymentStore(final int initialCapacity) {
+    this.table = allocate(Long.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+  }
+
+  @Override
+  public void put(PostPaymentResponse payment) {
+    long msb = payment.getId().getMostSignificantBits();
+    long lsb = payment.getId().getLeastSignificantBits();
+
+    long stamp = lock.writeLock();
+    try {
+      // Keep the load factor under 0.5 so probe sequences stay short:
+      if ((size + 1) * 2 > capacity()) {
+        resize();
+      }
+
+      long offset = findSlot(table, msb, lsb) * SLOT_SIZE;
+      if (table.get(ValueLayout.JAVA_BYTE, offset + STATUS_OFFSET) == EMPTY) {
+        size++;
+      }
+      write(table, offset, payment);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+
+    // Readers do not block each other or the writer; a read that overlapped a write is retried
+    // under the read lock:
+    long stamp = lock.tryOptimisticRead();
+    PostPaymentResponse payment = read(table, msb, lsb);
+    if (lock.validate(stamp)) {
+      return payment;
+    }
+
+    stamp = lock.readLock();
+    try {
+      return read(table, msb, lsb);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  // Holds the read lock for the whole walk, so writers wait until it is done
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    long stamp = lock.readLock();
+    try {
+      long capacity = capacity();
+      for (long slot = 0; slot < capacity; slot++) {
+        long offset = slot * SLOT_SIZE;
+        if (table.get(ValueLayout.JAVA_BYTE, offset + STATUS_OFFSET) != EMPTY) {
+          action.accept(PaymentRecordCodec.decode(table, offset));
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public long capacity() {
+    return table.byteSize() / SLOT_SIZE;
+  }
+
+  public long offHeapBytes() {
+    return table.byteSize();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.repository.off-heap.bytes", this, OffHeapPaymentStore::offHeapBytes)
+        .description("Native memory reserved by the off-heap payment table")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("payments.repository.off-heap.load", this,
+            store -> (double) store.size() / store.capacity())
+        .description("Fraction of off-heap slots in use")
+        .register(registry);
+  }
+
+  private static PostPaymentResponse read(MemorySegment table, long msb, long lsb) {
+    long offset = findSlot(table, msb, lsb) * SLOT_SIZE;
+    if (table.get(ValueLayout.JAVA_BYTE, offset + STATUS_OFFSET) == EMPTY) {
+      return null;
+    }
+    return PaymentRecordCodec.decode(table, offset);
+  }
+
+  // Straight into the slot, in the native order the probe loop's ValueLayout.JAVA_LONG reads use
+  private static void write(MemorySegment table, long offset, PostPaymentResponse payment) {
+    PaymentRecordCodec.encode(payment, table, offset);
+  }
+
+  // Linear probing: returns the slot holding this key, or the empty slot where it belongs
+  private static long findSlot(MemorySegment table, long msb, long lsb) {
+    long mask = table.byteSize() / SLOT_SIZE - 1;
+    long slot = hash(msb, lsb) & mask;
+    for (long probes = 0; probes <= mask; probes++) {
+      long offset = slot * SLOT_SIZE;
+      if (table.get(ValueLayout.JAVA_BYTE, offset + STATUS_OFFSET) == EMPTY
+          || (table.get(ValueLayout.JAVA_LONG, offset + MSB_OFFSET) == msb
+          && table.get(ValueLayout.JAVA_LONG, offset + LSB_OFFSET) == lsb)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    // Only reachable by an optimistic reader racing a resize; the caller re-validates
+    return 0;
+  }
+
+  private void resize() {
+    MemorySegment oldTable = table;
+    long oldCapacity = capacity();
+    MemorySegment newTable = allocate(oldCapacity << 1);
+
+    for (long slot = 0; slot < oldCapacity; slot++) {
+      long offset = slot * SLOT_SIZE;
+      if (oldTable.get(ValueLayout.JAVA_BYTE, offset + STATUS_OFFSET) == EMPTY) {
+        continue;
+      }
+      long msb = oldTable.get(ValueLayout.JAVA_LONG, offset + MSB_OFFSET);
+      long lsb = oldTable.get(ValueLayout.JAVA_LONG, offset + LSB_OFFSET);
+      long target = findSlot(newTable, msb, lsb) * SLOT_SIZE;
+      MemorySegment.copy(oldTable, offset, newTable, target, SLOT_SIZE);
+    }
+
+    table = newTable;
+  }
+
+  // Tables are released by the GC once no reader can still hold a reference to them:
+  private static MemorySegment allocate(long capacity) {
+    MemorySegment segment = Arena.ofAuto().allocate(capacity * SLOT_SIZE, Long.BYTES);
+    segment.fill((byte) 0);
+    return segment;
+  }
+
+  private static long hash(long msb, long lsb) {
+    long h = msb ^ Long.rotateLeft(lsb, 32);
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+}
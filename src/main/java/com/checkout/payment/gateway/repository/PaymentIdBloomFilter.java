@@ -0,0 +1,230 @@
+package com.checkout.payment.gateway.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Scalable Bloom filter of stored payment IDs, so a lookup for an ID that was never stored is
+// answered without touching the store. It starts with one stage sized for expectedPayments; when
+// a stage is full, a stage twice as large with half the false-positive rate is added, so the
+// overall rate stays under the configured one however many payments arrive. Bits are only ever
+// set, with atomic ORs, so adds and lookups never lock; only growing takes a lock.
+public class PaymentIdBloomFilter implements MeterBinder {
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  // Each new stage gets this fraction of the previous stage's false-positive rate
+  private static final double TIGHTENING_RATIO = 0.5;
+
+  private final double falsePositiveRate;
+  private final ReentrantLock growLock = new ReentrantLock();
+
+  private volatile Stage[] stages;
+
+  private final LongAdder definiteMisses = new LongAdder();
+  private final LongAdder possibleHits = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+
+  public PaymentIdBloomFilter(final long expectedPayments, final double falsePositiveRate) {
+    if (expectedPayments < 1) {
+      throw new IllegalArgumentException("Expected payments must be positive: "
+          + expectedPayments);
+    }
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("False-positive rate must be between 0 and 1: "
+          + falsePositiveRate);
+    }
+    this.falsePositiveRate = falsePositiveRate;
+    // The stage rates form a geometric series that sums to at most the configured rate
+    this.stages = new Stage[]{
+        new Stage(expectedPayments, falsePositiveRate * (1 - TIGHTENING_RATIO))};
+  }
+
+  public void add(UUID id) {
+    long h1 = mix(id.getMostSignificantBits());
+    long h2 = mix(id.getLeastSignificantBits()) | 1;
+    Stage[] current = stages;
+    // Overwrites of a stored ID must not count against the capacity of the newest stage
+    if (contains(current, h1, h2)) {
+      return;
+    }
+    Stage last = current[current.length - 1];
+    last.add(h1, h2);
+    if (last.count.incrementAndGet() == last.capacity) {
+      grow(last);
+    }
+  }
+
+  // False means the ID was definitely never added
+  public boolean mightContain(UUID id) {
+    long h1 = mix(id.getMostSignificantBits());
+    long h2 = mix(id.getLeastSignificantBits()) | 1;
+    if (contains(stages, h1, h2)) {
+      possibleHits.increment();
+      return true;
+    }
+    definiteMisses.increment();
+    return false;
+  }
+
+  // The store did not have an ID the filter let through
+  public void recordFalsePositive() {
+    falsePositives.increment();
+  }
+
+  public long memoryBytes() {
+    long bytes = 0;
+    for (Stage stage : stages) {
+      bytes += (long) stage.words.length * Long.BYTES;
+    }
+    return bytes;
+  }
+
+  public int stageCount() {
+    return stages.length;
+  }
+
+  // Estimated from how full each stage is: 1 - product of (1 - stage rate)
+  public double estimatedFalsePositiveRate() {
+    double none = 1;
+    for (Stage stage : stages) {
+      double filled = -stage.hashes * (double) stage.count.get() / stage.bits;
+      none *= 1 - Math.pow(1 - Math.exp(filled), stage.hashes);
+    }
+    return 1 - none;
+  }
+
+  public long definiteMisses() {
+    return definiteMisses.sum();
+  }
+
+  public long possibleHits() {
+    return possibleHits.sum();
+  }
+
+  public long falsePositives() {
+    return falsePositives.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.repository.bloom-filter.bytes", this,
+            PaymentIdBloomFilter::memoryBytes)
+        .description("Heap used by the payment ID Bloom filter")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("payments.repository.bloom-filter.stages", this,
+            PaymentIdBloomFilter::stageCount)
+        .description("Stages the payment ID Bloom filter has grown to")
+        .register(registry);
+    Gauge.builder("payments.repository.bloom-filter.estimated-false-positive-rate", this,
+            PaymentIdBloomFilter::estimatedFalsePositiveRate)
+        .description("False-positive rate expected from how full the filter currently is")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.bloom-filter.checks", this,
+            PaymentIdBloomFilter::definiteMisses)
+        .description("Payment lookups answered by the Bloom filter alone or passed to the store")
+        .tag("result", "definite_miss")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.bloom-filter.checks", this,
+            PaymentIdBloomFilter::possibleHits)
+        .description("Payment lookups answered by the Bloom filter alone or passed to the store")
+        .tag("result", "possible_hit")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.bloom-filter.false-positives", this,
+            PaymentIdBloomFilter::falsePositives)
+        .description("Lookups the Bloom filter passed to the store for IDs it did not hold")
+        .register(registry);
+  }
+
+  private void grow(Stage full) {
+    growLock.lock();
+    try {
+      Stage[] current = stages;
+      if (current[current.length - 1] != full) {
+        return;
+      }
+      Stage[] grown = new Stage[current.length + 1];
+      System.arraycopy(current, 0, grown, 0, current.length);
+      grown[current.length] = new Stage(full.capacity * 2, full.falsePositiveRate
+          * TIGHTENING_RATIO);
+      stages = grown;
+    } finally {
+      growLock.unlock();
+    }
+  }
+
+  private static boolean contains(Stage[] stages, long h1, long h2) {
+    for (int i = stages.length - 1; i >= 0; i--) {
+      if (stages[i].contains(h1, h2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Payment IDs come from the bank and need not be random, so both halves are mixed (fmix64)
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static final class Stage {
+
+    private final long capacity;
+    private final double falsePositiveRate;
+    private final long bits;
+    private final int hashes;
+    private final long[] words;
+    private final AtomicLong count = new AtomicLong();
+
+    private Stage(long capacity, double falsePositiveRate) {
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+      double ln2 = Math.log(2);
+      long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+      this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8,
+          Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE))];
+      this.bits = (long) words.length * Long.SIZE;
+      this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+    }
+
+    // Double hashing: the i-th probe is h1 + i * h2, reduced to [0, bits) by a multiply-high
+    private void add(long h1, long h2) {
+      long hash = h1;
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.unsignedMultiplyHigh(hash, bits);
+        long mask = 1L << bit;
+        int word = (int) (bit >>> 6);
+        if (((long) WORDS.getVolatile(words, word) & mask) == 0) {
+          WORDS.getAndBitwiseOr(words, word, mask);
+        }
+        hash += h2;
+      }
+    }
+
+    private boolean contains(long h1, long h2) {
+      long hash = h1;
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.unsignedMultiplyHigh(hash, bits);
+        if (((long) WORDS.getVolatile(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+        hash += h2;
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidPaymentQueryException;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+// Secondary indexes over stored payments: one ordered set of keys by creation time, plus one per
+// status, currency and card last four. A key is (creation time, ID), so every set can be walked
+// newest first from any point, and the position of the last payment returned is the cursor of
+// the next page. Only keys are indexed; candidates are re-read from the store and checked
+// against the query, so an entry left behind by two racing writes of the same ID is skipped.
+// Enabled with payments.repository.index.enabled; it costs about four skip-list entries of heap
+// per payment and a read of the previous version on every write. A page reads at most
+// maxScanned candidates, so a filter the chosen index cannot narrow down ends the page early
+// with a cursor rather than walking the whole index.
+public final class PaymentIndex {
+
+  private static final int CURSOR_SIZE = 3 * Long.BYTES;
+
+  private final int maxScanned;
+
+  private final ConcurrentSkipListSet<IndexKey> byTime = new ConcurrentSkipListSet<>();
+  private final ConcurrentHashMap<PaymentStatus, ConcurrentSkipListSet<IndexKey>> byStatus =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrentSkipListSet<IndexKey>> byCurrency =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<IndexKey>> byLastFour =
+      new ConcurrentHashMap<>();
+
+  public PaymentIndex(final int maxScanned) {
+    if (maxScanned < 1) {
+      throw new IllegalArgumentException("Scanned candidates per page must be positive: "
+          + maxScanned);
+    }
+    this.maxScanned = maxScanned;
+  }
+
+  void add(PostPaymentResponse payment) {
+    add(payment, null);
+  }
+
+  // previous is what the store held for this ID before the write; its entries are moved
+  void add(PostPaymentResponse payment, PostPaymentResponse previous) {
+    IndexKey key = IndexKey.of(payment);
+    if (previous != null) {
+      IndexKey old = IndexKey.of(previous);
+      boolean moved = !old.equals(key);
+      if (moved) {
+        byTime.remove(old);
+      }
+      if (moved || previous.getStatus() != payment.getStatus()) {
+        remove(byStatus, previous.getStatus(), old);
+      }
+      if (moved || !sameCurrency(previous, payment)) {
+        remove(byCurrency, previous.getCurrency(), old);
+      }
+      if (moved || previous.getCardNumberLastFour() != payment.getCardNumberLastFour()) {
+        remove(byLastFour, previous.getCardNumberLastFour(), old);
+      }
+    }
+
+    byTime.add(key);
+    insert(byStatus, payment.getStatus(), key);
+    insert(byCurrency, payment.getCurrency(), key);
+    insert(byLastFour, payment.getCardNumberLastFour(), key);
+  }
+
+  PaymentPage query(PaymentQuery query, Function<UUID, PostPaymentResponse> store) {
+    NavigableSet<IndexKey> candidates = candidates(query);
+    if (candidates == null) {
+      return new PaymentPage(List.of(), null);
+    }
+
+    IndexKey low = query.from() == null ? IndexKey.FIRST : IndexKey.first(query.from());
+    IndexKey high = query.to() == null ? IndexKey.LAST : IndexKey.first(query.to());
+    if (query.cursor() != null) {
+      IndexKey after = decodeCursor(query.cursor());
+      if (after.compareTo(high) < 0) {
+        high = after;
+      }
+    }
+    if (low.compareTo(high) >= 0) {
+      return new PaymentPage(List.of(), null);
+    }
+
+    // One payment past the limit tells whether there is a next page at all
+    List<PostPaymentResponse> payments = new ArrayList<>(query.limit() + 1);
+    IndexKey last = null;
+    IndexKey key = null;
+    int scanned = 0;
+    Iterator<IndexKey> keys = candidates.subSet(low, true, high, false).descendingIterator();
+    while (keys.hasNext() && payments.size() <= query.limit()) {
+      if (scanned == maxScanned) {
+        // A short, possibly empty page; the next one resumes below the last candidate read
+        return new PaymentPage(payments, encodeCursor(key));
+      }
+      key = keys.next();
+      scanned++;
+      PostPaymentResponse payment = store.apply(key.id());
+      if (payment != null && key.equals(IndexKey.of(payment)) && query.matches(payment)) {
+        if (payments.size() < query.limit()) {
+          last = key;
+        }
+        payments.add(payment);
+      }
+    }
+
+    if (payments.size() <= query.limit()) {
+      return new PaymentPage(payments, null);
+    }
+    payments.removeLast();
+    return new PaymentPage(payments, encodeCursor(last));
+  }
+
+  // The narrowest index the query can use; null when a filter value has never been stored
+  private NavigableSet<IndexKey> candidates(PaymentQuery query) {
+    if (query.cardNumberLastFour() != null) {
+      return byLastFour.get(query.cardNumberLastFour());
+    }
+    if (query.currency() != null) {
+      return byCurrency.get(query.currency());
+    }
+    if (query.status() != null) {
+      return byStatus.get(query.status());
+    }
+    return byTime;
+  }
+
+  static String encodeCursor(IndexKey key) {
+    ByteBuffer buffer = ByteBuffer.allocate(CURSOR_SIZE)
+        .putLong(key.createdAt())
+        .putLong(key.msb())
+        .putLong(key.lsb());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  static IndexKey decodeCursor(String cursor) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException ex) {
+      throw new InvalidPaymentQueryException("Invalid cursor");
+    }
+    if (bytes.length != CURSOR_SIZE) {
+      throw new InvalidPaymentQueryException("Invalid cursor");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new IndexKey(buffer.getLong(), buffer.getLong(), buffer.getLong());
+  }
+
+  // Payments without a status or currency are only reachable through the time index
+  private static <K> void insert(ConcurrentHashMap<K, ConcurrentSkipListSet<IndexKey>> index,
+      K value, IndexKey key) {
+    if (value != null) {
+      index.computeIfAbsent(value, ignored -> new ConcurrentSkipListSet<>()).add(key);
+    }
+  }
+
+  private static <K> void remove(ConcurrentHashMap<K, ConcurrentSkipListSet<IndexKey>> index,
+      K value, IndexKey key) {
+    if (value != null) {
+      ConcurrentSkipListSet<IndexKey> keys = index.get(value);
+      if (keys != null) {
+        keys.remove(key);
+      }
+    }
+  }
+
+  private static boolean sameCurrency(PostPaymentResponse first, PostPaymentResponse second) {
+    return first.getCurrency() == null
+        ? second.getCurrency() == null : first.getCurrency().equals(second.getCurrency());
+  }
+
+  // Ordered by creation time, then by ID so payments created in the same millisecond stay apart
+  record IndexKey(long createdAt, long msb, long lsb) implements Comparable<IndexKey> {
+
+    static final IndexKey FIRST = new IndexKey(Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE);
+    static final IndexKey LAST = new IndexKey(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    static IndexKey of(PostPaymentResponse payment) {
+      return new IndexKey(PaymentRecordCodec.createdAtMillis(payment.getCreatedAt()),
+          payment.getId().getMostSignificantBits(), payment.getId().getLeastSignificantBits());
+    }
+
+    // Sorts before every payment created at that instant
+    static IndexKey first(Instant createdAt) {
+      return new IndexKey(createdAt.toEpochMilli(), Long.MIN_VALUE, Long.MIN_VALUE);
+    }
+
+    UUID id() {
+      return new UUID(msb, lsb);
+    }
+
+    @Override
+    public int compareTo(IndexKey other) {
+      int result = Long.compare(createdAt, other.createdAt);
+      if (result == 0) {
+        result = Long.compare(msb, other.msb);
+      }
+      return result != 0 ? result : Long.compare(lsb, other.lsb);
+    }
+  }
+}
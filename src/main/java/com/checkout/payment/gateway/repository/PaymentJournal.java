@@ -0,0 +1,633 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.JournalFsyncPolicy;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Append-only log of stored payments made of memory-mapped segment files. Each segment starts with
+// a header (magic, format version, sequence of its first record) followed by frames of
+// [payload length][CRC32C of sequence + payload][sequence][PaymentRecordCodec record]. A zero
+// length marks the end of the written data; a frame failing its CRC is treated as a torn write.
+// Segments of format version 1 hold the shorter records from before payments had a creation time;
+// they are still replayed, never appended to, and rewritten in the current format by compaction.
+public class PaymentJournal implements MeterBinder, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentJournal.class);
+
+  static final int MAGIC = 0x504A4E4C; // "PJNL"
+  static final short FORMAT_VERSION = 2;
+  static final short V1_FORMAT_VERSION = 1;
+  static final int SEGMENT_HEADER_SIZE = 16;
+  static final int FRAME_HEADER_SIZE = 16;
+  static final int FRAME_SIZE = FRAME_HEADER_SIZE + PaymentRecordCodec.RECORD_SIZE;
+
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String COMPACTION_SUFFIX = ".compact";
+  private static final int REWRITE_CHUNK_FRAMES = 1024;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final JournalFsyncPolicy fsyncPolicy;
+  private final Duration fsyncInterval;
+  private final int groupCommitRingCapacity;
+  private final int groupCommitMaxBatchSize;
+  private final Duration groupCommitMaxLinger;
+  private final boolean virtualThreads;
+  private final ScheduledExecutorService scheduler;
+
+  // Guards the active segment; appends are serialised, which also fixes the replay order:
+  private final ReentrantLock lock = new ReentrantLock();
+  private final CRC32C checksum = new CRC32C();
+
+  private Path activePath;
+  private FileChannel activeChannel;
+  private MappedByteBuffer activeBuffer;
+  private long nextSequence = 1;
+  private volatile JournalGroupCommitter groupCommitter;
+  private volatile RecordListener appendListener;
+  private volatile boolean closed;
+
+  private final LongAdder appends = new LongAdder();
+  private final LongAdder fsyncs = new LongAdder();
+  private final LongAdder compactedSegments = new LongAdder();
+  private final LongAdder discardedRecords = new LongAdder();
+
+  public PaymentJournal(final Path directory, final int segmentSize,
+      final JournalFsyncPolicy fsyncPolicy, final Duration fsyncInterval) {
+    this(directory, segmentSize, fsyncPolicy, fsyncInterval, 4096, 256, Duration.ofMillis(1));
+  }
+
+  public PaymentJournal(final Path directory, final int segmentSize,
+      final JournalFsyncPolicy fsyncPolicy, final Duration fsyncInterval,
+      final int groupCommitRingCapacity, final int groupCommitMaxBatchSize,
+      final Duration groupCommitMaxLinger) {
+    this(directory, segmentSize, fsyncPolicy, fsyncInterval, groupCommitRingCapacity,
+        groupCommitMaxBatchSize, groupCommitMaxLinger, false);
+  }
+
+  public PaymentJournal(final Path directory, final int segmentSize,
+      final JournalFsyncPolicy fsyncPolicy, final Duration fsyncInterval,
+      final int groupCommitRingCapacity, final int groupCommitMaxBatchSize,
+      final Duration groupCommitMaxLinger, final boolean virtualThreads) {
+
+    if (segmentSize < SEGMENT_HEADER_SIZE + FRAME_SIZE) {
+      throw new IllegalArgumentException("Journal segment size is too small: " + segmentSize);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncInterval = fsyncInterval;
+    this.groupCommitRingCapacity = groupCommitRingCapacity;
+    this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+    this.groupCommitMaxLinger = groupCommitMaxLinger;
+    this.virtualThreads = virtualThreads;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("payment-journal"));
+  }
+
+  // Replays every intact record in append order, then opens the last segment for appending.
+  // Must be called once before the first append; returns the number of records replayed.
+  public long open(Consumer<PostPaymentResponse> replayed) {
+    lock.lock();
+    try {
+      Files.createDirectories(directory);
+
+      long records = 0;
+      List<Path> segments = segments();
+      SegmentScan last = null;
+      for (Path segment : segments) {
+        last = scan(segment, (sequence, buffer, offset, recordSize) ->
+            replayed.accept(PaymentRecordCodec.decode(buffer, offset, recordSize)));
+        records += last.records();
+        if (last.lastSequence() >= nextSequence) {
+          nextSequence = last.lastSequence() + 1;
+        }
+      }
+
+      if (last != null && last.formatVersion() == FORMAT_VERSION
+          && last.endOffset() + FRAME_SIZE <= segmentSize) {
+        openActive(segments.get(segments.size() - 1), last.endOffset());
+      } else {
+        createActive();
+      }
+
+      if (fsyncPolicy == JournalFsyncPolicy.INTERVAL) {
+        long intervalMillis = Math.max(1, fsyncInterval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::forceActive, intervalMillis, intervalMillis,
+            TimeUnit.MILLISECONDS);
+      } else if (fsyncPolicy == JournalFsyncPolicy.GROUP_COMMIT) {
+        groupCommitter = new JournalGroupCommitter(this, groupCommitRingCapacity,
+            groupCommitMaxBatchSize, groupCommitMaxLinger,
+            threadFactory("payment-journal-group-commit"));
+      }
+      return records;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to open payment journal in " + directory, ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Appends the payment and returns its sequence number once it is as durable as the fsync
+  // policy promises
+  public long append(PostPaymentResponse payment) {
+    if (groupCommitter == null) {
+      return appendFrame(payment, true);
+    }
+    try {
+      return groupCommitter.submit(payment).join();
+    } catch (CompletionException ex) {
+      throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+    }
+  }
+
+  // Appends every payment and returns once all of them are as durable as the fsync policy
+  // promises. Under per-write and group commit the whole batch shares its forces.
+  public void appendAll(List<PostPaymentResponse> payments) {
+    JournalGroupCommitter committer = groupCommitter;
+    if (committer == null) {
+      for (PostPaymentResponse payment : payments) {
+        appendFrame(payment, false);
+      }
+      if (fsyncPolicy == JournalFsyncPolicy.PER_WRITE && !payments.isEmpty()) {
+        forceActive();
+      }
+      return;
+    }
+    List<CompletableFuture<Long>> pending = new ArrayList<>(payments.size());
+    for (PostPaymentResponse payment : payments) {
+      pending.add(committer.submit(payment));
+    }
+    try {
+      CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException ex) {
+      throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+    }
+  }
+
+  // Used by the group committer, which forces the journal once per batch
+  long appendWithoutForce(PostPaymentResponse payment) {
+    return appendFrame(payment, false);
+  }
+
+  private long appendFrame(PostPaymentResponse payment, boolean forcePerWrite) {
+    lock.lock();
+    try {
+      if (activeBuffer == null) {
+        throw new IllegalStateException("Payment journal has not been opened");
+      }
+      if (activeBuffer.remaining() < FRAME_SIZE) {
+        rollActive();
+      }
+
+      long sequence = nextSequence++;
+      int frame = activeBuffer.position();
+      writeFrame(activeBuffer, frame, sequence, payment, checksum);
+      activeBuffer.position(frame + FRAME_SIZE);
+
+      if (forcePerWrite && fsyncPolicy == JournalFsyncPolicy.PER_WRITE) {
+        activeBuffer.force(frame, FRAME_SIZE);
+        fsyncs.increment();
+      }
+      appends.increment();
+      RecordListener listener = appendListener;
+      if (listener != null) {
+        listener.accept(sequence, payment);
+      }
+      return sequence;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to append to payment journal", ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Periodically rewrites sealed segments, dropping records for which isLive returns false
+  public void scheduleCompaction(Duration interval, double minGarbageRatio,
+      Predicate<PostPaymentResponse> isLive) {
+    long intervalMillis = interval.toMillis();
+    if (intervalMillis <= 0) {
+      return;
+    }
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        compact(minGarbageRatio, isLive);
+      } catch (RuntimeException | IOException ex) {
+        LOG.warn("Payment journal compaction failed", ex);
+      }
+    }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  void compact(double minGarbageRatio, Predicate<PostPaymentResponse> isLive)
+      throws IOException {
+    List<Path> sealed;
+    lock.lock();
+    try {
+      sealed = segments();
+      sealed.remove(activePath);
+    } finally {
+      lock.unlock();
+    }
+
+    for (Path segment : sealed) {
+      List<LiveRecord> live = new ArrayList<>();
+      SegmentScan scan = scan(segment, (sequence, buffer, offset, recordSize) -> {
+        PostPaymentResponse payment = PaymentRecordCodec.decode(buffer, offset, recordSize);
+        if (isLive.test(payment)) {
+          live.add(new LiveRecord(sequence, payment));
+        }
+      });
+
+      long garbage = scan.records() - live.size();
+      if (scan.records() == 0 || garbage < scan.records() * minGarbageRatio) {
+        continue;
+      }
+
+      // The newer versions isLive saw must be durable before the only durable copy goes
+      forceAppended();
+      if (live.isEmpty()) {
+        Files.delete(segment);
+      } else {
+        rewrite(segment, scan.baseSequence(), live);
+      }
+      compactedSegments.increment();
+      discardedRecords.add(garbage);
+      LOG.info("Compacted payment journal segment {}: dropped {} of {} records",
+          segment.getFileName(), garbage, scan.records());
+    }
+  }
+
+  public void force() {
+    forceActive();
+  }
+
+  // The listener sees every record appended from now on, in sequence order. It is called under
+  // the append lock, so it must never block.
+  public void setAppendListener(RecordListener listener) {
+    appendListener = listener;
+  }
+
+  // Sequence of the last record appended, or replayed when nothing has been appended since open
+  public long lastSequence() {
+    lock.lock();
+    try {
+      return nextSequence - 1;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Reads back the intact records with sequences in [fromSequence, toSequence] in append order.
+  // Records that compaction has dropped are skipped: a later record of the same payment replaced
+  // them. toSequence must not be past lastSequence(): later frames may still be being written.
+  public void read(long fromSequence, long toSequence, RecordListener records) {
+    try {
+      List<Path> segments;
+      lock.lock();
+      try {
+        segments = segments();
+      } finally {
+        lock.unlock();
+      }
+      int first = 0;
+      for (int i = 1; i < segments.size() && baseSequence(segments.get(i)) <= fromSequence; i++) {
+        first = i;
+      }
+      for (Path segment : segments.subList(first, segments.size())) {
+        if (baseSequence(segment) > toSequence) {
+          break;
+        }
+        try {
+          scan(segment, toSequence, (sequence, buffer, offset, recordSize) -> {
+            if (sequence >= fromSequence) {
+              records.accept(sequence, PaymentRecordCodec.decode(buffer, offset, recordSize));
+            }
+          });
+        } catch (NoSuchFileException ex) {
+          // Compaction deleted it because every record in it had been replaced
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to read payment journal in " + directory, ex);
+    }
+  }
+
+  // Background workers follow the application's thread mode; both kinds never block shutdown
+  private ThreadFactory threadFactory(String name) {
+    return virtualThreads
+        ? Thread.ofVirtual().name(name).factory()
+        : Thread.ofPlatform().name(name).daemon().factory();
+  }
+
+  public long segmentCount() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(PaymentJournal::isSegment).count();
+    } catch (IOException ex) {
+      return 0;
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("payments.journal.appends", appends, LongAdder::sum)
+        .description("Records appended to the payment journal")
+        .register(registry);
+    FunctionCounter.builder("payments.journal.fsyncs", fsyncs, LongAdder::sum)
+        .description("Forces of journal data to disk")
+        .register(registry);
+    FunctionCounter.builder("payments.journal.compactions", compactedSegments, LongAdder::sum)
+        .description("Journal segments rewritten or deleted by compaction")
+        .register(registry);
+    FunctionCounter.builder("payments.journal.compaction.discarded", discardedRecords,
+            LongAdder::sum)
+        .description("Superseded records dropped by compaction")
+        .register(registry);
+    Gauge.builder("payments.journal.segments", this, PaymentJournal::segmentCount)
+        .description("Segment files currently making up the payment journal")
+        .register(registry);
+    if (groupCommitter != null) {
+      groupCommitter.bindTo(registry);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (groupCommitter != null) {
+      groupCommitter.close();
+    }
+    scheduler.shutdownNow();
+    lock.lock();
+    try {
+      if (activeBuffer != null) {
+        // Even with the NONE policy a clean shutdown should not lose anything
+        activeBuffer.force();
+        activeChannel.close();
+        activeBuffer = null;
+      }
+    } catch (IOException ex) {
+      LOG.warn("Unable to close payment journal segment {}", activePath, ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void forceActive() {
+    MappedByteBuffer buffer;
+    lock.lock();
+    try {
+      buffer = activeBuffer;
+    } finally {
+      lock.unlock();
+    }
+    // Forcing outside the lock keeps appends flowing while the disk catches up
+    if (buffer != null) {
+      buffer.force();
+      fsyncs.increment();
+    }
+  }
+
+  // Forces every record appended so far. The store only holds a payment once the journal has
+  // it, so this covers every version isLive has seen: in the active segment, forced under the
+  // lock so nothing slips in between, and without fsyncs also in sealed segments never forced.
+  void forceAppended() throws IOException {
+    List<Path> sealed;
+    lock.lock();
+    try {
+      // Closing forces it too
+      if (activeBuffer != null) {
+        activeBuffer.force();
+        fsyncs.increment();
+      }
+      sealed = segments();
+      sealed.remove(activePath);
+    } finally {
+      lock.unlock();
+    }
+    if (fsyncPolicy == JournalFsyncPolicy.NONE) {
+      for (Path segment : sealed) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+          channel.force(false);
+        } catch (NoSuchFileException ex) {
+          // Compacted away in the meantime
+        }
+      }
+    }
+  }
+
+  private void rollActive() throws IOException {
+    if (fsyncPolicy != JournalFsyncPolicy.NONE) {
+      activeBuffer.force();
+      fsyncs.increment();
+    }
+    activeChannel.close();
+    createActive();
+  }
+
+  private void createActive() throws IOException {
+    Path path = directory.resolve(segmentName(nextSequence));
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+    buffer.putInt(0, MAGIC);
+    buffer.putShort(4, FORMAT_VERSION);
+    buffer.putLong(8, nextSequence);
+    buffer.position(SEGMENT_HEADER_SIZE);
+    buffer.force(0, SEGMENT_HEADER_SIZE);
+
+    activePath = path;
+    activeChannel = channel;
+    activeBuffer = buffer;
+  }
+
+  private void openActive(Path path, int endOffset) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+    // Wipe whatever follows the last intact frame, so a torn tail is never replayed later:
+    for (int offset = endOffset; offset < segmentSize && buffer.getInt(offset) != 0;
+        offset += FRAME_SIZE) {
+      buffer.put(offset, new byte[Math.min(FRAME_SIZE, segmentSize - offset)]);
+    }
+    buffer.position(endOffset);
+
+    activePath = path;
+    activeChannel = channel;
+    activeBuffer = buffer;
+  }
+
+  // Records are re-encoded rather than copied, which also upgrades older format versions
+  private void rewrite(Path segment, long baseSequence, List<LiveRecord> records)
+      throws IOException {
+    Path compacted = segment.resolveSibling(segment.getFileName() + COMPACTION_SUFFIX);
+    try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+          .putInt(MAGIC)
+          .putShort(FORMAT_VERSION)
+          .putShort((short) 0)
+          .putLong(baseSequence)
+          .flip();
+      channel.write(header);
+      ByteBuffer chunk = ByteBuffer.allocate(REWRITE_CHUNK_FRAMES * FRAME_SIZE);
+      CRC32C crc = new CRC32C();
+      for (int i = 0; i < records.size(); i += REWRITE_CHUNK_FRAMES) {
+        int frames = Math.min(REWRITE_CHUNK_FRAMES, records.size() - i);
+        for (int f = 0; f < frames; f++) {
+          LiveRecord record = records.get(i + f);
+          writeFrame(chunk, f * FRAME_SIZE, record.sequence(), record.payment(), crc);
+        }
+        chunk.limit(frames * FRAME_SIZE).position(0);
+        while (chunk.hasRemaining()) {
+          channel.write(chunk);
+        }
+        chunk.clear();
+      }
+      channel.force(true);
+    }
+    // Sequence numbers are preserved, so the compacted segment replays in the same position
+    Files.move(compacted, segment, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private SegmentScan scan(Path segment, FrameConsumer consumer) throws IOException {
+    return scan(segment, Long.MAX_VALUE, consumer);
+  }
+
+  // Stops before the first frame past maxSequence, which may still be being written
+  private SegmentScan scan(Path segment, long maxSequence, FrameConsumer consumer)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      int size = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+      short version = size < SEGMENT_HEADER_SIZE ? 0 : buffer.getShort(4);
+      if (size < SEGMENT_HEADER_SIZE || buffer.getInt(0) != MAGIC
+          || (version != FORMAT_VERSION && version != V1_FORMAT_VERSION)) {
+        throw new IOException("Not a payment journal segment: " + segment);
+      }
+      int recordSize = version == FORMAT_VERSION
+          ? PaymentRecordCodec.RECORD_SIZE : PaymentRecordCodec.V1_RECORD_SIZE;
+      int frameSize = FRAME_HEADER_SIZE + recordSize;
+
+      long baseSequence = buffer.getLong(8);
+      long lastSequence = baseSequence - 1;
+      long records = 0;
+      int offset = SEGMENT_HEADER_SIZE;
+      CRC32C crc = new CRC32C();
+
+      while (offset + FRAME_HEADER_SIZE <= size) {
+        int length = buffer.getInt(offset);
+        if (length == 0) {
+          break;
+        }
+        if (length != recordSize || offset + frameSize > size) {
+          LOG.warn("Invalid frame length {} at offset {} of {}", length, offset, segment);
+          break;
+        }
+        if (buffer.getLong(offset + 8) > maxSequence) {
+          break;
+        }
+        crc.reset();
+        crc.update(buffer.slice(offset + 8, 8 + length));
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+          LOG.warn("Checksum mismatch at offset {} of {} - ignoring the rest of the segment",
+              offset, segment);
+          break;
+        }
+
+        lastSequence = buffer.getLong(offset + 8);
+        consumer.accept(lastSequence, buffer, offset + FRAME_HEADER_SIZE, recordSize);
+        records++;
+        offset += frameSize;
+      }
+      return new SegmentScan(version, baseSequence, lastSequence, records, offset);
+    }
+  }
+
+  // The length goes in last: until then the frame reads as the end of the log
+  private static void writeFrame(ByteBuffer buffer, int frame, long sequence,
+      PostPaymentResponse payment, CRC32C crc) {
+
+    buffer.putLong(frame + 8, sequence);
+    PaymentRecordCodec.encode(payment, buffer, frame + FRAME_HEADER_SIZE);
+    crc.reset();
+    crc.update(buffer.slice(frame + 8, 8 + PaymentRecordCodec.RECORD_SIZE));
+    buffer.putInt(frame + 4, (int) crc.getValue());
+    buffer.putInt(frame, PaymentRecordCodec.RECORD_SIZE);
+  }
+
+  // Segment files in append order; their names are the zero-padded sequence of the first record
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return new ArrayList<>(files.filter(PaymentJournal::isSegment).sorted().toList());
+    }
+  }
+
+  private static boolean isSegment(Path path) {
+    return path.getFileName().toString().endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static String segmentName(long baseSequence) {
+    return String.format("%020d%s", baseSequence, SEGMENT_SUFFIX);
+  }
+
+  private static long baseSequence(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name, 0, name.length() - SEGMENT_SUFFIX.length(), 10);
+  }
+
+  @FunctionalInterface
+  public interface RecordListener {
+
+    void accept(long sequence, PostPaymentResponse payment);
+  }
+
+  @FunctionalInterface
+  private interface FrameConsumer {
+
+    void accept(long sequence, ByteBuffer buffer, int payloadOffset, int recordSize);
+  }
+
+  private record SegmentScan(short formatVersion, long baseSequence, long lastSequence,
+                             long records, int endOffset) {
+
+  }
+
+  private record LiveRecord(long sequence, PostPaymentResponse payment) {
+
+  }
+}
@@ -0,0 +1,16 @@
+package com.checkout.payment.gateway.repository;
+
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+// How ShardedPaymentStore reaches the other gateway nodes. Payments travel as concatenated
+// PaymentRecordCodec records; both calls throw UncheckedIOException when the node cannot be
+// reached or does not answer as expected.
+public interface PaymentPeerTransport {
+
+  void put(String node, byte[] records) throws UncheckedIOException;
+
+  // Null when the node does not hold the payment
+  byte[] get(String node, UUID id) throws UncheckedIOException;
+
+}
@@ -0,0 +1,223 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.SupportedCurrency;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+// Fixed-width binary layout of a stored payment, shared by the off-heap table, the journal, the
+// segment files and the records nodes send each other:
+//
+//   0  id (most significant bits)   long
+//   8  id (least significant bits)  long
+//  16  amount                       long
+//  24  ISO 4217 numeric currency    short
+//  26  card number last four        short
+//  28  expiry year                  short
+//  30  expiry month                 byte
+//  31  status                       byte (0 = no record, 1 = no status, otherwise ordinal + 2)
+//  32  created at (epoch millis)    long (Long.MIN_VALUE = unknown)
+//
+// Records of format version 1 stop after the status byte. A batch of records sent between nodes
+// starts with a 4-byte header of its own: BATCH_MAGIC, then the format version of its records.
+final class PaymentRecordCodec {
+
+  static final int RECORD_SIZE = 40;
+  static final int V1_RECORD_SIZE = 32;
+
+  static final short BATCH_MAGIC = 0x5052; // "PR"
+  static final short FORMAT_VERSION = 2;
+  static final short V1_FORMAT_VERSION = 1;
+  static final int BATCH_HEADER_SIZE = 4;
+
+  static final int MSB_OFFSET = 0;
+  static final int LSB_OFFSET = 8;
+  static final int AMOUNT_OFFSET = 16;
+  static final int CURRENCY_OFFSET = 24;
+  static final int LAST_FOUR_OFFSET = 26;
+  static final int EXPIRY_YEAR_OFFSET = 28;
+  static final int EXPIRY_MONTH_OFFSET = 30;
+  static final int STATUS_OFFSET = 31;
+  static final int CREATED_AT_OFFSET = 32;
+
+  static final byte EMPTY = 0;
+  private static final byte NO_STATUS = 1;
+  private static final long NO_CREATED_AT = Long.MIN_VALUE;
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+  private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED;
+  private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+  // ISO 4217 numeric code -> alphabetic code
+  private static final String[] CURRENCY_CODES = new String[1000];
+
+  static {
+    for (Currency currency : Currency.getAvailableCurrencies()) {
+      int numericCode = currency.getNumericCode();
+      if (numericCode > 0 && numericCode < CURRENCY_CODES.length
+          && CURRENCY_CODES[numericCode] == null) {
+        CURRENCY_CODES[numericCode] = currency.getCurrencyCode();
+      }
+    }
+  }
+
+  private PaymentRecordCodec() {
+  }
+
+  static void encode(PostPaymentResponse payment, ByteBuffer buffer, int offset) {
+    buffer.putLong(offset + MSB_OFFSET, payment.getId().getMostSignificantBits());
+    buffer.putLong(offset + LSB_OFFSET, payment.getId().getLeastSignificantBits());
+    buffer.putLong(offset + AMOUNT_OFFSET, payment.getAmount());
+    buffer.putShort(offset + CURRENCY_OFFSET, numericCurrencyCode(payment.getCurrency()));
+    buffer.putShort(offset + LAST_FOUR_OFFSET, (short) payment.getCardNumberLastFour());
+    buffer.putShort(offset + EXPIRY_YEAR_OFFSET, (short) payment.getExpiryYear());
+    buffer.put(offset + EXPIRY_MONTH_OFFSET, (byte) payment.getExpiryMonth());
+    buffer.put(offset + STATUS_OFFSET, statusCode(payment.getStatus()));
+    buffer.putLong(offset + CREATED_AT_OFFSET, createdAtMillis(payment.getCreatedAt()));
+  }
+
+  static PostPaymentResponse decode(ByteBuffer buffer, int offset) {
+    return decode(buffer, offset, RECORD_SIZE);
+  }
+
+  // Decodes a record of either format version; version 1 records have no creation time
+  static PostPaymentResponse decode(ByteBuffer buffer, int offset, int recordSize) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(new UUID(buffer.getLong(offset + MSB_OFFSET),
+        buffer.getLong(offset + LSB_OFFSET)));
+    payment.setStatus(status(buffer.get(offset + STATUS_OFFSET)));
+    payment.setCardNumberLastFour(buffer.getShort(offset + LAST_FOUR_OFFSET));
+    payment.setExpiryMonth(buffer.get(offset + EXPIRY_MONTH_OFFSET));
+    payment.setExpiryYear(buffer.getShort(offset + EXPIRY_YEAR_OFFSET));
+    payment.setCurrency(currencyCode(buffer.getShort(offset + CURRENCY_OFFSET)));
+    payment.setAmount(amount(buffer.getLong(offset + AMOUNT_OFFSET)));
+    if (recordSize >= RECORD_SIZE) {
+      payment.setCreatedAt(createdAt(buffer.getLong(offset + CREATED_AT_OFFSET)));
+    }
+    return payment;
+  }
+
+  // The same layout in native byte order, as the off-heap table keeps it. Fields are read and
+  // written in place, without a ByteBuffer view of the slot.
+  static void encode(PostPaymentResponse payment, MemorySegment segment, long offset) {
+    segment.set(LONG, offset + MSB_OFFSET, payment.getId().getMostSignificantBits());
+    segment.set(LONG, offset + LSB_OFFSET, payment.getId().getLeastSignificantBits());
+    segment.set(LONG, offset + AMOUNT_OFFSET, payment.getAmount());
+    segment.set(SHORT, offset + CURRENCY_OFFSET, numericCurrencyCode(payment.getCurrency()));
+    segment.set(SHORT, offset + LAST_FOUR_OFFSET, (short) payment.getCardNumberLastFour());
+    segment.set(SHORT, offset + EXPIRY_YEAR_OFFSET, (short) payment.getExpiryYear());
+    segment.set(BYTE, offset + EXPIRY_MONTH_OFFSET, (byte) payment.getExpiryMonth());
+    segment.set(BYTE, offset + STATUS_OFFSET, statusCode(payment.getStatus()));
+    segment.set(LONG, offset + CREATED_AT_OFFSET, createdAtMillis(payment.getCreatedAt()));
+  }
+
+  static PostPaymentResponse decode(MemorySegment segment, long offset) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(new UUID(segment.get(LONG, offset + MSB_OFFSET),
+        segment.get(LONG, offset + LSB_OFFSET)));
+    payment.setStatus(status(segment.get(BYTE, offset + STATUS_OFFSET)));
+    payment.setCardNumberLastFour(segment.get(SHORT, offset + LAST_FOUR_OFFSET));
+    payment.setExpiryMonth(segment.get(BYTE, offset + EXPIRY_MONTH_OFFSET));
+    payment.setExpiryYear(segment.get(SHORT, offset + EXPIRY_YEAR_OFFSET));
+    payment.setCurrency(currencyCode(segment.get(SHORT, offset + CURRENCY_OFFSET)));
+    payment.setAmount(amount(segment.get(LONG, offset + AMOUNT_OFFSET)));
+    payment.setCreatedAt(createdAt(segment.get(LONG, offset + CREATED_AT_OFFSET)));
+    return payment;
+  }
+
+  // A batch as nodes send it to each other: the header, then back-to-back records
+  static byte[] encodeAll(List<PostPaymentResponse> payments) {
+    ByteBuffer buffer = ByteBuffer.allocate(BATCH_HEADER_SIZE + payments.size() * RECORD_SIZE)
+        .putShort(0, BATCH_MAGIC)
+        .putShort(2, FORMAT_VERSION);
+    for (int i = 0; i < payments.size(); i++) {
+      encode(payments.get(i), buffer, BATCH_HEADER_SIZE + i * RECORD_SIZE);
+    }
+    return buffer.array();
+  }
+
+  // Takes batches of either format version, so nodes can be upgraded one at a time
+  static List<PostPaymentResponse> decodeAll(byte[] batch) {
+    ByteBuffer buffer = ByteBuffer.wrap(batch);
+    short version = batch.length < BATCH_HEADER_SIZE ? 0 : buffer.getShort(2);
+    if (batch.length < BATCH_HEADER_SIZE || buffer.getShort(0) != BATCH_MAGIC
+        || (version != FORMAT_VERSION && version != V1_FORMAT_VERSION)) {
+      throw new IllegalArgumentException("Not a batch of payment records");
+    }
+    int recordSize = version == FORMAT_VERSION ? RECORD_SIZE : V1_RECORD_SIZE;
+    if ((batch.length - BATCH_HEADER_SIZE) % recordSize != 0) {
+      throw new IllegalArgumentException("Not a whole number of payment records: "
+          + (batch.length - BATCH_HEADER_SIZE) + " bytes");
+    }
+    List<PostPaymentResponse> payments =
+        new ArrayList<>((batch.length - BATCH_HEADER_SIZE) / recordSize);
+    for (int offset = BATCH_HEADER_SIZE; offset < batch.length; offset += recordSize) {
+      payments.add(decode(buffer, offset, recordSize));
+    }
+    return payments;
+  }
+
+  // True when both payments would encode to the same record
+  static boolean sameRecord(PostPaymentResponse first, PostPaymentResponse second) {
+    return first != null && second != null
+        && Objects.equals(first.getId(), second.getId())
+        && first.getStatus() == second.getStatus()
+        && first.getCardNumberLastFour() == second.getCardNumberLastFour()
+        && first.getExpiryMonth() == second.getExpiryMonth()
+        && first.getExpiryYear() == second.getExpiryYear()
+        && Objects.equals(first.getCurrency(), second.getCurrency())
+        && first.getAmount() == second.getAmount()
+        && createdAtMillis(first.getCreatedAt()) == createdAtMillis(second.getCreatedAt());
+  }
+
+  // The model holds amounts as ints: a wider stored value means a corrupt record, which must not
+  // decode to a different amount
+  static int amount(long stored) {
+    if (stored < Integer.MIN_VALUE || stored > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Payment record amount out of range: " + stored);
+    }
+    return (int) stored;
+  }
+
+  static long createdAtMillis(Instant createdAt) {
+    return createdAt == null ? NO_CREATED_AT : createdAt.toEpochMilli();
+  }
+
+  static Instant createdAt(long millis) {
+    return millis == NO_CREATED_AT ? null : Instant.ofEpochMilli(millis);
+  }
+
+  static byte statusCode(PaymentStatus status) {
+    return status == null ? NO_STATUS : (byte) (status.ordinal() + 2);
+  }
+
+  static PaymentStatus status(byte code) {
+    return code == NO_STATUS ? null : STATUSES[code - 2];
+  }
+
+  // Payments stored before the gateway restricted its currencies may use any ISO 4217 code
+  static short numericCurrencyCode(String currencyCode) {
+    if (currencyCode == null) {
+      return 0;
+    }
+    SupportedCurrency currency = CurrencyRegistry.byCode(currencyCode);
+    return (short) (currency != null ? currency.numericCode()
+        : Currency.getInstance(currencyCode).getNumericCode());
+  }
+
+  static String currencyCode(short numericCode) {
+    SupportedCurrency currency = CurrencyRegistry.byNumericCode(numericCode);
+    return currency != null ? currency.code() : CURRENCY_CODES[numericCode];
+  }
+
+}
@@ -0,0 +1,383 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Write-behind replication of the journal to a peer node. Appended records go into a bounded
+// in-memory backlog, and a single sender thread ships them to the peer in batches, in journal
+// order, acknowledging each batch by persisting its last sequence. Writers are held back for up
+// to maxBackpressureWait while the backlog is full; records that still do not fit are left out
+// and, like everything written while the peer was unreachable or this node was down, read back
+// from the journal once the sender gets to them. The journal is the source of truth, so nothing
+// is lost, and the peer ends up with the last version of every payment.
+public class PaymentReplicator implements MeterBinder, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentReplicator.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long LINGER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final PaymentJournal journal;
+  private final PaymentPeerTransport transport;
+  private final String peer;
+  private final MpscRing<PendingRecord> backlog;
+  private final int maxBatchSize;
+  private final long maxLingerNanos;
+  private final long maxBackpressureWaitNanos;
+  private final long retryBackoffNanos;
+  private final long maxRetryBackoffNanos;
+  private final FileChannel offsetChannel;
+  private final ByteBuffer offsetBuffer = ByteBuffer.allocate(Long.BYTES);
+  private final Thread sender;
+
+  // Sequence of the last record appended to the journal, and of the last one the peer has:
+  private volatile long appended;
+  private volatile long acknowledged;
+  private volatile boolean running = true;
+  private boolean peerDown;
+
+  private final LongAdder sentFromBacklog = new LongAdder();
+  private final LongAdder sentFromJournal = new LongAdder();
+  private final LongAdder overflows = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private volatile Timer delays;
+  private volatile Timer backpressureWaits;
+
+  public PaymentReplicator(final PaymentJournal journal, final PaymentPeerTransport transport,
+      final String peer, final Path directory, final int backlogCapacity, final int maxBatchSize,
+      final Duration maxLinger, final Duration maxBackpressureWait, final Duration retryBackoff,
+      final Duration maxRetryBackoff, final boolean virtualThreads) {
+
+    this.journal = journal;
+    this.transport = transport;
+    this.peer = peer;
+    this.backlog = new MpscRing<>(backlogCapacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxLingerNanos = maxLinger.toNanos();
+    this.maxBackpressureWaitNanos = maxBackpressureWait.toNanos();
+    this.retryBackoffNanos = retryBackoff.toNanos();
+    this.maxRetryBackoffNanos = maxRetryBackoff.toNanos();
+
+    try {
+      Files.createDirectories(directory);
+      offsetChannel = FileChannel.open(directory.resolve("replication.offset"),
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      acknowledged = offsetChannel.read(offsetBuffer, 0) == Long.BYTES
+          ? offsetBuffer.getLong(0) : 0;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to open replication offset in " + directory, ex);
+    }
+
+    // The listener goes in first, so no append can fall between the two
+    journal.setAppendListener(this::appended);
+    appended = journal.lastSequence();
+    if (acknowledged > appended) {
+      LOG.warn("Replication offset {} is past the end of the journal at {}; replicating it all "
+          + "to {} again", acknowledged, appended, peer);
+      acknowledged = 0;
+    }
+    LOG.info("Replicating payments to {} from journal sequence {}", peer, acknowledged + 1);
+
+    this.sender = (virtualThreads
+        ? Thread.ofVirtual().name("payment-replicator").factory()
+        : Thread.ofPlatform().name("payment-replicator").daemon().factory())
+        .newThread(this::run);
+    this.sender.start();
+  }
+
+  // Holds the caller back while the backlog is full, for at most maxBackpressureWait; whatever
+  // does not fit after that is read back from the journal later
+  public void awaitBacklog() {
+    if (backlog.size() < backlog.capacity()) {
+      return;
+    }
+    long start = System.nanoTime();
+    long deadline = start + maxBackpressureWaitNanos;
+    while (running && backlog.size() >= backlog.capacity() && System.nanoTime() < deadline) {
+      LockSupport.parkNanos(this, LINGER_PARK_NANOS);
+    }
+    Timer waits = backpressureWaits;
+    if (waits != null) {
+      waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // Called by the journal under its append lock, so the backlog is in sequence order
+  private void appended(long sequence, PostPaymentResponse payment) {
+    if (!backlog.offer(new PendingRecord(sequence, payment, System.nanoTime()))) {
+      overflows.increment();
+    }
+    appended = sequence;
+  }
+
+  // Records appended to the journal that the peer has not acknowledged yet
+  public long lag() {
+    return Math.max(0, appended - acknowledged);
+  }
+
+  public long acknowledgedSequence() {
+    return acknowledged;
+  }
+
+  public long sentFromBacklog() {
+    return sentFromBacklog.sum();
+  }
+
+  public long sentFromJournal() {
+    return sentFromJournal.sum();
+  }
+
+  public long overflows() {
+    return overflows.sum();
+  }
+
+  public long failures() {
+    return failures.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.replication.lag", this, PaymentReplicator::lag)
+        .description("Journal records the replication peer has not acknowledged yet")
+        .register(registry);
+    Gauge.builder("payments.replication.backlog", backlog, MpscRing::size)
+        .description("Records waiting in the in-memory replication backlog")
+        .register(registry);
+    FunctionCounter.builder("payments.replication.sent", this,
+            PaymentReplicator::sentFromBacklog)
+        .description("Records acknowledged by the replication peer")
+        .tag("source", "backlog")
+        .register(registry);
+    FunctionCounter.builder("payments.replication.sent", this,
+            PaymentReplicator::sentFromJournal)
+        .description("Records acknowledged by the replication peer")
+        .tag("source", "journal")
+        .register(registry);
+    FunctionCounter.builder("payments.replication.overflows", this, PaymentReplicator::overflows)
+        .description("Records that did not fit the backlog and are read back from the journal")
+        .register(registry);
+    FunctionCounter.builder("payments.replication.failures", this, PaymentReplicator::failures)
+        .description("Attempts to send a batch to the replication peer that failed")
+        .register(registry);
+    delays = Timer.builder("payments.replication.delay")
+        .description("Time from the oldest record of a batch being appended to the peer "
+            + "acknowledging the batch")
+        .publishPercentileHistogram()
+        .register(registry);
+    backpressureWaits = Timer.builder("payments.replication.backpressure")
+        .description("Time writers were held back by a full replication backlog")
+        .register(registry);
+  }
+
+  // Stops the sender; whatever the peer has not acknowledged is sent after the next start
+  @Override
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    journal.setAppendListener(null);
+    LockSupport.unpark(sender);
+    try {
+      sender.join();
+      offsetChannel.force(false);
+      offsetChannel.close();
+      if (transport instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (Exception ex) {
+      LOG.warn("Unable to close replication to {}", peer, ex);
+    }
+  }
+
+  // A failure other than the peer being unreachable, such as the journal being unreadable or a
+  // record failing to encode, is retried with the same backoff rather than ending the sender
+  private void run() {
+    List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+    long backoff = retryBackoffNanos;
+    while (running) {
+      try {
+        if (!replicate(batch)) {
+          return;
+        }
+        backoff = retryBackoffNanos;
+      } catch (RuntimeException ex) {
+        failures.increment();
+        LOG.warn("Replication to {} failed, retrying from journal sequence {}", peer,
+            acknowledged + 1, ex);
+        // Whatever was taken from the backlog is read back from the journal
+        batch.clear();
+        LockSupport.parkNanos(this, backoff);
+        backoff = Math.min(backoff * 2, maxRetryBackoffNanos);
+      }
+    }
+  }
+
+  // Sends one batch, or catches up from the journal. False only when the replicator is closed
+  // first.
+  private boolean replicate(List<PendingRecord> batch) {
+    if (!fill(batch)) {
+      LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      return true;
+    }
+
+    // Whatever is missing before a record, or after the last one, is only in the journal
+    batch.removeIf(pending -> pending.sequence() <= acknowledged);
+    int start = 0;
+    while (start < batch.size()) {
+      int end = start + 1;
+      while (end < batch.size()
+          && batch.get(end).sequence() == batch.get(end - 1).sequence() + 1) {
+        end++;
+      }
+      long first = batch.get(start).sequence();
+      if ((first > acknowledged + 1 && !catchUp(first - 1))
+          || !sendFromBacklog(batch.subList(start, end))) {
+        return false;
+      }
+      start = end;
+    }
+    long last = appended;
+    if (batch.isEmpty() && last > acknowledged && !catchUp(last)) {
+      return false;
+    }
+    batch.clear();
+    return true;
+  }
+
+  private boolean sendFromBacklog(List<PendingRecord> run) {
+    List<PostPaymentResponse> payments = new ArrayList<>(run.size());
+    for (PendingRecord pending : run) {
+      payments.add(pending.payment());
+    }
+    if (!send(payments, run.getLast().sequence())) {
+      return false;
+    }
+    sentFromBacklog.add(run.size());
+    Timer timer = delays;
+    if (timer != null) {
+      timer.record(System.nanoTime() - run.getFirst().appendedAt(), TimeUnit.NANOSECONDS);
+    }
+    return true;
+  }
+
+  // Takes up to maxBatchSize records, lingering up to maxLinger for the batch to fill up. False
+  // when there is nothing to send at all.
+  private boolean fill(List<PendingRecord> batch) {
+    PendingRecord first = backlog.poll();
+    if (first == null) {
+      return appended > acknowledged;
+    }
+    long lingerStart = System.nanoTime();
+    batch.add(first);
+    while (batch.size() < maxBatchSize) {
+      PendingRecord next = backlog.poll();
+      if (next != null) {
+        batch.add(next);
+        continue;
+      }
+      long remaining = lingerStart + maxLingerNanos - System.nanoTime();
+      if (remaining <= 0 || !running) {
+        break;
+      }
+      LockSupport.parkNanos(this, Math.min(remaining, LINGER_PARK_NANOS));
+    }
+    return true;
+  }
+
+  // Sends the records after the acknowledged one up to toSequence, straight from the journal
+  private boolean catchUp(long toSequence) {
+    long fromSequence = acknowledged + 1;
+    LOG.info("Replication to {} is reading sequences {} to {} back from the journal", peer,
+        fromSequence, toSequence);
+    List<PostPaymentResponse> payments = new ArrayList<>(maxBatchSize);
+    long[] last = {0};
+    journal.read(fromSequence, toSequence, (sequence, payment) -> {
+      if (!running) {
+        return;
+      }
+      payments.add(payment);
+      last[0] = sequence;
+      if (payments.size() == maxBatchSize && send(payments, sequence)) {
+        sentFromJournal.add(payments.size());
+        payments.clear();
+      }
+    });
+    if (!running || !send(payments, last[0])) {
+      return false;
+    }
+    sentFromJournal.add(payments.size());
+    // Compaction may have dropped the tail of the range, and nothing else is left in it
+    acknowledge(toSequence);
+    return true;
+  }
+
+  // Retries until the peer takes the batch, backing off while it is unreachable. False only
+  // when the replicator is closed first.
+  private boolean send(List<PostPaymentResponse> payments, long lastSequence) {
+    if (payments.isEmpty()) {
+      return true;
+    }
+    byte[] records = PaymentRecordCodec.encodeAll(payments);
+    long backoff = retryBackoffNanos;
+    while (running) {
+      try {
+        transport.put(peer, records);
+        if (peerDown) {
+          peerDown = false;
+          LOG.info("Replication peer {} is reachable again", peer);
+        }
+        acknowledge(lastSequence);
+        return true;
+      } catch (RuntimeException ex) {
+        failures.increment();
+        if (!peerDown) {
+          peerDown = true;
+          LOG.warn("Unable to replicate {} payments to {}, retrying: {}", payments.size(), peer,
+              ex.getMessage());
+        }
+        LockSupport.parkNanos(this, backoff);
+        backoff = Math.min(backoff * 2, maxRetryBackoffNanos);
+      }
+    }
+    return false;
+  }
+
+  // Not forced: after a crash the peer is sent a few records it already has again
+  private void acknowledge(long sequence) {
+    if (sequence <= acknowledged) {
+      return;
+    }
+    acknowledged = sequence;
+    try {
+      offsetChannel.write(offsetBuffer.putLong(0, sequence).clear(), 0);
+    } catch (IOException ex) {
+      LOG.warn("Unable to persist replication offset {}", sequence, ex);
+    }
+  }
+
+  private record PendingRecord(long sequence, PostPaymentResponse payment, long appendedAt) {
+
+  }
+}
@@ -0,0 +1,247 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.LSB_OFFSET;
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.MSB_OFFSET;
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.RECORD_SIZE;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+// Immutable file of PaymentRecordCodec records sorted by payment ID, written once and then only
+// read through a read-only mapping. The file starts with a header (magic, format version, record
+// count, CRC32C of the records). Every indexInterval-th ID is kept on the heap as a sparse index,
+// together with a Bloom filter of all IDs, so a lookup is a filter check, a binary search of the
+// index and a binary search of one block of the file.
+final class PaymentSegment {
+
+  static final int MAGIC = 0x50534547; // "PSEG"
+  static final short FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final long MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+  static final Comparator<PostPaymentResponse> ORDER = (first, second) -> compare(
+      first.getId().getMostSignificantBits(), first.getId().getLeastSignificantBits(),
+      second.getId().getMostSignificantBits(), second.getId().getLeastSignificantBits());
+
+  private static final int WRITE_CHUNK_RECORDS = 1024;
+  private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final int records;
+  private final int indexInterval;
+  private final long[] indexMsb;
+  private final long[] indexLsb;
+  private final PaymentIdBloomFilter ids;
+
+  private PaymentSegment(Path path, MappedByteBuffer buffer, int records, int indexInterval) {
+    this.path = path;
+    this.buffer = buffer;
+    this.records = records;
+    this.indexInterval = indexInterval;
+    int entries = (records + indexInterval - 1) / indexInterval;
+    this.indexMsb = new long[entries];
+    this.indexLsb = new long[entries];
+    this.ids = new PaymentIdBloomFilter(Math.max(1, records), FILTER_FALSE_POSITIVE_RATE);
+    for (int i = 0; i < records; i++) {
+      int offset = offset(i);
+      long msb = buffer.getLong(offset + MSB_OFFSET);
+      long lsb = buffer.getLong(offset + LSB_OFFSET);
+      if (i % indexInterval == 0) {
+        indexMsb[i / indexInterval] = msb;
+        indexLsb[i / indexInterval] = lsb;
+      }
+      ids.add(new UUID(msb, lsb));
+    }
+  }
+
+  // Writes the payments, which must be sorted by ORDER with no repeated IDs, to a temporary file
+  // that is moved into place once complete, then opens the result
+  static PaymentSegment write(Path path, Iterator<PostPaymentResponse> payments,
+      int indexInterval) throws IOException {
+
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+      ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_RECORDS * RECORD_SIZE);
+      CRC32C crc = new CRC32C();
+      long written = 0;
+      channel.position(HEADER_SIZE);
+      while (payments.hasNext()) {
+        int count = 0;
+        while (count < WRITE_CHUNK_RECORDS && payments.hasNext()) {
+          PaymentRecordCodec.encode(payments.next(), chunk, count * RECORD_SIZE);
+          count++;
+        }
+        written += count;
+        if (written > MAX_RECORDS) {
+          throw new IOException("Too many records for one payment segment: " + written);
+        }
+        chunk.limit(count * RECORD_SIZE).position(0);
+        crc.update(chunk.duplicate());
+        while (chunk.hasRemaining()) {
+          channel.write(chunk);
+        }
+        chunk.clear();
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+          .putInt(MAGIC)
+          .putShort(FORMAT_VERSION)
+          .putShort((short) 0)
+          .putInt((int) written)
+          .putInt((int) crc.getValue())
+          .flip();
+      channel.write(header, 0);
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    return open(path, indexInterval);
+  }
+
+  static PaymentSegment open(Path path, int indexInterval) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw new IOException("Not a payment segment: " + path);
+      }
+      // The mapping stays valid after the channel is closed, and after the file is replaced
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+      int records = buffer.getInt(8);
+      if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != FORMAT_VERSION || records < 0
+          || HEADER_SIZE + (long) records * RECORD_SIZE != size) {
+        throw new IOException("Not a payment segment: " + path);
+      }
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.slice(HEADER_SIZE, records * RECORD_SIZE));
+      if ((int) crc.getValue() != buffer.getInt(12)) {
+        throw new IOException("Checksum mismatch in payment segment " + path);
+      }
+      return new PaymentSegment(path, buffer, records, indexInterval);
+    }
+  }
+
+  PostPaymentResponse get(UUID id) {
+    int offset = find(id);
+    return offset < 0 ? null : PaymentRecordCodec.decode(buffer, offset);
+  }
+
+  // Same search as get, without decoding the record
+  boolean contains(UUID id) {
+    return find(id) >= 0;
+  }
+
+  // Offset of the record with this ID, or -1
+  private int find(UUID id) {
+    if (records == 0 || !ids.mightContain(id)) {
+      return -1;
+    }
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+
+    // The last index entry not after the ID starts the only block that can hold it
+    int low = 0;
+    int high = indexMsb.length - 1;
+    int block = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (compare(indexMsb[mid], indexLsb[mid], msb, lsb) <= 0) {
+        block = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (block < 0) {
+      return -1;
+    }
+
+    low = block * indexInterval;
+    high = Math.min(records, low + indexInterval) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int offset = offset(mid);
+      int result = compare(buffer.getLong(offset + MSB_OFFSET),
+          buffer.getLong(offset + LSB_OFFSET), msb, lsb);
+      if (result == 0) {
+        return offset;
+      }
+      if (result < 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return -1;
+  }
+
+  Cursor cursor() {
+    return new Cursor();
+  }
+
+  Path path() {
+    return path;
+  }
+
+  int records() {
+    return records;
+  }
+
+  long fileBytes() {
+    return buffer.capacity();
+  }
+
+  long heapBytes() {
+    return (long) (indexMsb.length + indexLsb.length) * Long.BYTES + ids.memoryBytes();
+  }
+
+  static int compare(long msb, long lsb, long otherMsb, long otherLsb) {
+    int result = Long.compare(msb, otherMsb);
+    return result != 0 ? result : Long.compare(lsb, otherLsb);
+  }
+
+  private static int offset(int record) {
+    return HEADER_SIZE + record * RECORD_SIZE;
+  }
+
+  // Walks the records in ID order; the ID is read without decoding the rest of the record
+  final class Cursor {
+
+    private int next;
+    private int offset = -1;
+
+    boolean advance() {
+      if (next == records) {
+        return false;
+      }
+      offset = offset(next++);
+      return true;
+    }
+
+    long msb() {
+      return buffer.getLong(offset + MSB_OFFSET);
+    }
+
+    long lsb() {
+      return buffer.getLong(offset + LSB_OFFSET);
+    }
+
+    PostPaymentResponse payment() {
+      return PaymentRecordCodec.decode(buffer, offset);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Storage backend behind PaymentsRepository, selected with payments.repository.store:
+public interface PaymentStore {
+
+  void put(PostPaymentResponse payment);
+
+  // Backends that can share work across a batch, such as a journal force, override this
+  default void putAll(List<PostPaymentResponse> payments) {
+    for (PostPaymentResponse payment : payments) {
+      put(payment);
+    }
+  }
+
+  // Stores payments another node sent here, without sending them on to any other node
+  default void putLocal(List<PostPaymentResponse> payments) {
+    putAll(payments);
+  }
+
+  // Returns null when no payment with this ID has been stored
+  PostPaymentResponse get(UUID id);
+
+  // Same as get, but never goes over the network to another node
+  default PostPaymentResponse getLocal(UUID id) {
+    return get(id);
+  }
+
+  // Same as getLocal, for the gateway's own bookkeeping rather than a caller's read: a tiered
+  // store neither counts it in its read metrics nor promotes the payment into the hot tier
+  default PostPaymentResponse peek(UUID id) {
+    return getLocal(id);
+  }
+
+  // Whether this node keeps the payment itself, rather than only reaching it over the network
+  default boolean holdsLocally(UUID id) {
+    return true;
+  }
+
+  // Hands each ID to the consumer in the order given, with null for IDs that are not stored
+  default void getAll(List<UUID> ids, BiConsumer<UUID, PostPaymentResponse> results) {
+    for (UUID id : ids) {
+      results.accept(id, get(id));
+    }
+  }
+
+  long size();
+
+  // Visits every stored payment once, in no particular order; used to rebuild the indexes
+  void forEach(Consumer<PostPaymentResponse> action);
+
+}
@@ -1,22 +1,194 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.exception.PaymentQueriesDisabledException;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
-import java.util.HashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public class PaymentsRepository {
+public class PaymentsRepository implements MeterBinder {
 
-  private final HashMap<UUID, PostPaymentResponse> payments = new HashMap<>();
+  private final PaymentStore store;
+  private final PaymentIndex index;
+  private final PaymentIdBloomFilter bloomFilter;
+  private final PaymentReplicator replicator;
 
+  public PaymentsRepository() {
+    this(new InMemoryPaymentStore());
+  }
+
+  public PaymentsRepository(final PaymentStore store) {
+    this(store, Optional.empty());
+  }
+
+  public PaymentsRepository(final PaymentStore store,
+      final Optional<PaymentIdBloomFilter> bloomFilter) {
+    this(store, bloomFilter, Optional.empty(), Optional.empty());
+  }
+
+  @Autowired
+  public PaymentsRepository(final PaymentStore store,
+      final Optional<PaymentIdBloomFilter> bloomFilter,
+      final Optional<PaymentIndex> index,
+      final Optional<PaymentReplicator> replicator) {
+
+    this.store = store;
+    this.bloomFilter = bloomFilter.orElse(null);
+    this.index = index.orElse(null);
+    this.replicator = replicator.orElse(null);
+    if (this.bloomFilter == null && this.index == null) {
+      return;
+    }
+    // A journaled store has already been replayed by now
+    store.forEach(payment -> {
+      if (this.index != null) {
+        this.index.add(payment);
+      }
+      if (this.bloomFilter != null) {
+        this.bloomFilter.add(payment.getId());
+      }
+    });
+  }
+
+  // With the index enabled, the previous payment with the same ID is read first so its index
+  // entries can be moved. Only payments this node holds itself are indexed, so in sharded mode
+  // each node lists the payments it owns. The ID goes into the Bloom filter before the store, so a
+  // concurrent get never misses it.
   public void add(PostPaymentResponse payment) {
-    payments.put(payment.getId(), payment);
+    if (replicator != null) {
+      replicator.awaitBacklog();
+    }
+    boolean indexed = index != null && store.holdsLocally(payment.getId());
+    PostPaymentResponse previous = indexed ? store.peek(payment.getId()) : null;
+    if (bloomFilter != null) {
+      bloomFilter.add(payment.getId());
+    }
+    store.put(payment);
+    if (indexed) {
+      index.add(payment, previous);
+    }
+  }
+
+  public void addAll(List<PostPaymentResponse> payments) {
+    if (replicator != null) {
+      replicator.awaitBacklog();
+    }
+    if (bloomFilter != null) {
+      for (PostPaymentResponse payment : payments) {
+        bloomFilter.add(payment.getId());
+      }
+    }
+    List<PostPaymentResponse> indexed = indexed(payments);
+    List<PostPaymentResponse> previous = previousVersions(indexed);
+    store.putAll(payments);
+    index(indexed, previous);
+  }
+
+  // Payments another node of the cluster sent here because this node owns them. They are stored
+  // on this node only, and indexed like the payments written here.
+  public void addOwned(byte[] records) {
+    List<PostPaymentResponse> payments = PaymentRecordCodec.decodeAll(records);
+    List<PostPaymentResponse> indexed = index == null ? List.of() : payments;
+    List<PostPaymentResponse> previous = previousVersions(indexed);
+    store.putLocal(payments);
+    index(indexed, previous);
+  }
+
+  // Payments replicated from a peer node, in the order the peer wrote them. Only the last version
+  // of each payment in the batch is kept, and versions this node already holds are skipped, so a
+  // batch the peer sends again changes nothing.
+  public void addReplicas(byte[] records) {
+    Map<UUID, PostPaymentResponse> latest = new LinkedHashMap<>();
+    for (PostPaymentResponse payment : PaymentRecordCodec.decodeAll(records)) {
+      latest.remove(payment.getId());
+      latest.put(payment.getId(), payment);
+    }
+    List<PostPaymentResponse> changed = new ArrayList<>(latest.size());
+    for (PostPaymentResponse payment : latest.values()) {
+      if (!PaymentRecordCodec.sameRecord(store.peek(payment.getId()), payment)) {
+        changed.add(payment);
+      }
+    }
+    if (!changed.isEmpty()) {
+      addAll(changed);
+    }
   }
 
   public Optional<PostPaymentResponse> get(UUID id) {
-    return Optional.ofNullable(payments.get(id));
+    if (bloomFilter == null) {
+      return Optional.ofNullable(store.get(id));
+    }
+    if (!bloomFilter.mightContain(id)) {
+      return Optional.empty();
+    }
+    PostPaymentResponse payment = store.get(id);
+    if (payment == null) {
+      bloomFilter.recordFalsePositive();
+    }
+    return Optional.ofNullable(payment);
+  }
+
+  // Missing IDs are passed on with a null payment
+  public void getAll(List<UUID> ids, BiConsumer<UUID, PostPaymentResponse> results) {
+    store.getAll(ids, results);
+  }
+
+  public PaymentPage query(PaymentQuery query) {
+    if (index == null) {
+      throw new PaymentQueriesDisabledException("Payment queries are not enabled on this gateway");
+    }
+    // The index only lists payments held here, so pages are read without counting, promoting
+    // or routing them like client reads
+    return index.query(query, store::peek);
+  }
+
+  public long size() {
+    return store.size();
   }
 
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.repository.size", this, PaymentsRepository::size)
+        .description("Number of payments held by the repository")
+        .register(registry);
+  }
+
+  private List<PostPaymentResponse> indexed(List<PostPaymentResponse> payments) {
+    if (index == null) {
+      return List.of();
+    }
+    List<PostPaymentResponse> indexed = new ArrayList<>(payments.size());
+    for (PostPaymentResponse payment : payments) {
+      if (store.holdsLocally(payment.getId())) {
+        indexed.add(payment);
+      }
+    }
+    return indexed;
+  }
+
+  private List<PostPaymentResponse> previousVersions(List<PostPaymentResponse> payments) {
+    List<PostPaymentResponse> previous = new ArrayList<>(payments.size());
+    for (PostPaymentResponse payment : payments) {
+      previous.add(store.peek(payment.getId()));
+    }
+    return previous;
+  }
+
+  private void index(List<PostPaymentResponse> payments, List<PostPaymentResponse> previous) {
+    for (int i = 0; i < payments.size(); i++) {
+      index.add(payments.get(i), previous.get(i));
+    }
+  }
 }
@@ -0,0 +1,238 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.exception.PaymentClusterUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Sharded mode: each payment is stored on the replicationFactor nodes the hash ring picks for its
+// ID, and a read for a payment this node does not own is forwarded to its owners. A write
+// succeeds once at least one owner has stored it; owners that could not be reached are counted
+// and logged, and a read falls back to the next owner. size and forEach cover the payments held
+// locally, so the secondary indexes and GET /payments stay per node: each node lists the
+// payments it owns, whichever node they were written through.
+public class ShardedPaymentStore implements PaymentStore, MeterBinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedPaymentStore.class);
+
+  private final String self;
+  private final PaymentStore local;
+  private final ConsistentHashRing ring;
+  private final int replicationFactor;
+  private final PaymentPeerTransport peers;
+  private final Executor peerExecutor;
+
+  private final LongAdder forwardedWrites = new LongAdder();
+  private final LongAdder forwardedReads = new LongAdder();
+  private final LongAdder replicaWrites = new LongAdder();
+  private final LongAdder failedWrites = new LongAdder();
+  private final LongAdder failedReads = new LongAdder();
+
+  public ShardedPaymentStore(final String self, final PaymentStore local,
+      final ConsistentHashRing ring, final int replicationFactor,
+      final PaymentPeerTransport peers, final Executor peerExecutor) {
+
+    if (!ring.nodes().contains(self)) {
+      throw new IllegalArgumentException("This node is not in the cluster: " + self);
+    }
+    if (replicationFactor < 1) {
+      throw new IllegalArgumentException("Replication factor must be positive: "
+          + replicationFactor);
+    }
+    this.self = self;
+    this.local = local;
+    this.ring = ring;
+    this.replicationFactor = replicationFactor;
+    this.peers = peers;
+    this.peerExecutor = peerExecutor;
+  }
+
+  @Override
+  public void put(PostPaymentResponse payment) {
+    putAll(List.of(payment));
+  }
+
+  // One call per owner node for the whole batch; remote nodes are written concurrently
+  @Override
+  public void putAll(List<PostPaymentResponse> payments) {
+    Map<String, List<PostPaymentResponse>> byNode = new LinkedHashMap<>();
+    for (PostPaymentResponse payment : payments) {
+      for (String owner : ring.owners(payment.getId(), replicationFactor)) {
+        byNode.computeIfAbsent(owner, node -> new ArrayList<>()).add(payment);
+      }
+    }
+
+    List<PostPaymentResponse> localPayments = byNode.remove(self);
+    Map<String, CompletableFuture<Void>> remote = new LinkedHashMap<>();
+    byNode.forEach((node, nodePayments) -> {
+      byte[] records = PaymentRecordCodec.encodeAll(nodePayments);
+      remote.put(node, CompletableFuture.runAsync(() -> peers.put(node, records), peerExecutor));
+    });
+    if (localPayments != null) {
+      local.putAll(localPayments);
+    }
+
+    Set<String> failed = new HashSet<>();
+    remote.forEach((node, write) -> {
+      try {
+        write.join();
+        forwardedWrites.add(byNode.get(node).size());
+      } catch (RuntimeException ex) {
+        failed.add(node);
+        failedWrites.add(byNode.get(node).size());
+        LOG.warn("Unable to store {} payments on {}: {}", byNode.get(node).size(), node,
+            ex.getMessage());
+      }
+    });
+    if (failed.isEmpty()) {
+      return;
+    }
+    for (PostPaymentResponse payment : payments) {
+      if (failed.containsAll(ring.owners(payment.getId(), replicationFactor))) {
+        throw new PaymentClusterUnavailableException(
+            "No owner of payment " + payment.getId() + " could be reached");
+      }
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    List<String> owners = ring.owners(id, replicationFactor);
+    if (owners.contains(self)) {
+      PostPaymentResponse payment = local.get(id);
+      if (payment != null) {
+        return payment;
+      }
+    }
+
+    boolean answered = owners.contains(self);
+    for (String owner : owners) {
+      if (owner.equals(self)) {
+        continue;
+      }
+      try {
+        byte[] record = peers.get(owner, id);
+        forwardedReads.increment();
+        answered = true;
+        if (record != null) {
+          return PaymentRecordCodec.decodeAll(record).getFirst();
+        }
+      } catch (UncheckedIOException ex) {
+        failedReads.increment();
+        LOG.warn("Unable to read payment {} from {}: {}", id, owner, ex.getMessage());
+      }
+    }
+    if (!answered) {
+      throw new PaymentClusterUnavailableException(
+          "No owner of payment " + id + " could be reached");
+    }
+    return null;
+  }
+
+  // Only what this node holds; the indexes never need to go over the network
+  @Override
+  public PostPaymentResponse getLocal(UUID id) {
+    return local.get(id);
+  }
+
+  @Override
+  public PostPaymentResponse peek(UUID id) {
+    return local.peek(id);
+  }
+
+  @Override
+  public boolean holdsLocally(UUID id) {
+    return ring.owners(id, replicationFactor).contains(self);
+  }
+
+  @Override
+  public long size() {
+    return local.size();
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    local.forEach(action);
+  }
+
+  // Payments another node sent here because this node owns them
+  @Override
+  public void putLocal(List<PostPaymentResponse> payments) {
+    local.putAll(payments);
+    replicaWrites.add(payments.size());
+  }
+
+  public void putReplicas(byte[] records) {
+    putLocal(PaymentRecordCodec.decodeAll(records));
+  }
+
+  // Null when this node does not hold the payment
+  public byte[] getReplica(UUID id) {
+    PostPaymentResponse payment = local.get(id);
+    return payment == null ? null : PaymentRecordCodec.encodeAll(List.of(payment));
+  }
+
+  public long forwardedWrites() {
+    return forwardedWrites.sum();
+  }
+
+  public long forwardedReads() {
+    return forwardedReads.sum();
+  }
+
+  public long replicaWrites() {
+    return replicaWrites.sum();
+  }
+
+  public long failedWrites() {
+    return failedWrites.sum();
+  }
+
+  public long failedReads() {
+    return failedReads.sum();
+  }
+
+  // The local store is a bean of its own and binds its meters itself
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("payments.cluster.forwarded", this,
+            ShardedPaymentStore::forwardedWrites)
+        .description("Payments sent to the other nodes that own them")
+        .tag("operation", "write")
+        .register(registry);
+    FunctionCounter.builder("payments.cluster.forwarded", this,
+            ShardedPaymentStore::forwardedReads)
+        .description("Reads answered by another node that owns the payment")
+        .tag("operation", "read")
+        .register(registry);
+    FunctionCounter.builder("payments.cluster.replicas.received", this,
+            ShardedPaymentStore::replicaWrites)
+        .description("Payments stored here on behalf of another node")
+        .register(registry);
+    FunctionCounter.builder("payments.cluster.failures", this,
+            ShardedPaymentStore::failedWrites)
+        .description("Payments that could not be sent to one of their owners")
+        .tag("operation", "write")
+        .register(registry);
+    FunctionCounter.builder("payments.cluster.failures", this,
+            ShardedPaymentStore::failedReads)
+        .description("Forwarded reads that failed and fell back to the next owner")
+        .tag("operation", "read")
+        .register(registry);
+  }
+}
@@ -0,0 +1,590 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// On-disk payment store made of immutable sorted segment files. Writes go to an in-memory table;
+// once it holds memtableCapacity payments it is swapped for an empty one and queued, and a
+// background thread writes it out as a new PaymentSegment. The same thread merges the newest
+// segments into one when there are more than maxSegments, keeping the newest version of each
+// payment. A lookup checks the table, the queued tables, then the segments newest first. Only the
+// tables, the sparse indexes and the per-segment Bloom filters are on the heap. The tables are
+// written out on close; payments still in them are lost by a crash unless the journal is enabled
+// as well.
+public class SortedSegmentPaymentStore implements PaymentStore, MeterBinder, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SortedSegmentPaymentStore.class);
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private final Path directory;
+  private final int memtableCapacity;
+  private final int maxSegments;
+  private final int indexInterval;
+  private final ExecutorService merger;
+
+  // Writes share the read lock and swapping the table takes the write lock, so nothing is written
+  // to a table once it has been queued
+  private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+  // Serialises changes to the queued tables and the publication of new segments
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // Readers load the table, then the queued tables, then the segments. A table is queued before
+  // it is replaced, and its segment is published before it leaves the queue, so a payment is
+  // always in one of them.
+  private volatile ConcurrentHashMap<UUID, PostPaymentResponse> memtable;
+  private volatile List<ConcurrentHashMap<UUID, PostPaymentResponse>> flushing = List.of();
+  private volatile List<PaymentSegment> segments;
+  private long nextGeneration;
+  private volatile boolean closed;
+
+  private final LongAdder size = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder merges = new LongAdder();
+
+  public SortedSegmentPaymentStore(final Path directory, final int memtableCapacity,
+      final int maxSegments, final int indexInterval, final boolean virtualThreads) {
+
+    if (memtableCapacity < 1 || maxSegments < 2 || indexInterval < 1) {
+      throw new IllegalArgumentException("Invalid segment store settings: memtable "
+          + memtableCapacity + ", segments " + maxSegments + ", index " + indexInterval);
+    }
+    this.directory = directory;
+    this.memtableCapacity = memtableCapacity;
+    this.maxSegments = maxSegments;
+    this.indexInterval = indexInterval;
+    this.memtable = new ConcurrentHashMap<>();
+    this.merger = Executors.newSingleThreadExecutor(virtualThreads
+        ? Thread.ofVirtual().name("payment-segment-merger").factory()
+        : Thread.ofPlatform().name("payment-segment-merger").daemon().factory());
+
+    List<PaymentSegment> opened = new ArrayList<>();
+    try {
+      Files.createDirectories(directory);
+      for (Path path : files()) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          Files.delete(path);
+        } else if (name.endsWith(SEGMENT_SUFFIX)) {
+          opened.add(PaymentSegment.open(path, indexInterval));
+          nextGeneration = generation(path) + 1;
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to open payment segments in " + directory, ex);
+    }
+    this.segments = List.copyOf(opened);
+
+    forEach(payment -> size.increment());
+    LOG.info("Opened {} payment segments holding {} payments", opened.size(), size.sum());
+  }
+
+  // A full table is handed to the merger thread rather than written out here
+  @Override
+  public void put(PostPaymentResponse payment) {
+    ConcurrentHashMap<UUID, PostPaymentResponse> table;
+    tableLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Payment segment store is closed");
+      }
+      table = memtable;
+      if (table.put(payment.getId(), payment) == null && !heldOutsideTable(payment.getId())) {
+        size.increment();
+      }
+    } finally {
+      tableLock.readLock().unlock();
+    }
+    if (table.size() >= memtableCapacity) {
+      swap(table);
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    PostPaymentResponse payment = memtable.get(id);
+    if (payment != null) {
+      return payment;
+    }
+    List<ConcurrentHashMap<UUID, PostPaymentResponse>> queued = flushing;
+    for (int i = queued.size() - 1; i >= 0; i--) {
+      payment = queued.get(i).get(id);
+      if (payment != null) {
+        return payment;
+      }
+    }
+    List<PaymentSegment> current = segments;
+    for (int i = current.size() - 1; i >= 0; i--) {
+      payment = current.get(i).get(id);
+      if (payment != null) {
+        return payment;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public long size() {
+    return size.sum();
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    Snapshot snapshot = snapshot();
+    MergeIterator payments = new MergeIterator(snapshot.memtable(), snapshot.segments());
+    while (payments.hasNext()) {
+      action.accept(payments.next());
+    }
+  }
+
+  public int segmentCount() {
+    return segments.size();
+  }
+
+  public long diskBytes() {
+    long bytes = 0;
+    for (PaymentSegment segment : segments) {
+      bytes += segment.fileBytes();
+    }
+    return bytes;
+  }
+
+  // Sparse indexes and Bloom filters; the records themselves stay in the mapped files
+  public long indexHeapBytes() {
+    long bytes = 0;
+    for (PaymentSegment segment : segments) {
+      bytes += segment.heapBytes();
+    }
+    return bytes;
+  }
+
+  public int memtableSize() {
+    int payments = memtable.size();
+    for (ConcurrentHashMap<UUID, PostPaymentResponse> table : flushing) {
+      payments += table.size();
+    }
+    return payments;
+  }
+
+  public long flushes() {
+    return flushes.sum();
+  }
+
+  public long merges() {
+    return merges.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.repository.segments", this, SortedSegmentPaymentStore::segmentCount)
+        .description("Sorted payment segment files on disk")
+        .register(registry);
+    Gauge.builder("payments.repository.segments.disk", this,
+            SortedSegmentPaymentStore::diskBytes)
+        .description("Size of the sorted payment segment files")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("payments.repository.segments.index", this,
+            SortedSegmentPaymentStore::indexHeapBytes)
+        .description("Heap used by the sparse indexes and Bloom filters of the segments")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("payments.repository.segments.memtable", this,
+            SortedSegmentPaymentStore::memtableSize)
+        .description("Payments written but not yet in a segment file")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.segments.flushes", this,
+            SortedSegmentPaymentStore::flushes)
+        .description("Segment files written from the in-memory table")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.segments.merges", this,
+            SortedSegmentPaymentStore::merges)
+        .description("Runs of segment files merged into one")
+        .register(registry);
+  }
+
+  // Waits for the queued tables to be written out, so a clean shutdown keeps every payment
+  @Override
+  public void close() {
+    tableLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (!memtable.isEmpty()) {
+        queue(memtable);
+      }
+    } finally {
+      tableLock.writeLock().unlock();
+    }
+    merger.close();
+    // Tables the merger thread could not write, and the last one, are written here
+    for (ConcurrentHashMap<UUID, PostPaymentResponse> table : flushing) {
+      flush(table);
+    }
+  }
+
+  // Waits until the tables queued so far have been written out
+  void awaitFlushes() throws InterruptedException, ExecutionException {
+    merger.submit(() -> { }).get();
+  }
+
+  private void swap(ConcurrentHashMap<UUID, PostPaymentResponse> full) {
+    tableLock.writeLock().lock();
+    try {
+      // Another writer may have swapped it already
+      if (closed || memtable != full) {
+        return;
+      }
+      queue(full);
+      // Still under the write lock, so close cannot have shut the merger down yet
+      merger.execute(this::flushQueued);
+    } finally {
+      tableLock.writeLock().unlock();
+    }
+  }
+
+  // Called with the write lock held
+  private void queue(ConcurrentHashMap<UUID, PostPaymentResponse> table) {
+    lock.lock();
+    try {
+      List<ConcurrentHashMap<UUID, PostPaymentResponse>> queued = new ArrayList<>(flushing);
+      queued.add(table);
+      flushing = List.copyOf(queued);
+    } finally {
+      lock.unlock();
+    }
+    memtable = new ConcurrentHashMap<>();
+  }
+
+  // Runs on the merger thread. Tables are written oldest first, so a newer table always gets a
+  // newer segment; one that cannot be written stays queued, and readable, until the next attempt.
+  private void flushQueued() {
+    for (ConcurrentHashMap<UUID, PostPaymentResponse> table : flushing) {
+      try {
+        flush(table);
+      } catch (UncheckedIOException ex) {
+        LOG.warn("Unable to write {} payments to a segment, will retry", table.size(), ex);
+        return;
+      }
+    }
+    if (segments.size() > maxSegments && !closed) {
+      try {
+        merge();
+      } catch (RuntimeException | IOException ex) {
+        LOG.warn("Payment segment merge failed", ex);
+      }
+    }
+  }
+
+  // The table must be the oldest one queued
+  private void flush(ConcurrentHashMap<UUID, PostPaymentResponse> table) {
+    List<PostPaymentResponse> sorted = new ArrayList<>(table.values());
+    sorted.sort(PaymentSegment.ORDER);
+    Path path = directory.resolve(segmentName(nextGeneration));
+    PaymentSegment segment;
+    try {
+      segment = PaymentSegment.write(path, sorted.iterator(), indexInterval);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Unable to write payment segment " + path, ex);
+    }
+    nextGeneration++;
+
+    lock.lock();
+    try {
+      List<PaymentSegment> grown = new ArrayList<>(segments);
+      grown.add(segment);
+      segments = List.copyOf(grown);
+      flushing = List.copyOf(flushing.subList(1, flushing.size()));
+    } finally {
+      lock.unlock();
+    }
+    flushes.increment();
+  }
+
+  // Whether a payment missing from the current table is already counted. The per-segment Bloom
+  // filters answer for nearly every new ID without reading a segment.
+  private boolean heldOutsideTable(UUID id) {
+    for (ConcurrentHashMap<UUID, PostPaymentResponse> table : flushing) {
+      if (table.containsKey(id)) {
+        return true;
+      }
+    }
+    for (PaymentSegment segment : segments) {
+      if (segment.contains(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Merges the newest segments, taking in older ones only while they are no larger than what has
+  // been taken so far. Segment sizes then grow geometrically with age and each payment is
+  // rewritten a logarithmic number of times. Segments are only ever appended while this runs, so
+  // the run is still in place when the merged segment is published.
+  void merge() throws IOException {
+    List<PaymentSegment> current = segments;
+    if (current.size() < 2) {
+      return;
+    }
+    int from = current.size() - 1;
+    long records = current.get(from).records();
+    while (from > 0) {
+      long older = current.get(from - 1).records();
+      if (records + older > PaymentSegment.MAX_RECORDS
+          || (older > records && current.size() - from >= 2)) {
+        break;
+      }
+      from--;
+      records += older;
+    }
+    List<PaymentSegment> run = current.subList(from, current.size());
+    if (run.size() < 2) {
+      return;
+    }
+
+    // The merged file takes the place and name of the newest segment of the run
+    PaymentSegment newest = run.getLast();
+    PaymentSegment merged = PaymentSegment.write(newest.path(),
+        new MergeIterator(List.of(), run), indexInterval);
+
+    lock.lock();
+    try {
+      List<PaymentSegment> replaced = new ArrayList<>(segments);
+      int start = replaced.indexOf(run.getFirst());
+      replaced.subList(start, start + run.size()).clear();
+      replaced.add(start, merged);
+      segments = List.copyOf(replaced);
+    } finally {
+      lock.unlock();
+    }
+    // Readers still holding the old segments keep their mappings after the files are gone
+    for (PaymentSegment segment : run) {
+      if (segment != newest) {
+        Files.deleteIfExists(segment.path());
+      }
+    }
+    merges.increment();
+    LOG.info("Merged {} payment segments into {} with {} payments", run.size(),
+        newest.path().getFileName(), merged.records());
+  }
+
+  // The queued tables are folded into the current one, newest version winning, so the merge
+  // sees a single table that is newer than every segment
+  private Snapshot snapshot() {
+    ConcurrentHashMap<UUID, PostPaymentResponse> table = memtable;
+    List<ConcurrentHashMap<UUID, PostPaymentResponse>> queued = flushing;
+    List<PaymentSegment> current = segments;
+    List<PostPaymentResponse> sorted;
+    if (queued.isEmpty()) {
+      sorted = new ArrayList<>(table.values());
+    } else {
+      Map<UUID, PostPaymentResponse> latest = new HashMap<>();
+      for (ConcurrentHashMap<UUID, PostPaymentResponse> older : queued) {
+        latest.putAll(older);
+      }
+      latest.putAll(table);
+      sorted = new ArrayList<>(latest.values());
+    }
+    sorted.sort(PaymentSegment.ORDER);
+    return new Snapshot(sorted, current);
+  }
+
+  private List<Path> files() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().toList();
+    }
+  }
+
+  private static long generation(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private static String segmentName(long generation) {
+    return String.format("%020d%s", generation, SEGMENT_SUFFIX);
+  }
+
+  private record Snapshot(List<PostPaymentResponse> memtable, List<PaymentSegment> segments) {
+
+  }
+
+  // Every ID once, in ID order, with the version from the newest source. The sorted table is
+  // newer than any segment, and later segments are newer than earlier ones.
+  private static final class MergeIterator implements Iterator<PostPaymentResponse> {
+
+    private final PriorityQueue<Source> queue = new PriorityQueue<>();
+    private PostPaymentResponse next;
+
+    MergeIterator(List<PostPaymentResponse> memtable, List<PaymentSegment> segments) {
+      for (int i = 0; i < segments.size(); i++) {
+        SegmentSource source = new SegmentSource(segments.get(i).cursor(), segments.size() - i);
+        if (source.advance()) {
+          queue.add(source);
+        }
+      }
+      ListSource table = new ListSource(memtable.iterator());
+      if (table.advance()) {
+        queue.add(table);
+      }
+      next = poll();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public PostPaymentResponse next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      PostPaymentResponse result = next;
+      next = poll();
+      return result;
+    }
+
+    private PostPaymentResponse poll() {
+      Source newest = queue.poll();
+      if (newest == null) {
+        return null;
+      }
+      long msb = newest.msb();
+      long lsb = newest.lsb();
+      PostPaymentResponse payment = newest.payment();
+      requeue(newest);
+      // Older versions of the same payment sort right behind it
+      while (!queue.isEmpty() && queue.peek().msb() == msb && queue.peek().lsb() == lsb) {
+        requeue(queue.poll());
+      }
+      return payment;
+    }
+
+    private void requeue(Source source) {
+      if (source.advance()) {
+        queue.add(source);
+      }
+    }
+  }
+
+  // A position in one sorted source; rank 0 is the newest
+  private abstract static class Source implements Comparable<Source> {
+
+    private final int rank;
+
+    Source(int rank) {
+      this.rank = rank;
+    }
+
+    abstract boolean advance();
+
+    abstract long msb();
+
+    abstract long lsb();
+
+    abstract PostPaymentResponse payment();
+
+    @Override
+    public int compareTo(Source other) {
+      int result = PaymentSegment.compare(msb(), lsb(), other.msb(), other.lsb());
+      return result != 0 ? result : Integer.compare(rank, other.rank);
+    }
+  }
+
+  private static final class SegmentSource extends Source {
+
+    private final PaymentSegment.Cursor cursor;
+    private long msb;
+    private long lsb;
+
+    SegmentSource(PaymentSegment.Cursor cursor, int rank) {
+      super(rank);
+      this.cursor = cursor;
+    }
+
+    @Override
+    boolean advance() {
+      if (!cursor.advance()) {
+        return false;
+      }
+      msb = cursor.msb();
+      lsb = cursor.lsb();
+      return true;
+    }
+
+    @Override
+    long msb() {
+      return msb;
+    }
+
+    @Override
+    long lsb() {
+      return lsb;
+    }
+
+    @Override
+    PostPaymentResponse payment() {
+      return cursor.payment();
+    }
+  }
+
+  private static final class ListSource extends Source {
+
+    private final Iterator<PostPaymentResponse> payments;
+    private PostPaymentResponse current;
+
+    ListSource(Iterator<PostPaymentResponse> payments) {
+      super(0);
+      this.payments = payments;
+    }
+
+    @Override
+    boolean advance() {
+      current = payments.hasNext() ? payments.next() : null;
+      return current != null;
+    }
+
+    @Override
+    long msb() {
+      return current.getId().getMostSignificantBits();
+    }
+
+    @Override
+    long lsb() {
+      return current.getId().getLeastSignificantBits();
+    }
+
+    @Override
+    PostPaymentResponse payment() {
+      return current;
+    }
+  }
+}
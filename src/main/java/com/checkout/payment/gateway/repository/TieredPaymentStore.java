@@ -0,0 +1,205 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Bounded hot tier of recently used payments over a cold store that holds all of them. Writes go
+// to both tiers; a read the hot tier cannot answer goes to the cold store and promotes the payment
+// back into the hot tier. Caffeine's W-TinyLFU policy decides what the hot tier keeps, so a burst
+// of one-off reads does not push out payments that are read often.
+public class TieredPaymentStore implements PaymentStore, MeterBinder, AutoCloseable {
+
+  private static final int LOCK_STRIPES = 1024;
+
+  private final Cache<UUID, PostPaymentResponse> hot;
+  private final PaymentStore cold;
+
+  // A cold read and its promotion must not overtake a write of the same payment ID, or the hot
+  // tier could be left holding the older version:
+  private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+  private final LongAdder hotReads = new LongAdder();
+  private final LongAdder coldReads = new LongAdder();
+  private final LongAdder missingReads = new LongAdder();
+  private volatile Timer coldReadTimes;
+
+  public TieredPaymentStore(final long hotCapacity, final PaymentStore cold) {
+    this.hot = Caffeine.newBuilder()
+        .maximumSize(hotCapacity)
+        .recordStats()
+        .build();
+    this.cold = cold;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public void put(PostPaymentResponse payment) {
+    ReentrantLock stripe = stripes[stripe(payment.getId())];
+    stripe.lock();
+    try {
+      cold.put(payment);
+      hot.put(payment.getId(), payment);
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  // The stripes of the whole batch are taken in ascending order, as JournaledPaymentStore does,
+  // so the cold store still sees the batch in a single putAll
+  @Override
+  public void putAll(List<PostPaymentResponse> payments) {
+    BitSet held = new BitSet(LOCK_STRIPES);
+    for (PostPaymentResponse payment : payments) {
+      held.set(stripe(payment.getId()));
+    }
+    for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+      stripes[i].lock();
+    }
+    try {
+      cold.putAll(payments);
+      for (PostPaymentResponse payment : payments) {
+        hot.put(payment.getId(), payment);
+      }
+    } finally {
+      for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+        stripes[i].unlock();
+      }
+    }
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    PostPaymentResponse payment = hot.getIfPresent(id);
+    if (payment != null) {
+      hotReads.increment();
+      return payment;
+    }
+
+    ReentrantLock stripe = stripes[stripe(id)];
+    stripe.lock();
+    try {
+      // Another reader may have promoted it while we waited
+      payment = hot.getIfPresent(id);
+      if (payment != null) {
+        hotReads.increment();
+        return payment;
+      }
+      long start = System.nanoTime();
+      payment = cold.get(id);
+      Timer timer = coldReadTimes;
+      if (timer != null) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+      if (payment == null) {
+        missingReads.increment();
+        return null;
+      }
+      coldReads.increment();
+      hot.put(id, payment);
+      return payment;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  // Reads the hot tier without touching its stats or eviction policy, and leaves a payment found
+  // in the cold store there
+  @Override
+  public PostPaymentResponse peek(UUID id) {
+    PostPaymentResponse payment = hot.policy().getIfPresentQuietly(id);
+    return payment != null ? payment : cold.peek(id);
+  }
+
+  @Override
+  public long size() {
+    return cold.size();
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    cold.forEach(action);
+  }
+
+  public long hotReads() {
+    return hotReads.sum();
+  }
+
+  public long coldReads() {
+    return coldReads.sum();
+  }
+
+  public long missingReads() {
+    return missingReads.sum();
+  }
+
+  // Share of reads of stored payments answered by the hot tier
+  public double hotHitRatio() {
+    long hits = hotReads.sum();
+    long total = hits + coldReads.sum();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  public long hotSize() {
+    return hot.estimatedSize();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bindReads(registry, hotReads, "hot", "Payment reads answered by the hot tier");
+    bindReads(registry, coldReads, "cold",
+        "Payment reads answered by the cold store and promoted to the hot tier");
+    bindReads(registry, missingReads, "none", "Payment reads for IDs neither tier holds");
+    Gauge.builder("payments.repository.tier.hot.hit-ratio", this,
+            TieredPaymentStore::hotHitRatio)
+        .description("Share of reads of stored payments answered by the hot tier")
+        .register(registry);
+    Gauge.builder("payments.repository.tier.hot.size", this, TieredPaymentStore::hotSize)
+        .description("Payments currently held by the hot tier")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.tier.hot.evictions", hot,
+            cache -> cache.stats().evictionCount())
+        .description("Payments evicted from the hot tier")
+        .register(registry);
+    coldReadTimes = Timer.builder("payments.repository.tier.cold.read")
+        .description("Time to read a payment from the cold store")
+        .publishPercentileHistogram()
+        .register(registry);
+    if (cold instanceof MeterBinder binder) {
+      binder.bindTo(registry);
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (cold instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  private static void bindReads(MeterRegistry registry, LongAdder counter, String tier,
+      String description) {
+    FunctionCounter.builder("payments.repository.tier.reads", counter, LongAdder::sum)
+        .description(description)
+        .tag("tier", tier)
+        .register(registry);
+  }
+
+  private static int stripe(UUID id) {
+    return (id.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+  }
+}
@@ -0,0 +1,167 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.AcquiringBankUnavailableException;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Runs the payments of one batch through the acquiring bank with at most maxConcurrency calls in
+// flight. Answers that arrive while an earlier group is being stored queue up and are written to
+// the repository together, the same way the journal's group commit works, and each result is
+// handed on as soon as its write has gone through.
+@Component
+public class PaymentBatchProcessor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentBatchProcessor.class);
+
+  private final PaymentGatewayService paymentGatewayService;
+  private final Executor completionExecutor;
+  private final int maxConcurrency;
+
+  public PaymentBatchProcessor(final PaymentGatewayService paymentGatewayService,
+      @Qualifier("applicationTaskExecutor") final Executor completionExecutor,
+      @Value("${payments.batch.max-concurrency}") final int maxConcurrency) {
+
+    this.paymentGatewayService = paymentGatewayService;
+    this.completionExecutor = completionExecutor;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  // Results are passed to the consumer one at a time, in completion order; the future completes
+  // once every item has produced its result
+  public CompletableFuture<Void> process(final List<Item> items,
+      final Consumer<BatchPaymentResult> results) {
+
+    Run run = new Run(items, results);
+    run.start();
+    return run.done;
+  }
+
+  public record Item(int index, PaymentRequestDTO payment) {
+
+  }
+
+  private final class Run {
+
+    private final List<Item> items;
+    private final Consumer<BatchPaymentResult> results;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final Queue<Answered> answered = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private Run(List<Item> items, Consumer<BatchPaymentResult> results) {
+      this.items = items;
+      this.results = results;
+      this.remaining = new AtomicInteger(items.size());
+    }
+
+    private void start() {
+      if (items.isEmpty()) {
+        done.complete(null);
+        return;
+      }
+      for (int i = 0; i < Math.min(maxConcurrency, items.size()); i++) {
+        launchNext();
+      }
+    }
+
+    private void launchNext() {
+      int position = next.getAndIncrement();
+      if (position >= items.size()) {
+        return;
+      }
+      Item item = items.get(position);
+      CompletableFuture<PostPaymentResponse> authorization;
+      try {
+        authorization = paymentGatewayService.authorizeAsync(item.payment());
+      } catch (RuntimeException ex) {
+        authorization = CompletableFuture.failedFuture(ex);
+      }
+      // Storing may block on the journal, so it never runs on the HTTP client's I/O threads
+      authorization.whenCompleteAsync((payment, failure) -> {
+        answered.add(new Answered(item.index(), payment, failure));
+        launchNext();
+        flush();
+      }, completionExecutor);
+    }
+
+    // Whoever finds the lock free writes everything queued so far, including answers that
+    // arrived while it was writing; the others just leave theirs in the queue
+    private void flush() {
+      while (!answered.isEmpty() && flushLock.tryLock()) {
+        try {
+          List<Answered> group = new ArrayList<>();
+          Answered entry;
+          while ((entry = answered.poll()) != null) {
+            group.add(entry);
+          }
+          store(group);
+          if (remaining.addAndGet(-group.size()) == 0) {
+            done.complete(null);
+          }
+        } catch (RuntimeException ex) {
+          done.completeExceptionally(ex);
+        } finally {
+          flushLock.unlock();
+        }
+      }
+    }
+
+    private void store(List<Answered> group) {
+      List<PostPaymentResponse> payments = new ArrayList<>(group.size());
+      for (Answered entry : group) {
+        if (entry.payment() != null) {
+          payments.add(entry.payment());
+        }
+      }
+
+      String storeError = null;
+      if (!payments.isEmpty()) {
+        try {
+          paymentGatewayService.storeAll(payments);
+        } catch (RuntimeException ex) {
+          LOG.error("Unable to store {} batch payments", payments.size(), ex);
+          storeError = "Error storing payment";
+        }
+      }
+
+      for (Answered entry : group) {
+        if (entry.failure() != null) {
+          results.accept(BatchPaymentResult.failed(entry.index(), errorMessage(entry.failure())));
+        } else if (storeError != null) {
+          results.accept(BatchPaymentResult.failed(entry.index(), storeError));
+        } else {
+          results.accept(BatchPaymentResult.processed(entry.index(), entry.payment()));
+        }
+      }
+    }
+  }
+
+  private static String errorMessage(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+    return cause instanceof AcquiringBankUnavailableException
+        ? "Acquiring bank unavailable" : "Error processing payment";
+  }
+
+  private record Answered(int index, PostPaymentResponse payment, Throwable failure) {
+
+  }
+}
@@ -1,17 +1,33 @@
 package com.checkout.payment.gateway.service;
 
-import com.checkout.payment.gateway.client.AcquiringBankPaymentRequest;
 import com.checkout.payment.gateway.client.AcquiringBankPaymentResponse;
 import com.checkout.payment.gateway.client.AcquiringBankingClient;
 import com.checkout.payment.gateway.enums.PaymentStatus;
-import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
 import com.checkout.payment.gateway.model.PaymentRequestDTO;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,18 +37,48 @@ public class PaymentGatewayService {
 
   private final PaymentsRepository paymentsRepository;
   private final AcquiringBankingClient acquiringBankingClient;
+  private final Executor completionExecutor;
+  private final PaymentIdempotencyCache idempotencyCache;
+  private final PaymentMetrics paymentMetrics;
+  private final long missLogIntervalNanos;
+
+  private final AtomicLong nextMissLog = new AtomicLong(System.nanoTime());
+  private final LongAdder missesSinceLog = new LongAdder();
 
   public PaymentGatewayService(final PaymentsRepository paymentsRepository,
-      final AcquiringBankingClient acquiringBankingClient) {
+      final AcquiringBankingClient acquiringBankingClient,
+      @Qualifier("applicationTaskExecutor") final Executor completionExecutor,
+      final PaymentIdempotencyCache idempotencyCache, final PaymentMetrics paymentMetrics,
+      @Value("${payments.lookup.miss-log-interval}") final Duration missLogInterval) {
 
     this.paymentsRepository = paymentsRepository;
     this.acquiringBankingClient = acquiringBankingClient;
+    this.completionExecutor = completionExecutor;
+    this.idempotencyCache = idempotencyCache;
+    this.paymentMetrics = paymentMetrics;
+    this.missLogIntervalNanos = missLogInterval.toNanos();
   }
 
-  public PostPaymentResponse getPaymentById(UUID id) {
+  // Unknown IDs are routine (merchant retries, scanners), so a miss is not an exception: it is
+  // counted every time but logged at most once per interval, with the number of misses since
+  public Optional<PostPaymentResponse> findPaymentById(UUID id) {
     LOG.debug("Requesting access to to payment with ID {}", id);
-    return paymentsRepository.get(id)
-        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+    Optional<PostPaymentResponse> payment = paymentsRepository.get(id);
+    if (payment.isEmpty()) {
+      recordMiss(id);
+    }
+    return payment;
+  }
+
+  // Unknown IDs are an expected answer here, not an error: they reach the consumer with null
+  public void lookupPayments(List<UUID> ids, BiConsumer<UUID, PostPaymentResponse> results) {
+    LOG.debug("Looking up {} payments", ids.size());
+    paymentsRepository.getAll(ids, results);
+  }
+
+  public PaymentPage findPayments(PaymentQuery query) {
+    LOG.debug("Querying payments with {}", query);
+    return paymentsRepository.query(query);
   }
 
   // Input class is not valid cause it accepts only the 4 last digits of the card number:
@@ -42,22 +88,107 @@ public class PaymentGatewayService {
 
   public PostPaymentResponse processPayment(final PaymentRequestDTO paymentRequestDTO) {
 
-    // Convert PaymentRequestDTO to AcquiringBankPaymentRequest:
-    AcquiringBankPaymentRequest acquiringRequest = AcquiringBankPaymentRequest.builder()
-        .cardNumber(paymentRequestDTO.cardNumber())
-        .expiryDate(paymentRequestDTO.expiryMonth() + "/" + paymentRequestDTO.expiryYear())
-        .currency(
-            paymentRequestDTO.currency() != null ? paymentRequestDTO.currency().getCurrencyCode()
-                : null)
-        .amount(paymentRequestDTO.amount() != null ? paymentRequestDTO.amount().intValue() : 0)
-        .cvv(paymentRequestDTO.cvv())
-        .build();
-
     // Call acquiring bank client
-    AcquiringBankPaymentResponse acquiringBankPaymentResponse = acquiringBankingClient.processPayment(
-        acquiringRequest);
+    AcquiringBankPaymentResponse acquiringBankPaymentResponse;
+    long start = System.nanoTime();
+    try {
+      acquiringBankPaymentResponse = acquiringBankingClient.processPayment(paymentRequestDTO);
+    } catch (AcquiringBankException ex) {
+      paymentMetrics.recordBankError(ex.getStatusCode());
+      throw ex;
+    } finally {
+      paymentMetrics.recordBankCall(System.nanoTime() - start);
+    }
+
+    return store(paymentRequestDTO, acquiringBankPaymentResponse);
+  }
+
+  // Asynchronous variant: no thread waits for the acquiring bank. Storing the result may block on
+  // the journal, so it runs on the task executor rather than on the HTTP client's I/O threads.
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      final PaymentRequestDTO paymentRequestDTO) {
+
+    return callBank(paymentRequestDTO, null)
+        .thenApplyAsync(response -> store(paymentRequestDTO, response), completionExecutor);
+  }
+
+  // With an idempotency key, duplicates of the payment share one bank call and one stored
+  // response; the key also goes to the bank so its own retries are deduplicated there
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      final PaymentRequestDTO paymentRequestDTO, final String idempotencyKey) {
+
+    if (idempotencyKey == null) {
+      return processPaymentAsync(paymentRequestDTO);
+    }
+    return idempotencyCache.execute(idempotencyKey, paymentRequestDTO,
+        () -> callBank(paymentRequestDTO, idempotencyKey)
+            .thenApplyAsync(response -> store(paymentRequestDTO, response), completionExecutor));
+  }
+
+  private CompletableFuture<AcquiringBankPaymentResponse> callBank(
+      final PaymentRequestDTO paymentRequestDTO, final String idempotencyKey) {
+
+    // The DTO goes to the client as is; it is encoded straight into the bank's wire format
+    long start = System.nanoTime();
+    CompletableFuture<AcquiringBankPaymentResponse> bankCall = idempotencyKey == null
+        ? acquiringBankingClient.processPaymentAsync(paymentRequestDTO)
+        : acquiringBankingClient.processPaymentAsync(paymentRequestDTO, idempotencyKey);
+    return bankCall.whenComplete((response, failure) -> {
+      paymentMetrics.recordBankCall(System.nanoTime() - start);
+      Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+      if (cause instanceof AcquiringBankException bankError) {
+        paymentMetrics.recordBankError(bankError.getStatusCode());
+      }
+    });
+  }
+
+  // Bank call and mapping only, for callers that store the results in bulk with storeAll
+  public CompletableFuture<PostPaymentResponse> authorizeAsync(
+      final PaymentRequestDTO paymentRequestDTO) {
+
+    return callBank(paymentRequestDTO, null)
+        .thenApply(response -> toPostPaymentResponse(paymentRequestDTO, response));
+  }
+
+  public void storeAll(final List<PostPaymentResponse> payments) {
+    long start = System.nanoTime();
+    paymentsRepository.addAll(payments);
+    paymentMetrics.recordRepositoryWrite(System.nanoTime() - start);
+    for (PostPaymentResponse payment : payments) {
+      paymentMetrics.recordOutcome(payment.getStatus(),
+          CurrencyRegistry.byCode(payment.getCurrency()));
+    }
+  }
+
+  // Save transaction to the repository
+  private PostPaymentResponse store(final PaymentRequestDTO paymentRequestDTO,
+      final AcquiringBankPaymentResponse acquiringBankPaymentResponse) {
+
+    PostPaymentResponse postPaymentResponse =
+        toPostPaymentResponse(paymentRequestDTO, acquiringBankPaymentResponse);
+
+    long start = System.nanoTime();
+    paymentsRepository.add(postPaymentResponse);
+    paymentMetrics.recordRepositoryWrite(System.nanoTime() - start);
+    paymentMetrics.recordOutcome(postPaymentResponse.getStatus(), paymentRequestDTO.currency());
+
+    return postPaymentResponse;
+  }
+
+  private void recordMiss(UUID id) {
+    paymentMetrics.recordLookupMiss();
+    missesSinceLog.increment();
+    long now = System.nanoTime();
+    long next = nextMissLog.get();
+    if (now - next >= 0 && nextMissLog.compareAndSet(next, now + missLogIntervalNanos)) {
+      LOG.info("Payment {} not found ({} unknown payment IDs requested since the last report)",
+          id, missesSinceLog.sumThenReset());
+    }
+  }
+
+  private PostPaymentResponse toPostPaymentResponse(final PaymentRequestDTO paymentRequestDTO,
+      final AcquiringBankPaymentResponse acquiringBankPaymentResponse) {
 
-    // Save transaction to the repository
     PostPaymentResponse postPaymentResponse = new PostPaymentResponse();
 
     postPaymentResponse.setStatus(
@@ -75,13 +206,12 @@ public class PaymentGatewayService {
 
     postPaymentResponse.setExpiryMonth(paymentRequestDTO.expiryMonth());
     postPaymentResponse.setExpiryYear(paymentRequestDTO.expiryYear());
-    postPaymentResponse.setCurrency(paymentRequestDTO.currency().getCurrencyCode());
-    postPaymentResponse.setAmount(paymentRequestDTO.amount().intValue());
-
-    paymentsRepository.add(postPaymentResponse);
+    postPaymentResponse.setCurrency(paymentRequestDTO.currency().code());
+    // Every currency limit fits an int, so this only throws for a request that skipped validation
+    postPaymentResponse.setAmount(Math.toIntExact(paymentRequestDTO.amount()));
+    postPaymentResponse.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
 
     return postPaymentResponse;
-
   }
 
   private UUID generatePaymentId(final String paymentId) {
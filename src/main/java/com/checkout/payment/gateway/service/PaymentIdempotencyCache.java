@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyReuseException;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Deduplicates payments by their Idempotency-Key. The first request for a key starts the payment;
+// requests arriving while it is in flight share its future, and later ones get the stored
+// response without reaching the bank. Entries expire after the TTL, and Caffeine's W-TinyLFU
+// policy evicts the least valuable ones beyond maxEntries. Failed payments are forgotten so they
+// can be retried.
+@Component
+public class PaymentIdempotencyCache implements MeterBinder {
+
+  private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+
+  private final Cache<String, Entry> entries;
+  // Never leaves the process, so fingerprints cannot be brute-forced back into card numbers
+  private final SecretKeySpec fingerprintKey;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+  private final LongAdder mismatches = new LongAdder();
+
+  public PaymentIdempotencyCache(@Value("${payments.idempotency.ttl}") final Duration ttl,
+      @Value("${payments.idempotency.max-entries}") final long maxEntries) {
+
+    this.entries = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxEntries)
+        .recordStats()
+        .build();
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    this.fingerprintKey = new SecretKeySpec(key, FINGERPRINT_ALGORITHM);
+  }
+
+  public CompletableFuture<PostPaymentResponse> execute(String idempotencyKey,
+      PaymentRequestDTO request, Supplier<CompletableFuture<PostPaymentResponse>> payment) {
+
+    Entry created = new Entry(fingerprint(request), new CompletableFuture<>());
+    Entry existing = entries.asMap().putIfAbsent(idempotencyKey, created);
+
+    if (existing != null) {
+      if (!Arrays.equals(existing.fingerprint(), created.fingerprint())) {
+        mismatches.increment();
+        throw new IdempotencyKeyReuseException(
+            "Idempotency key was already used for a different payment");
+      }
+      if (existing.response().isDone()) {
+        hits.increment();
+      } else {
+        collapsed.increment();
+      }
+      return existing.response();
+    }
+
+    misses.increment();
+    CompletableFuture<PostPaymentResponse> started;
+    try {
+      started = payment.get();
+    } catch (RuntimeException ex) {
+      started = CompletableFuture.failedFuture(ex);
+    }
+    started.whenComplete((response, error) -> {
+      if (error != null) {
+        entries.asMap().remove(idempotencyKey, created);
+        created.response().completeExceptionally(error);
+      } else {
+        created.response().complete(response);
+      }
+    });
+    return created.response();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bindCounter(registry, hits, "hit", "Duplicates answered with a stored response");
+    bindCounter(registry, misses, "miss", "First requests for an idempotency key");
+    bindCounter(registry, collapsed, "collapsed",
+        "Duplicates that joined a payment still in flight");
+    bindCounter(registry, mismatches, "mismatch",
+        "Keys reused for a payment with different details");
+    FunctionCounter.builder("payments.idempotency.evictions", entries,
+            cache -> cache.stats().evictionCount())
+        .description("Idempotency entries evicted by size or expiry")
+        .register(registry);
+    Gauge.builder("payments.idempotency.size", entries, Cache::estimatedSize)
+        .description("Idempotency keys currently remembered")
+        .register(registry);
+  }
+
+  private static void bindCounter(MeterRegistry registry, LongAdder counter, String result,
+      String description) {
+    FunctionCounter.builder("payments.idempotency.requests", counter, LongAdder::sum)
+        .description(description)
+        .tag("result", result)
+        .register(registry);
+  }
+
+  // Only a keyed digest of the request is kept, never the card number itself. The CVV is left out
+  // altogether: nothing derived from it may be kept once the payment is authorized.
+  private byte[] fingerprint(PaymentRequestDTO request) {
+    String details = String.join("|", request.cardNumber(),
+        request.expiryMonth() + "/" + request.expiryYear(),
+        String.valueOf(request.currency()), String.valueOf(request.amount()));
+    try {
+      Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+      mac.init(fingerprintKey);
+      return mac.doFinal(details.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException(FINGERPRINT_ALGORITHM + " is not available", ex);
+    }
+  }
+
+  private record Entry(byte[] fingerprint, CompletableFuture<PostPaymentResponse> response) {
+
+  }
+}
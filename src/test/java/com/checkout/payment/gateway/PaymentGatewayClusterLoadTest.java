@@ -0,0 +1,160 @@
+package com.checkout.payment.gateway;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.simulator.EmbeddedBankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Several gateway nodes in sharded mode, each its own Spring context in this JVM, against the
+// embedded bank simulator. Each node may only have BANK_CALLS_PER_NODE calls to the bank in
+// flight and the bank takes BANK_LATENCY per call, so one node tops out at a known write rate;
+// clients hit every node with that much concurrency, and total write throughput should grow with
+// the node count while the replication traffic between the nodes stays off the critical path.
+@Tag("benchmark")
+class PaymentGatewayClusterLoadTest {
+
+  private static final int[] CLUSTER_SIZES = {1, 2, 4};
+  private static final int BANK_CALLS_PER_NODE = 32;
+  private static final Duration BANK_LATENCY = Duration.ofMillis(25);
+  private static final Duration WARM_UP = Duration.ofSeconds(5);
+  private static final Duration RUN_TIME = Duration.ofSeconds(15);
+  private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+  private static final String BODY = "{\"card_number\":\"2222405343248877\",\"expiry_month\":4,"
+      + "\"expiry_year\":2035,\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}";
+
+  private EmbeddedBankSimulator bank;
+  private HttpClient httpClient;
+  private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    bank = new EmbeddedBankSimulator(LatencyDistribution.fixed(BANK_LATENCY));
+    httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    stopCluster();
+    httpClient.close();
+    bank.close();
+  }
+
+  @Test
+  void writeThroughput_shouldScaleWithTheNodeCount() throws Exception {
+    double[] throughput = new double[CLUSTER_SIZES.length];
+    for (int i = 0; i < CLUSTER_SIZES.length; i++) {
+      List<String> urls = startCluster(CLUSTER_SIZES[i]);
+      writeFor(urls, WARM_UP);
+      throughput[i] = writeFor(urls, RUN_TIME);
+      System.out.printf("%d node(s): %,.0f payments/s, %.2fx one node%n", CLUSTER_SIZES[i],
+          throughput[i], throughput[i] / throughput[0]);
+      assertReadableFromEveryNode(urls);
+      stopCluster();
+    }
+
+    for (int i = 1; i < CLUSTER_SIZES.length; i++) {
+      assertThat(throughput[i]).isGreaterThan(0.8 * CLUSTER_SIZES[i] * throughput[0]);
+    }
+  }
+
+  // Every node must hold or be able to fetch a payment written through any other node
+  private void assertReadableFromEveryNode(List<String> urls) throws Exception {
+    for (String writer : urls) {
+      String id = post(writer);
+      for (String reader : urls) {
+        HttpResponse<String> response = httpClient.send(
+            HttpRequest.newBuilder(URI.create(reader + "/payment/" + id)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+      }
+    }
+  }
+
+  // Closed loop: as many clients per node as the node may have bank calls in flight
+  private double writeFor(List<String> urls, Duration duration) throws Exception {
+    LongAdder written = new LongAdder();
+    long deadline = System.nanoTime() + duration.toNanos();
+    long start = System.nanoTime();
+    try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (String url : urls) {
+        for (int c = 0; c < BANK_CALLS_PER_NODE; c++) {
+          clients.submit(() -> {
+            while (System.nanoTime() < deadline) {
+              if (post(url) != null) {
+                written.increment();
+              }
+            }
+            return null;
+          });
+        }
+      }
+    }
+    return written.sum() / ((System.nanoTime() - start) / 1_000_000_000.0);
+  }
+
+  private String post(String url) throws Exception {
+    HttpResponse<String> response = httpClient.send(
+        HttpRequest.newBuilder(URI.create(url + "/payment"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(BODY))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 201) {
+      return null;
+    }
+    Matcher matcher = ID.matcher(response.body());
+    return matcher.find() ? matcher.group(1) : null;
+  }
+
+  // Ports are picked up front because every node has to know the whole membership when it starts
+  private List<String> startCluster(int size) throws IOException {
+    List<String> urls = new ArrayList<>();
+    List<Integer> ports = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      try (ServerSocket socket = new ServerSocket(0)) {
+        ports.add(socket.getLocalPort());
+        urls.add("http://localhost:" + socket.getLocalPort());
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      nodes.add(new SpringApplicationBuilder(PaymentGatewayApplication.class)
+          .properties("server.port=" + ports.get(i),
+              "services.acquiring-banking.base-url=" + bank.baseUrl(),
+              "services.acquiring-banking.bulkhead.max-concurrent-calls=" + BANK_CALLS_PER_NODE,
+              "payments.cluster.enabled=true",
+              "payments.cluster.self=" + urls.get(i),
+              "payments.cluster.nodes=" + String.join(",", urls),
+              "payments.cluster.replication-factor=2")
+          .run());
+    }
+    return urls;
+  }
+
+  private void stopCluster() {
+    nodes.forEach(ConfigurableApplicationContext::close);
+    nodes.clear();
+  }
+}
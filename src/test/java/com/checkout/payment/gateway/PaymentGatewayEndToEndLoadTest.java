@@ -0,0 +1,64 @@
+package com.checkout.payment.gateway;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.simulator.EmbeddedBankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import com.checkout.payment.gateway.simulator.LoadDriver;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// The whole gateway in one JVM against the embedded bank simulator, driven open-loop at a few
+// fixed arrival rates with a mix of POST /payment and GET /payment/{id}. The bank answers with
+// a long-tailed latency (median 20 ms, p99 150 ms).
+@Tag("benchmark")
+class PaymentGatewayEndToEndLoadTest {
+
+  private static final Duration WARM_UP = Duration.ofSeconds(10);
+  private static final Duration RUN_TIME = Duration.ofSeconds(30);
+  private static final double[] ARRIVAL_RATES = {500, 1000, 2000, 4000};
+  private static final double READ_SHARE = 0.5;
+  // Authorized and declined cards; a card ending in 0 would make the bank answer 503
+  private static final List<String> CARD_NUMBERS = List.of("2222405343248877",
+      "2222405343248871", "2222405343248112", "2222405343248114");
+
+  private EmbeddedBankSimulator bank;
+  private ConfigurableApplicationContext context;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    bank = new EmbeddedBankSimulator(
+        LatencyDistribution.logNormal(Duration.ofMillis(20), Duration.ofMillis(150)));
+    context = new SpringApplicationBuilder(PaymentGatewayApplication.class)
+        .properties("server.port=0", "services.acquiring-banking.base-url=" + bank.baseUrl())
+        .run();
+  }
+
+  @AfterEach
+  void tearDown() {
+    context.close();
+    bank.close();
+  }
+
+  @Test
+  void latencyPercentiles_atFixedArrivalRates() {
+    String gatewayUrl = "http://localhost:"
+        + context.getEnvironment().getProperty("local.server.port");
+
+    try (LoadDriver driver = new LoadDriver(gatewayUrl, CARD_NUMBERS)) {
+      driver.run(ARRIVAL_RATES[0], WARM_UP, READ_SHARE);
+
+      for (double rate : ARRIVAL_RATES) {
+        LoadDriver.Result result = driver.run(rate, RUN_TIME, READ_SHARE);
+        result.print(System.out);
+        assertThat(result.posts().latencies().getTotalCount()).isPositive();
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.checkout.payment.gateway;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.simulator.EmbeddedBankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Sustainable POST /payment throughput with platform versus virtual request threads, against a
+// bank stub that takes 200 ms to answer. A concurrency level counts as sustained while p99 stays
+// under SUSTAINED_P99 and nothing fails.
+@Tag("benchmark")
+class PaymentGatewayLoadTest {
+
+  private static final Duration BANK_LATENCY = Duration.ofMillis(200);
+  private static final Duration SUSTAINED_P99 = Duration.ofMillis(400);
+  private static final Duration RUN_TIME = Duration.ofSeconds(5);
+  private static final int[] CONCURRENCY = {100, 200, 400, 800, 1600};
+
+  private static final String PAYMENT = "{\"card_number\":\"2222405343248877\","
+      + "\"expiry_month\":4,\"expiry_year\":2035,\"currency\":\"GBP\",\"amount\":100,"
+      + "\"cvv\":\"123\"}";
+
+  private EmbeddedBankSimulator bank;
+  private HttpClient httpClient;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    bank = new EmbeddedBankSimulator(LatencyDistribution.fixed(BANK_LATENCY));
+    httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    httpClient.close();
+    bank.close();
+  }
+
+  @Test
+  void maxSustainableThroughput_platformThreads_comparedToVirtualThreads() throws Exception {
+    double platform = maxSustainableThroughput(false);
+    double virtual = maxSustainableThroughput(true);
+
+    System.out.printf("max sustainable: platform threads %,.0f req/s, virtual threads %,.0f "
+        + "req/s%n", platform, virtual);
+    assertThat(virtual).isGreaterThan(0);
+  }
+
+  private double maxSustainableThroughput(boolean virtualThreads) throws Exception {
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(PaymentGatewayApplication.class)
+            .properties("server.port=0",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "services.acquiring-banking.base-url=" + bank.baseUrl())
+            .run()) {
+
+      URI uri = URI.create("http://localhost:"
+          + context.getEnvironment().getProperty("local.server.port") + "/payment");
+      double best = 0;
+      for (int concurrency : CONCURRENCY) {
+        Result result = run(uri, concurrency);
+        System.out.printf("%s threads, %d concurrent: %,.0f req/s, p99 %d ms, %d failed%n",
+            virtualThreads ? "virtual" : "platform", concurrency, result.throughput(),
+            result.p99Millis(), result.failures());
+        if (result.failures() > 0 || result.p99Millis() > SUSTAINED_P99.toMillis()) {
+          break;
+        }
+        best = Math.max(best, result.throughput());
+      }
+      return best;
+    }
+  }
+
+  // Closed loop: every client sends its next payment as soon as the previous one is answered
+  private Result run(URI uri, int concurrency) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(uri)
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(10))
+        .POST(HttpRequest.BodyPublishers.ofString(PAYMENT))
+        .build();
+
+    LongAdder failures = new LongAdder();
+    long deadline = System.nanoTime() + RUN_TIME.toNanos();
+    List<Future<List<Long>>> clients = new ArrayList<>();
+    long start = System.nanoTime();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < concurrency; i++) {
+        clients.add(executor.submit(() -> {
+          List<Long> latencies = new ArrayList<>();
+          while (System.nanoTime() < deadline) {
+            long begin = System.nanoTime();
+            try {
+              HttpResponse<Void> response =
+                  httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+              if (response.statusCode() != 201) {
+                failures.increment();
+              }
+            } catch (IOException ex) {
+              failures.increment();
+            }
+            latencies.add(System.nanoTime() - begin);
+          }
+          return latencies;
+        }));
+      }
+
+      List<Long> all = new ArrayList<>();
+      for (Future<List<Long>> client : clients) {
+        all.addAll(client.get(RUN_TIME.toSeconds() + 30, TimeUnit.SECONDS));
+      }
+      double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+      long[] sorted = all.stream().mapToLong(Long::longValue).toArray();
+      Arrays.sort(sorted);
+      long p99 = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(0.99 * sorted.length) - 1];
+      return new Result(sorted.length / elapsedSeconds, TimeUnit.NANOSECONDS.toMillis(p99),
+          failures.sum());
+    }
+  }
+
+  private record Result(double throughput, long p99Millis, long failures) {
+
+  }
+}
@@ -0,0 +1,55 @@
+package com.checkout.payment.gateway.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class AcquiringBankRequestEncoderTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void encode_shouldMatchJacksonOutput_forAValidPayment() throws Exception {
+    PaymentRequestDTO payment = PaymentRequestDTO.builder()
+        .cardNumber("2222405343248877")
+        .expiryMonth(4)
+        .expiryYear(2035)
+        .currency(CurrencyRegistry.byCode("GBP"))
+        .amount(1050)
+        .cvv("123")
+        .build();
+
+    assertThat(new String(AcquiringBankRequestEncoder.encode(payment), StandardCharsets.UTF_8))
+        .isEqualTo(jackson(payment))
+        .isEqualTo("{\"card_number\":\"2222405343248877\",\"expiry_date\":\"4/2035\","
+            + "\"currency\":\"GBP\",\"amount\":1050,\"cvv\":\"123\"}");
+  }
+
+  @Test
+  void encode_shouldMatchJacksonOutput_forMissingAndUnusualValues() throws Exception {
+    PaymentRequestDTO payment = PaymentRequestDTO.builder()
+        .cardNumber("12\"3\\4\u00e9\n")
+        .expiryMonth(-1)
+        .expiryYear(Integer.MIN_VALUE)
+        .amount(Long.MIN_VALUE)
+        .build();
+
+    assertThat(new String(AcquiringBankRequestEncoder.encode(payment), StandardCharsets.UTF_8))
+        .isEqualTo(jackson(payment));
+  }
+
+  // What the client sent before: an AcquiringBankPaymentRequest written by Jackson
+  private String jackson(PaymentRequestDTO payment) throws Exception {
+    return objectMapper.writeValueAsString(AcquiringBankPaymentRequest.builder()
+        .cardNumber(payment.cardNumber())
+        .expiryDate(payment.expiryMonth() + "/" + payment.expiryYear())
+        .currency(payment.currency() != null ? payment.currency().code() : null)
+        .amount(payment.amount())
+        .cvv(payment.cvv())
+        .build());
+  }
+}
@@ -0,0 +1,151 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.configuration.ApplicationConfiguration;
+import com.checkout.payment.gateway.simulator.EmbeddedBankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+// Latency of the pooled client against the previous unpooled setup. Runs against the mountebank
+// simulator when BANK_SIMULATOR_URL is set (e.g. http://localhost:8080), otherwise against the
+// embedded simulator.
+@Tag("benchmark")
+class AcquiringBankingClientBenchmarkTest {
+
+  private static final int THREADS = 64;
+  private static final int REQUESTS_PER_THREAD = 500;
+
+  private EmbeddedBankSimulator stub;
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    baseUrl = System.getenv("BANK_SIMULATOR_URL");
+    if (baseUrl != null) {
+      return;
+    }
+    stub = new EmbeddedBankSimulator(LatencyDistribution.none());
+    baseUrl = stub.baseUrl();
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (stub != null) {
+      stub.close();
+    }
+  }
+
+  @Test
+  void p99_pooledKeepAliveClient_comparedToUnpooledClient() throws Exception {
+    // The previous RestTemplate went through HttpURLConnection, which keeps at most five idle
+    // connections per host and opens a fresh one for everything above that:
+    SimpleClientHttpRequestFactory unpooledFactory = new SimpleClientHttpRequestFactory();
+    unpooledFactory.setConnectTimeout(Duration.ofSeconds(10));
+    unpooledFactory.setReadTimeout(Duration.ofSeconds(10));
+    ApplicationConfiguration configuration = new ApplicationConfiguration();
+    ObjectMapper objectMapper = new ObjectMapper();
+    PoolingHttpClientConnectionManager connectionManager =
+        configuration.acquiringBankConnectionManager(200, 100, Duration.ofSeconds(10),
+            Duration.ofSeconds(10));
+    PoolingAsyncClientConnectionManager asyncConnectionManager =
+        configuration.acquiringBankAsyncConnectionManager(200, 100, Duration.ofSeconds(10),
+            Duration.ofSeconds(10));
+    try (CloseableHttpClient httpClient = configuration.acquiringBankHttpClient(connectionManager,
+        Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30),
+        Duration.ofSeconds(30));
+        CloseableHttpAsyncClient asyncHttpClient = configuration.acquiringBankAsyncHttpClient(
+            asyncConnectionManager, Duration.ofSeconds(10), Duration.ofSeconds(1),
+            Duration.ofSeconds(30), Duration.ofSeconds(30))) {
+      AcquiringBankingClient unpooled = new AcquiringBankingClient(
+          RestClient.builder().baseUrl(baseUrl).requestFactory(unpooledFactory).build(),
+          asyncHttpClient, objectMapper, baseUrl, circuitBreaker(), noRetries());
+      AcquiringBankingClient pooled = new AcquiringBankingClient(
+          configuration.acquiringBankRestClient(RestClient.builder(), httpClient, baseUrl),
+          asyncHttpClient, objectMapper, baseUrl, circuitBreaker(), noRetries());
+
+      for (int round = 0; round < 3; round++) {
+        long[] unpooledLatencies = measure(unpooled);
+        long[] pooledLatencies = measure(pooled);
+        System.out.printf("round %d: unpooled %s | pooled %s%n", round,
+            summary(unpooledLatencies), summary(pooledLatencies));
+      }
+    }
+  }
+
+  // Never trips or limits the benchmark load
+  private static BankCircuitBreaker circuitBreaker() {
+    return new BankCircuitBreaker(100, 100, 100, Duration.ofMinutes(1), Duration.ofSeconds(1), 1,
+        THREADS);
+  }
+
+  private static BankRetryPolicy noRetries() {
+    return new BankRetryPolicy(1, Duration.ZERO, Duration.ZERO, Duration.ofMinutes(1), false,
+        Duration.ZERO);
+  }
+
+  private static long[] measure(AcquiringBankingClient client) throws Exception {
+    AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder()
+        .cardNumber("2222405343248877")
+        .expiryDate("04/2030")
+        .currency("GBP")
+        .amount(100)
+        .cvv("123")
+        .build();
+
+    long[] latencies = new long[THREADS * REQUESTS_PER_THREAD];
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int offset = t * REQUESTS_PER_THREAD;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+            long begin = System.nanoTime();
+            client.processPayment(request);
+            latencies[offset + i] = System.nanoTime() - begin;
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(120, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return latencies;
+  }
+
+  private static String summary(long[] latencies) {
+    Arrays.sort(latencies);
+    return String.format("p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+        percentile(latencies, 0.50), percentile(latencies, 0.99),
+        latencies[latencies.length - 1] / 1_000_000.0);
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+    return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1_000_000.0;
+  }
+}
@@ -2,29 +2,76 @@ package com.checkout.payment.gateway.client;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withBadRequest;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.web.client.RequestMatcher;
+import org.springframework.web.client.RestClient;
 
 class AcquiringBankingClientTest {
 
   private final String baseUrl = "http://acquirer";
-  @Mock
-  private RestTemplate restTemplate;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final BankCircuitBreaker circuitBreaker = new BankCircuitBreaker(100, 20, 50,
+      Duration.ofSeconds(2), Duration.ofSeconds(5), 5, 100);
+  private final BankRetryPolicy noRetries = new BankRetryPolicy(1, Duration.ofMillis(1),
+      Duration.ofMillis(1), Duration.ofSeconds(5), false, Duration.ofMillis(50));
+  private final BankRetryPolicy threeAttempts = new BankRetryPolicy(3, Duration.ofMillis(1),
+      Duration.ofMillis(5), Duration.ofSeconds(5), false, Duration.ofMillis(50));
+  private RestClient.Builder builder;
+  private MockRestServiceServer server;
+  private CloseableHttpAsyncClient asyncHttpClient;
+  private HttpServer bank;
   private AcquiringBankingClient client;
 
   @BeforeEach
   void setUp() {
-    MockitoAnnotations.openMocks(this);
-    client = new AcquiringBankingClient(restTemplate, baseUrl);
+    builder = RestClient.builder().baseUrl(baseUrl);
+    server = MockRestServiceServer.bindTo(builder).build();
+    asyncHttpClient = HttpAsyncClients.createDefault();
+    asyncHttpClient.start();
+    client = new AcquiringBankingClient(builder.build(), asyncHttpClient, objectMapper, baseUrl,
+        circuitBreaker, noRetries);
+  }
+
+  @AfterEach
+  void tearDown() {
+    asyncHttpClient.close(CloseMode.IMMEDIATE);
+    if (bank != null) {
+      bank.stop(0);
+    }
   }
 
   @Test
@@ -33,19 +80,18 @@ class AcquiringBankingClientTest {
     AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder()
         .cardNumber("4111111111111111")
         .expiryDate("12/30")
-        .cvv("USD")
+        .currency("USD")
         .amount(1234)
         .cvv("123")
         .build();
 
-    AcquiringBankPaymentResponse body = AcquiringBankPaymentResponse.builder()
-        .authorized(true)
-        .authorizationCode("AUTH-123")
-        .build();
-
-    when(restTemplate.postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class)))
-        .thenReturn(new ResponseEntity<>(body, HttpStatus.OK));
+    server.expect(requestTo(baseUrl + "/payments"))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$.card_number").value("4111111111111111"))
+        .andExpect(jsonPath("$.expiry_date").value("12/30"))
+        .andRespond(withSuccess("{\"authorized\":true,\"authorization_code\":\"AUTH-123\"}",
+            MediaType.APPLICATION_JSON));
 
     AcquiringBankPaymentResponse result = client.processPayment(request);
 
@@ -53,8 +99,7 @@ class AcquiringBankingClientTest {
     assertThat(result.isAuthorized()).isTrue();
     assertThat(result.getAuthorizationCode()).isEqualTo("AUTH-123");
 
-    verify(restTemplate).postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class));
+    server.verify();
   }
 
   @Test
@@ -63,19 +108,15 @@ class AcquiringBankingClientTest {
     AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder()
         .cardNumber("12")
         .expiryDate("12/30")
-        .cvv("USD")
+        .currency("USD")
         .amount(1234)
         .cvv("123")
         .build();
 
-    AcquiringBankPaymentResponse body = AcquiringBankPaymentResponse.builder()
-        .authorized(false)
-        .authorizationCode("")
-        .build();
-
-    when(restTemplate.postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class)))
-        .thenReturn(new ResponseEntity<>(body, HttpStatus.OK));
+    server.expect(requestTo(baseUrl + "/payments"))
+        .andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess("{\"authorized\":false,\"authorization_code\":\"\"}",
+            MediaType.APPLICATION_JSON));
 
     AcquiringBankPaymentResponse result = client.processPayment(request);
 
@@ -83,17 +124,40 @@ class AcquiringBankingClientTest {
     assertThat(result.isAuthorized()).isFalse();
     assertThat(result.getAuthorizationCode()).isEmpty();
 
-    verify(restTemplate).postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class));
+    server.verify();
+  }
+
+  @Test
+  void processPayment_withDto_sendsTheEncodedBody() {
+    PaymentRequestDTO payment = PaymentRequestDTO.builder()
+        .cardNumber("4111111111111111")
+        .expiryMonth(12)
+        .expiryYear(2030)
+        .currency(CurrencyRegistry.byCode("USD"))
+        .amount(1234)
+        .cvv("123")
+        .build();
+
+    server.expect(requestTo(baseUrl + "/payments"))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json("{\"card_number\":\"4111111111111111\","
+            + "\"expiry_date\":\"12/2030\",\"currency\":\"USD\",\"amount\":1234,"
+            + "\"cvv\":\"123\"}", JsonCompareMode.STRICT))
+        .andRespond(withSuccess("{\"authorized\":true,\"authorization_code\":\"AUTH-123\"}",
+            MediaType.APPLICATION_JSON));
+
+    AcquiringBankPaymentResponse result = client.processPayment(payment);
+
+    assertThat(result.isAuthorized()).isTrue();
+    server.verify();
   }
 
   @Test
   void processPayment_clientError() {
     AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder().build();
 
-    when(restTemplate.postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class)))
-        .thenReturn(new ResponseEntity<>(null, HttpStatus.BAD_REQUEST));
+    server.expect(requestTo(baseUrl + "/payments")).andRespond(withBadRequest());
 
     assertThatThrownBy(() -> client.processPayment(request))
         .isInstanceOf(RuntimeException.class)
@@ -104,12 +168,101 @@ class AcquiringBankingClientTest {
   void processPayment_serverError() {
     AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder().build();
 
-    when(restTemplate.postForEntity(eq(baseUrl + "/payments"), eq(request),
-        eq(AcquiringBankPaymentResponse.class)))
-        .thenReturn(new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR));
+    server.expect(requestTo(baseUrl + "/payments")).andRespond(withServerError());
 
     assertThatThrownBy(() -> client.processPayment(request))
         .isInstanceOf(RuntimeException.class)
         .hasMessageContaining("Error processing payment");
   }
+
+  @Test
+  void processPayment_retriesServerErrors_withTheSameIdempotencyKey() {
+    AcquiringBankingClient retryingClient = new AcquiringBankingClient(builder.build(),
+        asyncHttpClient, objectMapper, baseUrl, circuitBreaker, threeAttempts);
+    List<String> keys = new ArrayList<>();
+    RequestMatcher captureKey = request -> keys.add(
+        request.getHeaders().getFirst(AcquiringBankingClient.IDEMPOTENCY_KEY_HEADER));
+
+    server.expect(requestTo(baseUrl + "/payments")).andExpect(captureKey)
+        .andRespond(withServerError());
+    server.expect(requestTo(baseUrl + "/payments")).andExpect(captureKey)
+        .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+    server.expect(requestTo(baseUrl + "/payments")).andExpect(captureKey)
+        .andRespond(withSuccess("{\"authorized\":true,\"authorization_code\":\"AUTH-123\"}",
+            MediaType.APPLICATION_JSON));
+
+    AcquiringBankPaymentResponse result = retryingClient.processPayment(
+        AcquiringBankPaymentRequest.builder().build());
+
+    assertThat(result.isAuthorized()).isTrue();
+    assertThat(keys).hasSize(3).doesNotContainNull();
+    assertThat(keys).containsOnly(keys.get(0));
+    server.verify();
+  }
+
+  @Test
+  void processPayment_doesNotRetryClientErrors() {
+    AcquiringBankingClient retryingClient = new AcquiringBankingClient(builder.build(),
+        asyncHttpClient, objectMapper, baseUrl, circuitBreaker, threeAttempts);
+
+    server.expect(requestTo(baseUrl + "/payments")).andRespond(withBadRequest());
+
+    assertThatThrownBy(() -> retryingClient.processPayment(
+        AcquiringBankPaymentRequest.builder().build()))
+        .isInstanceOf(AcquiringBankException.class)
+        .hasMessageContaining("Error processing payment");
+    server.verify();
+  }
+
+  @Test
+  void processPaymentAsync_success_whenBankAuthorizes() throws IOException {
+    AtomicReference<String> received = new AtomicReference<>();
+    AcquiringBankingClient asyncClient = clientForBank(200,
+        "{\"authorized\":true,\"authorization_code\":\"AUTH-123\"}", received);
+
+    AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder()
+        .cardNumber("4111111111111111")
+        .expiryDate("12/30")
+        .currency("USD")
+        .amount(1234)
+        .cvv("123")
+        .build();
+
+    AcquiringBankPaymentResponse result = asyncClient.processPaymentAsync(request).join();
+
+    assertThat(result.isAuthorized()).isTrue();
+    assertThat(result.getAuthorizationCode()).isEqualTo("AUTH-123");
+    assertThat(received.get()).contains("\"card_number\":\"4111111111111111\"")
+        .contains("\"expiry_date\":\"12/30\"");
+  }
+
+  @Test
+  void processPaymentAsync_serverError() throws IOException {
+    AcquiringBankingClient asyncClient = clientForBank(503, "", new AtomicReference<>());
+    AcquiringBankPaymentRequest request = AcquiringBankPaymentRequest.builder().build();
+
+    assertThatThrownBy(() -> asyncClient.processPaymentAsync(request).join())
+        .isInstanceOf(CompletionException.class)
+        .hasRootCauseMessage("Error processing payment");
+  }
+
+  // A real socket, so the non-blocking client goes through its own I/O reactor:
+  private AcquiringBankingClient clientForBank(int status, String body,
+      AtomicReference<String> received) throws IOException {
+    byte[] response = body.getBytes(StandardCharsets.UTF_8);
+    bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    bank.createContext("/payments", exchange -> {
+      try (InputStream in = exchange.getRequestBody()) {
+        received.set(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, response.length == 0 ? -1 : response.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(response);
+      }
+    });
+    bank.start();
+    return new AcquiringBankingClient(RestClient.create(), asyncHttpClient, objectMapper,
+        "http://localhost:" + bank.getAddress().getPort(), circuitBreaker, noRetries);
+  }
 }
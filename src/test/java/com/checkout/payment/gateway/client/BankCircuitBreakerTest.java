@@ -0,0 +1,172 @@
+package com.checkout.payment.gateway.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.CircuitBreakerState;
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.exception.AcquiringBankUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BankCircuitBreakerTest {
+
+  private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+  private final AtomicInteger bankCalls = new AtomicInteger();
+
+  @Test
+  void opens_whenFailureRateReachesThreshold_andRejectsWithoutCallingTheBank() {
+    BankCircuitBreaker breaker = breaker(10);
+
+    for (int i = 0; i < 5; i++) {
+      succeed(breaker);
+      fail(breaker, 503);
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.OPEN);
+
+    int callsBefore = bankCalls.get();
+    assertThatThrownBy(() -> succeed(breaker))
+        .isInstanceOf(AcquiringBankUnavailableException.class);
+    assertThat(bankCalls.get()).isEqualTo(callsBefore);
+  }
+
+  @Test
+  void staysClosed_belowMinimumCalls_andForClientErrors() {
+    BankCircuitBreaker breaker = breaker(10);
+
+    for (int i = 0; i < 9; i++) {
+      fail(breaker, 503);
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.CLOSED);
+
+    BankCircuitBreaker clientErrors = breaker(10);
+    for (int i = 0; i < 20; i++) {
+      fail(clientErrors, 400);
+    }
+    assertThat(clientErrors.state()).isEqualTo(CircuitBreakerState.CLOSED);
+  }
+
+  @Test
+  void halfOpenProbes_closeTheBreaker_whenTheyAllSucceed() throws InterruptedException {
+    BankCircuitBreaker breaker = openBreaker();
+
+    Thread.sleep(OPEN_DURATION.toMillis() + 20);
+    succeed(breaker);
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+    succeed(breaker);
+
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.CLOSED);
+  }
+
+  @Test
+  void failedHalfOpenProbe_reopensTheBreaker() throws InterruptedException {
+    BankCircuitBreaker breaker = openBreaker();
+
+    Thread.sleep(OPEN_DURATION.toMillis() + 20);
+    fail(breaker, 503);
+
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.OPEN);
+    assertThatThrownBy(() -> succeed(breaker))
+        .isInstanceOf(AcquiringBankUnavailableException.class);
+  }
+
+  @Test
+  void halfOpenCalls_rejectedByTheBulkhead_doNotUseUpProbes() throws InterruptedException {
+    // Three probes, two concurrent calls, opening after two calls
+    BankCircuitBreaker breaker = new BankCircuitBreaker(20, 2, 50, Duration.ofSeconds(5),
+        OPEN_DURATION, 3, 2);
+    CompletableFuture<String> startedWhileClosed = new CompletableFuture<>();
+    CompletableFuture<String> probe = new CompletableFuture<>();
+    CompletableFuture<String> inFlight = breaker.executeAsync(() -> startedWhileClosed);
+    fail(breaker, 503);
+    fail(breaker, 503);
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.OPEN);
+
+    Thread.sleep(OPEN_DURATION.toMillis() + 20);
+    CompletableFuture<String> probeCall = breaker.executeAsync(() -> probe);
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(breaker.executeAsync(() -> new CompletableFuture<>())::join)
+          .hasCauseInstanceOf(AcquiringBankUnavailableException.class);
+    }
+    startedWhileClosed.complete("ok");
+    probe.complete("ok");
+    inFlight.join();
+    probeCall.join();
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+
+    succeed(breaker);
+
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.CLOSED);
+  }
+
+  @Test
+  void bulkhead_rejectsCallsAboveTheConcurrencyLimit() {
+    BankCircuitBreaker breaker = breaker(10);
+    CompletableFuture<String> first = new CompletableFuture<>();
+    CompletableFuture<String> second = new CompletableFuture<>();
+
+    CompletableFuture<String> inFlight1 = breaker.executeAsync(() -> first);
+    CompletableFuture<String> inFlight2 = breaker.executeAsync(() -> second);
+    CompletableFuture<String> rejected = breaker.executeAsync(() -> new CompletableFuture<>());
+
+    assertThatThrownBy(rejected::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(AcquiringBankUnavailableException.class);
+
+    first.complete("ok");
+    assertThat(inFlight1.join()).isEqualTo("ok");
+    assertThat(breaker.executeAsync(() -> CompletableFuture.completedFuture("again")).join())
+        .isEqualTo("again");
+    second.complete("ok");
+    assertThat(inFlight2.join()).isEqualTo("ok");
+  }
+
+  @Test
+  void metrics_exposeStateAndTransitions() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BankCircuitBreaker breaker = openBreaker();
+    breaker.bindTo(registry);
+
+    assertThat(registry.get("bank.client.circuit.state").tag("state", "open").gauge().value())
+        .isEqualTo(1);
+    assertThat(registry.get("bank.client.circuit.state").tag("state", "closed").gauge().value())
+        .isEqualTo(0);
+    assertThat(registry.get("bank.client.circuit.transitions").tag("state", "open")
+        .functionCounter().count()).isEqualTo(1);
+  }
+
+  private BankCircuitBreaker openBreaker() {
+    BankCircuitBreaker breaker = breaker(4);
+    for (int i = 0; i < 4; i++) {
+      fail(breaker, 503);
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreakerState.OPEN);
+    return breaker;
+  }
+
+  // Window of 20 calls, 50% threshold, two half-open probes and two concurrent calls at most
+  private static BankCircuitBreaker breaker(int minimumCalls) {
+    return new BankCircuitBreaker(20, minimumCalls, 50, Duration.ofSeconds(5), OPEN_DURATION, 2,
+        2);
+  }
+
+  private void succeed(BankCircuitBreaker breaker) {
+    breaker.execute(() -> bankCalls.incrementAndGet());
+  }
+
+  private void fail(BankCircuitBreaker breaker, int status) {
+    try {
+      breaker.execute(() -> {
+        bankCalls.incrementAndGet();
+        throw new AcquiringBankException(status);
+      });
+    } catch (AcquiringBankException expected) {
+      // recorded by the breaker
+    }
+  }
+}
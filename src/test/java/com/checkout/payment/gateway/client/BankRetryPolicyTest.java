@@ -0,0 +1,161 @@
+package com.checkout.payment.gateway.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.exception.AcquiringBankUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BankRetryPolicyTest {
+
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @Test
+  void execute_retriesServerErrors_untilSuccess() {
+    BankRetryPolicy policy = policy(3, Duration.ofSeconds(5), false);
+
+    String result = policy.execute(() -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new AcquiringBankException(503);
+      }
+      return "ok";
+    });
+
+    assertThat(result).isEqualTo("ok");
+    assertThat(attempts).hasValue(3);
+  }
+
+  @Test
+  void execute_givesUp_afterMaxAttempts() {
+    BankRetryPolicy policy = policy(3, Duration.ofSeconds(5), false);
+
+    assertThatThrownBy(() -> policy.execute(() -> {
+      attempts.incrementAndGet();
+      throw new AcquiringBankException(500);
+    })).isInstanceOf(AcquiringBankException.class);
+    assertThat(attempts).hasValue(3);
+  }
+
+  @Test
+  void execute_doesNotRetry_clientErrorsOrAnOpenCircuit() {
+    BankRetryPolicy policy = policy(3, Duration.ofSeconds(5), false);
+
+    assertThatThrownBy(() -> policy.execute(() -> {
+      attempts.incrementAndGet();
+      throw new AcquiringBankException(400);
+    })).isInstanceOf(AcquiringBankException.class);
+    assertThatThrownBy(() -> policy.execute(() -> {
+      attempts.incrementAndGet();
+      throw new AcquiringBankUnavailableException("open");
+    })).isInstanceOf(AcquiringBankUnavailableException.class);
+
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void execute_stopsRetrying_whenTheDeadlineWouldBeExceeded() {
+    BankRetryPolicy policy = new BankRetryPolicy(100, Duration.ofMillis(20),
+        Duration.ofMillis(20), Duration.ofMillis(100), false, Duration.ofMillis(50));
+
+    long start = System.nanoTime();
+    assertThatThrownBy(() -> policy.execute(() -> {
+      attempts.incrementAndGet();
+      throw new AcquiringBankException(503);
+    })).isInstanceOf(AcquiringBankException.class);
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+    assertThat(attempts.get()).isLessThan(100);
+  }
+
+  @Test
+  void executeAsync_retriesServerErrors_untilSuccess() {
+    BankRetryPolicy policy = policy(3, Duration.ofSeconds(5), false);
+
+    CompletableFuture<String> result = policy.executeAsync(() ->
+        attempts.incrementAndGet() < 2
+            ? CompletableFuture.failedFuture(new AcquiringBankException(0))
+            : CompletableFuture.completedFuture("ok"));
+
+    assertThat(result.join()).isEqualTo("ok");
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void executeAsync_failsWithBankException_whenTheDeadlinePasses() {
+    BankRetryPolicy policy = policy(3, Duration.ofMillis(100), false);
+
+    CompletableFuture<String> result = policy.executeAsync(CompletableFuture::new);
+
+    assertThatThrownBy(result::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(AcquiringBankException.class)
+        .hasRootCauseInstanceOf(TimeoutException.class);
+  }
+
+  @Test
+  void executeAsync_hedgesSlowAttempts_andTakesTheFirstAnswer() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BankRetryPolicy policy = policy(1, Duration.ofSeconds(5), true);
+    policy.bindTo(registry);
+    CompletableFuture<String> slow = new CompletableFuture<>();
+
+    CompletableFuture<String> result = policy.executeAsync(() ->
+        attempts.incrementAndGet() == 1 ? slow : CompletableFuture.completedFuture("hedge"));
+
+    assertThat(result.join()).isEqualTo("hedge");
+    assertThat(attempts).hasValue(2);
+    assertThat(registry.get("bank.client.hedges").functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("bank.client.hedge.wins").functionCounter().count()).isEqualTo(1);
+    slow.complete("primary");
+  }
+
+  @Test
+  void executeAsync_doesNotHedge_fastAttempts() throws InterruptedException {
+    BankRetryPolicy policy = policy(1, Duration.ofSeconds(5), true);
+
+    CompletableFuture<String> result = policy.executeAsync(() -> {
+      attempts.incrementAndGet();
+      return CompletableFuture.completedFuture("ok");
+    });
+
+    assertThat(result.join()).isEqualTo("ok");
+    Thread.sleep(100);
+    assertThat(attempts).hasValue(1);
+  }
+
+  @Test
+  void hedgeDelay_followsTheObservedP95() {
+    BankRetryPolicy policy = policy(1, Duration.ofSeconds(5), true);
+    for (int i = 0; i < 128; i++) {
+      long latencyMillis = i < 121 ? 1 : 300;
+      policy.execute(() -> {
+        sleep(latencyMillis);
+        return null;
+      });
+    }
+
+    assertThat(policy.hedgeDelay()).isGreaterThanOrEqualTo(Duration.ofMillis(300));
+  }
+
+  // 20 ms minimum hedge delay and tiny backoffs so the tests stay quick
+  private static BankRetryPolicy policy(int maxAttempts, Duration deadline, boolean hedging) {
+    return new BankRetryPolicy(maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), deadline,
+        hedging, Duration.ofMillis(20));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.checkout.payment.gateway.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+class PaymentJsonCodecTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "{\"card_number\":\"2222405343248877\",\"expiry_month\":4,\"expiry_year\":2035,"
+          + "\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}",
+      "{\"cvv\":\"1234\",\"amount\":4294967396,\"currency\":\"JPY\","
+          + "\"expiry_year\":2030,\"expiry_month\":12,\"card_number\":\"4111111111111111\"}",
+      "{\"card_number\":null,\"expiry_month\":null,\"currency\":null,\"amount\":null}",
+      "{\"card_number\":\"4111111111111111\",\"extra\":{\"nested\":[1,2,{\"a\":null}]},"
+          + "\"currency\":\"USD\"}",
+      "{}"})
+  void readPaymentRequest_shouldMatchObjectMapper(String json) throws Exception {
+    PaymentRequest expected = objectMapper.readValue(json, PaymentRequest.class);
+
+    PaymentRequest actual = read(json);
+
+    assertThat(actual).isNotNull().usingRecursiveComparison().isEqualTo(expected);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "{\"amount\":\"100\"}",
+      "{\"amount\":10.5}",
+      "{\"amount\":99999999999999999999999}",
+      "{\"card_number\":4111111111111111}",
+      "{\"currency\":\"usd\"}",
+      "{\"currency\":\"XYZ\"}",
+      "{\"currency\":\"CHF\"}",
+      "{\"expiry_month\":12345678901}",
+      "[]",
+      "null"})
+  void readPaymentRequest_shouldDeferToObjectMapper_forAnythingUnusual(String json)
+      throws Exception {
+    assertThat(read(json)).isNull();
+  }
+
+  @Test
+  void writePostPaymentResponse_shouldMatchObjectMapper() throws Exception {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(8877);
+    payment.setExpiryMonth(4);
+    payment.setExpiryYear(2035);
+    payment.setCurrency("GBP");
+    payment.setAmount(100);
+    payment.setCreatedAt(Instant.parse("2026-03-01T09:30:15.120Z"));
+
+    assertThat(write(payment)).isEqualTo(objectMapper.writeValueAsString(payment));
+    assertThat(write(new PostPaymentResponse()))
+        .isEqualTo(objectMapper.writeValueAsString(new PostPaymentResponse()));
+  }
+
+  private PaymentRequest read(String json) throws Exception {
+    try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+      return PaymentJsonCodec.readPaymentRequest(parser);
+    }
+  }
+
+  private String write(PostPaymentResponse payment) throws Exception {
+    StringWriter out = new StringWriter();
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      PaymentJsonCodec.writePostPaymentResponse(generator, payment);
+    }
+    return out.toString();
+  }
+}
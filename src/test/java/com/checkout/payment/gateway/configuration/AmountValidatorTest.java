@@ -0,0 +1,51 @@
+package com.checkout.payment.gateway.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AmountValidatorTest {
+
+  private AmountValidator validator;
+
+  @BeforeEach
+  void setUp() {
+    validator = new AmountValidator();
+  }
+
+  @Test
+  void returnsTrueWhenAmountOrCurrencyIsMissing() {
+    assertTrue(validator.isValid(null, null));
+    assertTrue(validator.isValid(request("GBP", null), null));
+    assertTrue(validator.isValid(request(null, 100L), null));
+  }
+
+  @Test
+  void returnsTrueForAmountsUpToTheCurrencyLimit() {
+    assertTrue(validator.isValid(request("GBP", 1L), null));
+    assertTrue(validator.isValid(request("GBP", 100_000_000L), null));
+    assertTrue(validator.isValid(request("JPY", 100_000_000L), null));
+  }
+
+  @Test
+  void returnsFalseForZeroOrNegativeAmounts() {
+    assertFalse(validator.isValid(request("USD", 0L), null));
+    assertFalse(validator.isValid(request("USD", -1L), null));
+  }
+
+  @Test
+  void returnsFalseForAmountsPastTheCurrencyLimit() {
+    assertFalse(validator.isValid(request("GBP", 100_000_001L), null));
+    assertFalse(validator.isValid(request("EUR", (long) Integer.MAX_VALUE + 1), null));
+    assertFalse(validator.isValid(request("JPY", Long.MAX_VALUE), null));
+  }
+
+  private static PaymentRequest request(String currency, Long amount) {
+    return new PaymentRequest("4111111111111111", 12, 2030,
+        currency == null ? null : CurrencyRegistry.byCode(currency), amount, "123");
+  }
+}
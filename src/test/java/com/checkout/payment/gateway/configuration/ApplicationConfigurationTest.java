@@ -2,19 +2,37 @@ package com.checkout.payment.gateway.configuration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClient;
 
 @SpringBootTest
 public class ApplicationConfigurationTest {
 
   @Autowired
-  private RestTemplate restTemplate;
+  private RestClient acquiringBankRestClient;
+
+  @Autowired
+  private PoolingHttpClientConnectionManager acquiringBankConnectionManager;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  void contextLoads_andRestClientBeanExists() {
+    assertThat(acquiringBankRestClient).isNotNull();
+  }
 
   @Test
-  void contextLoads_andRestTemplateBeanExists() {
-    assertThat(restTemplate).isNotNull();
+  void connectionPool_isSizedFromProperties_andExposesMetrics() {
+    assertThat(acquiringBankConnectionManager.getMaxTotal()).isEqualTo(1000);
+    assertThat(acquiringBankConnectionManager.getDefaultMaxPerRoute()).isEqualTo(1000);
+    assertThat(meterRegistry.get("bank.client.pool.max").tag("client", "blocking").gauge()
+        .value()).isEqualTo(1000);
+    assertThat(meterRegistry.get("bank.client.pool.max").tag("client", "async").gauge()
+        .value()).isEqualTo(1000);
   }
 }
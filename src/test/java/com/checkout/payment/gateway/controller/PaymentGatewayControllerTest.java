@@ -3,14 +3,25 @@ package com.checkout.payment.gateway.controller;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,6 +29,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 @SpringBootTest
@@ -40,8 +52,8 @@ public class PaymentGatewayControllerTest {
     payment.setExpiryYear(2024);
     payment.setCardNumberLastFour(4321);
 
-    org.mockito.Mockito.when(paymentGatewayService.getPaymentById(payment.getId()))
-        .thenReturn(payment);
+    org.mockito.Mockito.when(paymentGatewayService.findPaymentById(payment.getId()))
+        .thenReturn(java.util.Optional.of(payment));
 
     mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
         .andExpect(status().isOk())
@@ -56,9 +68,8 @@ public class PaymentGatewayControllerTest {
   @Test
   void whenPaymentWithIdDoesNotExistThen404IsReturned() throws Exception {
     UUID id = UUID.randomUUID();
-    org.mockito.Mockito.when(paymentGatewayService.getPaymentById(id))
-        .thenThrow(
-            new com.checkout.payment.gateway.exception.EventProcessingException("Invalid ID"));
+    org.mockito.Mockito.when(paymentGatewayService.findPaymentById(id))
+        .thenReturn(java.util.Optional.empty());
 
     mvc.perform(MockMvcRequestBuilders.get("/payment/" + id))
         .andExpect(status().isNotFound())
@@ -88,13 +99,17 @@ public class PaymentGatewayControllerTest {
     response.setCurrency("USD");
     response.setAmount(1599);
 
-    when(paymentGatewayService.processPayment(any(
-        com.checkout.payment.gateway.model.PaymentRequestDTO.class)))
-        .thenReturn(response);
+    when(paymentGatewayService.processPaymentAsync(any(
+        com.checkout.payment.gateway.model.PaymentRequestDTO.class), any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment")
             .contentType(MediaType.APPLICATION_JSON)
             .content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
         .andExpect(status().isCreated())
         .andExpect(jsonPath("$.id").value(authCode.toString()))
         .andExpect(jsonPath("$.status").value("Authorized"))
@@ -105,6 +120,63 @@ public class PaymentGatewayControllerTest {
         .andExpect(jsonPath("$.amount").value(1599));
   }
 
+  @Test
+  void whenAsyncPostPaymentFails_thenExceptionHandlerStillMapsTheError() throws Exception {
+    String body = """
+        {
+          "card_number": "4111111111111234",
+          "expiry_month": 7,
+          "expiry_year": 2030,
+          "currency": "USD",
+          "amount": 1599,
+          "cvv": "123"
+        }
+        """;
+
+    when(paymentGatewayService.processPaymentAsync(any(
+        com.checkout.payment.gateway.model.PaymentRequestDTO.class), any()))
+        .thenReturn(CompletableFuture.failedFuture(
+            new com.checkout.payment.gateway.exception.AcquiringBankUnavailableException(
+                "Acquiring bank circuit breaker is open")));
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.message").value("Acquiring bank unavailable"));
+  }
+
+  @Test
+  void whenIdempotencyKeyIsReusedForDifferentPayment_thenUnprocessableEntity() throws Exception {
+    String body = """
+        {
+          "card_number": "4111111111111234",
+          "expiry_month": 7,
+          "expiry_year": 2030,
+          "currency": "USD",
+          "amount": 1599,
+          "cvv": "123"
+        }
+        """;
+
+    when(paymentGatewayService.processPaymentAsync(any(
+        com.checkout.payment.gateway.model.PaymentRequestDTO.class), eq("order-42")))
+        .thenThrow(new com.checkout.payment.gateway.exception.IdempotencyKeyReuseException(
+            "Idempotency key was already used for a different payment"));
+
+    mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .header("Idempotency-Key", "order-42")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.message",
+            containsString("Idempotency key was already used")));
+  }
+
   @Test
   void whenInvalidPostPayment_CVVInvalid_thenBadRequestWithMessage() throws Exception {
 
@@ -148,9 +220,142 @@ public class PaymentGatewayControllerTest {
   }
 
 
+  @Test
+  void whenInvalidPostPayment_amountPastTheCurrencyLimit_thenBadRequestWithMessage()
+      throws Exception {
+
+    String body = """
+        {
+          "card_number": "4111111111111234",
+          "expiry_month": 7,
+          "expiry_year": 2030,
+          "currency": "GBP",
+          "amount": 4294967396,
+          "cvv": "123"
+        }
+        """;
+
+    mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message", containsString("Invalid input data")));
+  }
+
+  @Test
+  void whenInvalidPostPayment_amountTooLargeForALongOrUnsupportedCurrency_thenBadRequest()
+      throws Exception {
+
+    String tooLarge = """
+        {
+          "card_number": "4111111111111234",
+          "expiry_month": 7,
+          "expiry_year": 2030,
+          "currency": "GBP",
+          "amount": 99999999999999999999999,
+          "cvv": "123"
+        }
+        """;
+    String unsupported = tooLarge.replace("\"GBP\"", "\"CHF\"")
+        .replace("99999999999999999999999", "1599");
+
+    mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(tooLarge))
+        .andExpect(status().isBadRequest());
+    mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(unsupported))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void whenGetWithInvalidUUID_thenBadRequest() throws Exception {
     mvc.perform(MockMvcRequestBuilders.get("/payment/not-a-uuid"))
         .andExpect(status().isBadRequest());
   }
+
+  @Test
+  void whenLookingUpPayments_thenEveryIdIsAnsweredAsNdjsonInRequestOrder() throws Exception {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.DECLINED);
+    payment.setCardNumberLastFour(4321);
+    payment.setExpiryMonth(12);
+    payment.setExpiryYear(2030);
+    payment.setCurrency("GBP");
+    payment.setAmount(10);
+    payment.setCreatedAt(Instant.parse("2026-03-01T09:30:15.120Z"));
+    UUID missing = UUID.randomUUID();
+
+    doAnswer(invocation -> {
+      List<UUID> ids = invocation.getArgument(0);
+      BiConsumer<UUID, PostPaymentResponse> results = invocation.getArgument(1);
+      for (UUID id : ids) {
+        results.accept(id, id.equals(payment.getId()) ? payment : null);
+      }
+      return null;
+    }).when(paymentGatewayService).lookupPayments(any(), any());
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payments/lookup")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"" + missing + "\",\"" + payment.getId() + "\"]"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+        .andExpect(content().string("{\"id\":\"" + missing + "\",\"found\":false}\n"
+            + "{\"id\":\"" + payment.getId() + "\",\"found\":true,\"payment\":{\"id\":\""
+            + payment.getId() + "\",\"status\":\"Declined\",\"cardNumberLastFour\":4321,"
+            + "\"expiryMonth\":12,\"expiryYear\":2030,\"currency\":\"GBP\",\"amount\":10,"
+            + "\"createdAt\":\"2026-03-01T09:30:15.120Z\"}}\n"));
+  }
+
+  @Test
+  void whenLookupContainsAnInvalidId_thenBadRequest() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.post("/payments/lookup")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"not-a-uuid\"]"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void whenQueryingPayments_thenFiltersArePassedOnAndThePageIsReturned() throws Exception {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCurrency("GBP");
+    payment.setCardNumberLastFour(4321);
+    payment.setCreatedAt(Instant.parse("2026-03-01T09:30:15.120Z"));
+
+    PaymentQuery expected = new PaymentQuery(PaymentStatus.AUTHORIZED, "GBP", 4321,
+        Instant.parse("2026-03-01T00:00:00Z"), Instant.parse("2026-03-02T00:00:00Z"), "abc", 20);
+    when(paymentGatewayService.findPayments(expected))
+        .thenReturn(new PaymentPage(List.of(payment), "next"));
+
+    mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "Authorized")
+            .param("currency", "gbp")
+            .param("cardNumberLastFour", "4321")
+            .param("from", "2026-03-01T00:00:00Z")
+            .param("to", "2026-03-02T00:00:00Z")
+            .param("cursor", "abc")
+            .param("limit", "20"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments[0].id").value(payment.getId().toString()))
+        .andExpect(jsonPath("$.payments[0].createdAt").value("2026-03-01T09:30:15.120Z"))
+        .andExpect(jsonPath("$.nextCursor").value("next"));
+  }
+
+  @Test
+  void whenQueryingPaymentsWithAnUnknownStatusOrTooLargeLimit_thenBadRequest() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("status", "Pending"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown payment status: Pending"));
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("limit", "100000"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message", containsString("limit must be between 1 and")));
+  }
 }
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.ShardedPaymentStore;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = {
+    "payments.cluster.enabled=true",
+    "payments.internal.secret=" + PaymentReplicaControllerTest.SECRET})
+@AutoConfigureMockMvc
+public class PaymentReplicaControllerTest {
+
+  static final String SECRET = "node-secret";
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ShardedPaymentStore shardedPaymentStore;
+
+  // The body is not even a payment record: the request is refused before it is decoded
+  @Test
+  void putReplicas_shouldBeRejected_withoutTheSharedSecret() throws Exception {
+    long stored = shardedPaymentStore.size();
+
+    mvc.perform(MockMvcRequestBuilders.put(PaymentPeerClient.PATH)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(new byte[]{1, 2, 3}))
+        .andExpect(status().isUnauthorized());
+    mvc.perform(MockMvcRequestBuilders.put(PaymentPeerClient.PATH)
+            .header(PaymentPeerClient.SECRET_HEADER, "wrong")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(new byte[]{1, 2, 3}))
+        .andExpect(status().isUnauthorized());
+
+    assertThat(shardedPaymentStore.size()).isEqualTo(stored);
+  }
+
+  @Test
+  void replicas_shouldBeServed_withTheSharedSecret() throws Exception {
+    PostPaymentResponse payment = payment();
+    shardedPaymentStore.put(payment);
+    byte[] record = shardedPaymentStore.getReplica(payment.getId());
+
+    mvc.perform(MockMvcRequestBuilders.get(PaymentPeerClient.PATH + "/" + payment.getId()))
+        .andExpect(status().isUnauthorized());
+    mvc.perform(MockMvcRequestBuilders.get(PaymentPeerClient.PATH + "/" + payment.getId())
+            .header(PaymentPeerClient.SECRET_HEADER, SECRET))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(record));
+    mvc.perform(MockMvcRequestBuilders.put(PaymentPeerClient.PATH)
+            .header(PaymentPeerClient.SECRET_HEADER, SECRET)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(record))
+        .andExpect(status().isNoContent());
+  }
+
+  private static PostPaymentResponse payment() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(4242);
+    payment.setExpiryMonth(5);
+    payment.setExpiryYear(2031);
+    payment.setCurrency("GBP");
+    payment.setAmount(1050);
+    return payment;
+  }
+}
@@ -0,0 +1,46 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.client.PaymentPeerClient;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = {
+    "payments.replication.accept-replicas=true",
+    "payments.internal.secret=" + PaymentReplicationControllerTest.SECRET})
+@AutoConfigureMockMvc
+public class PaymentReplicationControllerTest {
+
+  static final String SECRET = "standby-secret";
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private PaymentsRepository paymentsRepository;
+
+  // The body is not even a payment record: the request is refused before it is decoded
+  @Test
+  void putReplicas_shouldBeRejected_withoutTheSharedSecret() throws Exception {
+    long stored = paymentsRepository.size();
+
+    mvc.perform(MockMvcRequestBuilders.put(PaymentPeerClient.REPLICATION_PATH)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(new byte[]{1, 2, 3}))
+        .andExpect(status().isUnauthorized());
+    mvc.perform(MockMvcRequestBuilders.put(PaymentPeerClient.REPLICATION_PATH)
+            .header(PaymentPeerClient.SECRET_HEADER, "wrong")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(new byte[]{1, 2, 3}))
+        .andExpect(status().isUnauthorized());
+
+    assertThat(paymentsRepository.size()).isEqualTo(stored);
+  }
+}
@@ -1,20 +1,30 @@
 package com.checkout.payment.gateway.exception;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.checkout.payment.gateway.controller.PaymentGatewayController;
 import com.checkout.payment.gateway.model.ErrorResponse;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 @SpringBootTest
@@ -28,11 +38,10 @@ public class CommonExceptionHandlerTest {
   private PaymentGatewayService service;
 
   @Test
-  void handleEventProcessingException_shouldReturnNotFoundWithMessage() throws Exception {
+  void unknownPayment_shouldReturnNotFoundWithMessage() throws Exception {
     UUID id = UUID.randomUUID();
 
-    org.mockito.Mockito.when(service.getPaymentById(id))
-        .thenThrow(new EventProcessingException("Invalid ID"));
+    org.mockito.Mockito.when(service.findPaymentById(id)).thenReturn(Optional.empty());
 
     mvc.perform(MockMvcRequestBuilders.get("/payment/" + id))
         .andExpect(status().isNotFound())
@@ -53,4 +62,68 @@ public class CommonExceptionHandlerTest {
     assertThat(response.getStatusCode().value()).isEqualTo(400);
     assertThat(response.getBody().getMessage()).contains("Invalid input data");
   }
+
+  @Test
+  void directCall_handleBankUnavailable_returnsServiceUnavailable() {
+    CommonExceptionHandler handler = new CommonExceptionHandler();
+
+    ResponseEntity<ErrorResponse> response = handler.handleBankUnavailable(
+        new AcquiringBankUnavailableException("Acquiring bank circuit breaker is open"));
+
+    assertThat(response.getStatusCode().value()).isEqualTo(503);
+    assertThat(response.getBody().getMessage()).isEqualTo("Acquiring bank unavailable");
+  }
+
+  @Test
+  void directCall_handleBankError_returnsServiceUnavailable_forServerErrorsAndTimeouts() {
+    CommonExceptionHandler handler = new CommonExceptionHandler();
+
+    for (AcquiringBankException ex : List.of(new AcquiringBankException(503),
+        new AcquiringBankException(new SocketTimeoutException("Read timed out")))) {
+      ResponseEntity<ErrorResponse> response = handler.handleBankError(ex);
+
+      assertThat(response.getStatusCode().value()).isEqualTo(503);
+      assertThat(response.getBody().getMessage()).isEqualTo("Acquiring bank unavailable");
+    }
+  }
+
+  @Test
+  void directCall_handleBankError_returnsServerError_forBankClientErrors() {
+    CommonExceptionHandler handler = new CommonExceptionHandler();
+
+    ResponseEntity<ErrorResponse> response =
+        handler.handleBankError(new AcquiringBankException(400));
+
+    assertThat(response.getStatusCode().value()).isEqualTo(500);
+    assertThat(response.getBody().getMessage()).isEqualTo("Error processing payment");
+  }
+
+  @Test
+  void bankErrorAfterRetries_shouldReturnServiceUnavailable() throws Exception {
+    String body = """
+        {
+          "card_number": "4111111111111234",
+          "expiry_month": 7,
+          "expiry_year": 2030,
+          "currency": "USD",
+          "amount": 1599,
+          "cvv": "123"
+        }
+        """;
+    org.mockito.Mockito.when(service.processPaymentAsync(
+            org.mockito.ArgumentMatchers.any(PaymentRequestDTO.class),
+            org.mockito.ArgumentMatchers.any()))
+        .thenReturn(CompletableFuture.failedFuture(
+            new CompletionException(new AcquiringBankException(502))));
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.message").value("Acquiring bank unavailable"));
+  }
 }
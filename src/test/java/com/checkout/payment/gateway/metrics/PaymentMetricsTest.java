@@ -0,0 +1,68 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PaymentMetricsTest {
+
+  @Test
+  void outcomeCounters_shouldBeRegisteredUpFront_forEveryStatusAndConfiguredCurrency() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    new PaymentMetrics(List.of("USD", "GBP")).bindTo(registry);
+
+    // Two currencies plus "other", three statuses each
+    assertThat(registry.find("payments.processed").counters()).hasSize(9);
+    assertThat(registry.find("payments.stage.duration").timers()).hasSize(5);
+  }
+
+  @Test
+  void recordOutcome_shouldCountUnconfiguredCurrenciesAsOther() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PaymentMetrics metrics = new PaymentMetrics(List.of("USD"));
+    metrics.bindTo(registry);
+
+    metrics.recordOutcome(PaymentStatus.AUTHORIZED, CurrencyRegistry.byCode("USD"));
+    metrics.recordOutcome(PaymentStatus.DECLINED, CurrencyRegistry.byCode("JPY"));
+    metrics.recordOutcome(PaymentStatus.DECLINED, null);
+
+    assertThat(registry.get("payments.processed").tags("status", "authorized", "currency", "USD")
+        .counter().count()).isEqualTo(1);
+    assertThat(registry.get("payments.processed").tags("status", "declined", "currency", "other")
+        .counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  void recordBankError_shouldSplitByStatusCode_andTreatZeroAsIoError() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PaymentMetrics metrics = new PaymentMetrics(List.of("USD"));
+    metrics.bindTo(registry);
+
+    metrics.recordBankError(503);
+    metrics.recordBankError(503);
+    metrics.recordBankError(0);
+
+    assertThat(registry.get("payments.bank.errors").tag("status", "503").counter().count())
+        .isEqualTo(2);
+    assertThat(registry.get("payments.bank.errors").tag("status", "io_error").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void recording_shouldBeANoOp_untilBound() {
+    PaymentMetrics metrics = new PaymentMetrics(List.of("USD"));
+
+    metrics.recordTotal(1_000);
+    metrics.recordOutcome(PaymentStatus.AUTHORIZED, CurrencyRegistry.byCode("USD"));
+    metrics.recordBankError(500);
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    metrics.bindTo(registry);
+    assertThat(registry.get("payments.stage.duration").tag("stage", "total").timer().count())
+        .isZero();
+  }
+}
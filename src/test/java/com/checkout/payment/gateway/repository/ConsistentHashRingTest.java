@@ -0,0 +1,67 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ConsistentHashRingTest {
+
+  private static final List<String> NODES = List.of("http://a:8090", "http://b:8090",
+      "http://c:8090", "http://d:8090");
+
+  @Test
+  void owners_shouldBeDistinct_andTheSameOnEveryNode() {
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    ConsistentHashRing other = new ConsistentHashRing(NODES, 128);
+
+    for (UUID id : ids(1_000)) {
+      List<String> owners = ring.owners(id, 2);
+      assertThat(owners).hasSize(2).doesNotHaveDuplicates();
+      assertThat(other.owners(id, 2)).isEqualTo(owners);
+    }
+    assertThat(ring.owners(UUID.randomUUID(), 10)).containsExactlyInAnyOrderElementsOf(NODES);
+  }
+
+  @Test
+  void owners_shouldSpreadPaymentsEvenly() {
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    Map<String, Integer> primaries = new HashMap<>();
+    for (UUID id : ids(100_000)) {
+      primaries.merge(ring.owners(id, 1).getFirst(), 1, Integer::sum);
+    }
+
+    assertThat(primaries).hasSize(NODES.size());
+    assertThat(primaries.values()).allSatisfy(count -> assertThat(count)
+        .isBetween(100_000 / NODES.size() * 8 / 10, 100_000 / NODES.size() * 12 / 10));
+  }
+
+  @Test
+  void addingANode_shouldOnlyMovePaymentsToThatNode() {
+    ConsistentHashRing ring = new ConsistentHashRing(NODES.subList(0, 3), 128);
+    ConsistentHashRing grown = new ConsistentHashRing(NODES, 128);
+
+    int moved = 0;
+    for (UUID id : ids(10_000)) {
+      String before = ring.owners(id, 1).getFirst();
+      String after = grown.owners(id, 1).getFirst();
+      if (!before.equals(after)) {
+        assertThat(after).isEqualTo(NODES.get(3));
+        moved++;
+      }
+    }
+    assertThat(moved).isBetween(10_000 / 4 * 7 / 10, 10_000 / 4 * 13 / 10);
+  }
+
+  private static List<UUID> ids(int count) {
+    SplittableRandom random = new SplittableRandom(3);
+    return Stream.generate(() -> new UUID(random.nextLong(), random.nextLong()))
+        .limit(count)
+        .toList();
+  }
+}
@@ -0,0 +1,163 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.JournalFsyncPolicy;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournalGroupCommitterTest {
+
+  private static final int THREADS = 16;
+  private static final int APPENDS_PER_THREAD = 500;
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void concurrentAppends_shouldShareForces_andAllBeReplayed() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Set<Long> sequences = ConcurrentHashMap.newKeySet();
+    Set<UUID> ids = ConcurrentHashMap.newKeySet();
+
+    try (PaymentJournal journal = groupCommitJournal()) {
+      journal.open(payment -> {
+      });
+      journal.bindTo(registry);
+
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+            PostPaymentResponse payment = payment(UUID.randomUUID());
+            ids.add(payment.getId());
+            sequences.add(journal.append(payment));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+    }
+
+    int total = THREADS * APPENDS_PER_THREAD;
+    assertThat(sequences).hasSize(total);
+    assertThat(registry.get("payments.journal.fsyncs").functionCounter().count())
+        .isLessThan(total);
+    assertThat(registry.get("payments.journal.group-commit.batch.size").summary().max())
+        .isGreaterThan(1);
+
+    Set<UUID> replayed = ConcurrentHashMap.newKeySet();
+    try (PaymentJournal journal = groupCommitJournal()) {
+      journal.open(payment -> replayed.add(payment.getId()));
+    }
+    assertThat(replayed).isEqualTo(ids);
+  }
+
+  @Test
+  void failedAppend_shouldOnlyFailTheRestOfTheBatch() throws Exception {
+    PostPaymentResponse appended = payment(UUID.randomUUID());
+    PostPaymentResponse failing = payment(UUID.randomUUID());
+    PostPaymentResponse notAttempted = payment(UUID.randomUUID());
+    CountDownLatch queued = new CountDownLatch(1);
+
+    try (PaymentJournal journal = new PaymentJournal(directory, 1024 * 1024,
+        JournalFsyncPolicy.NONE, Duration.ZERO) {
+      @Override
+      long appendWithoutForce(PostPaymentResponse payment) {
+        if (payment == failing) {
+          throw new IllegalStateException("Journal segment could not be rolled");
+        }
+        return super.appendWithoutForce(payment);
+      }
+    }) {
+      journal.open(payment -> {
+      });
+      // The writer only starts once all three are queued, so they make up one batch
+      JournalGroupCommitter committer = new JournalGroupCommitter(journal, 16, 8,
+          Duration.ofMillis(1), runnable -> new Thread(() -> {
+            try {
+              queued.await();
+            } catch (InterruptedException ex) {
+              return;
+            }
+            runnable.run();
+          }));
+      CompletableFuture<Long> first = committer.submit(appended);
+      CompletableFuture<Long> second = committer.submit(failing);
+      CompletableFuture<Long> third = committer.submit(notAttempted);
+      queued.countDown();
+
+      assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+      assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS))
+          .hasCauseInstanceOf(IllegalStateException.class);
+      assertThatThrownBy(() -> third.get(10, TimeUnit.SECONDS))
+          .hasCauseInstanceOf(IllegalStateException.class);
+      committer.close();
+    }
+
+    List<UUID> replayed = new ArrayList<>();
+    try (PaymentJournal journal = groupCommitJournal()) {
+      journal.open(payment -> replayed.add(payment.getId()));
+    }
+    assertThat(replayed).containsExactly(appended.getId());
+  }
+
+  @Test
+  void ring_shouldRejectOffers_whenFull_andHandOutElementsInOrder() {
+    MpscRing<Integer> ring = new MpscRing<>(4);
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(ring.offer(i)).isTrue();
+    }
+    assertThat(ring.offer(4)).isFalse();
+    assertThat(ring.size()).isEqualTo(4);
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(ring.poll()).isEqualTo(i);
+    }
+    assertThat(ring.poll()).isNull();
+    assertThat(ring.offer(5)).isTrue();
+    assertThat(ring.poll()).isEqualTo(5);
+  }
+
+  private PaymentJournal groupCommitJournal() {
+    return new PaymentJournal(directory, 1024 * 1024, JournalFsyncPolicy.GROUP_COMMIT,
+        Duration.ZERO, 1024, 64, Duration.ofMillis(2));
+  }
+
+  private static PostPaymentResponse payment(UUID id) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(1111);
+    payment.setExpiryMonth(1);
+    payment.setExpiryYear(2030);
+    payment.setCurrency("USD");
+    payment.setAmount(250);
+    return payment;
+  }
+}
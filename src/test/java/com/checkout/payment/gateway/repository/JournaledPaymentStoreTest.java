@@ -0,0 +1,277 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.JournalFsyncPolicy;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournaledPaymentStoreTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void restart_shouldReplayEveryPayment() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      for (int i = 0; i < 2_000; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+      }
+    }
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.size()).isEqualTo(payments.size());
+      for (PostPaymentResponse payment : payments) {
+        assertThat(store.get(payment.getId())).usingRecursiveComparison().isEqualTo(payment);
+      }
+    }
+  }
+
+  @Test
+  void putAll_shouldShareOneForce_andBeReplayed() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      payments.add(payment(UUID.randomUUID(), i));
+    }
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      store.putAll(payments);
+      assertThat(store.size()).isEqualTo(payments.size());
+    }
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.size()).isEqualTo(payments.size());
+      for (PostPaymentResponse payment : payments) {
+        assertThat(store.get(payment.getId())).usingRecursiveComparison().isEqualTo(payment);
+      }
+    }
+  }
+
+  @Test
+  void restart_shouldReplayOverwritesInAppendOrder() {
+    UUID id = UUID.randomUUID();
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.NONE)) {
+      store.put(payment(id, 1));
+      store.put(payment(id, 2));
+    }
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.NONE)) {
+      assertThat(store.get(id).getAmount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void restart_shouldIgnoreTornTail_andKeepAppendingAfterLastIntactRecord() throws IOException {
+    PostPaymentResponse first = payment(UUID.randomUUID(), 1);
+    PostPaymentResponse second = payment(UUID.randomUUID(), 2);
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      store.put(first);
+      store.put(second);
+    }
+
+    // Corrupt one payload byte of the second frame:
+    Path segment = segments().get(0);
+    int secondPayload = PaymentJournal.SEGMENT_HEADER_SIZE + PaymentJournal.FRAME_SIZE
+        + PaymentJournal.FRAME_HEADER_SIZE;
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{42}), secondPayload + 20);
+    }
+
+    PostPaymentResponse third = payment(UUID.randomUUID(), 3);
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.get(first.getId())).isNotNull();
+      assertThat(store.get(second.getId())).isNull();
+      store.put(third);
+    }
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.get(third.getId())).usingRecursiveComparison().isEqualTo(third);
+    }
+  }
+
+  @Test
+  void compaction_shouldDropSupersededRecords_andKeepLiveOnes() throws IOException {
+    int perSegment =
+        (SEGMENT_SIZE - PaymentJournal.SEGMENT_HEADER_SIZE) / PaymentJournal.FRAME_SIZE;
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ids.add(UUID.randomUUID());
+    }
+
+    InMemoryPaymentStore delegate = new InMemoryPaymentStore();
+    PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE,
+        JournalFsyncPolicy.NONE, Duration.ZERO);
+    try (JournaledPaymentStore store = new JournaledPaymentStore(delegate, journal,
+        Duration.ZERO, 0.3)) {
+      // Fill more than two segments, rewriting the same ten payments over and over:
+      for (int i = 0; i < perSegment * 2 + 5; i++) {
+        store.put(payment(ids.get(i % ids.size()), i));
+      }
+      assertThat(segments()).hasSize(3);
+
+      journal.compact(0.3, record -> PaymentRecordCodec.sameRecord(
+          delegate.get(record.getId()), record));
+    }
+
+    // The first segment only held superseded records and the second keeps the latest five:
+    List<Path> compacted = segments();
+    assertThat(compacted).hasSize(2);
+    assertThat(Files.size(compacted.get(0)))
+        .isEqualTo(PaymentJournal.SEGMENT_HEADER_SIZE + 5L * PaymentJournal.FRAME_SIZE);
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.NONE)) {
+      assertThat(store.size()).isEqualTo(ids.size());
+      for (UUID id : ids) {
+        assertThat(store.get(id).getAmount()).isEqualTo(delegate.get(id).getAmount());
+      }
+    }
+  }
+
+  @Test
+  void compaction_shouldForceNewerVersions_beforeDroppingWhatTheySuperseded() throws IOException {
+    int perSegment =
+        (SEGMENT_SIZE - PaymentJournal.SEGMENT_HEADER_SIZE) / PaymentJournal.FRAME_SIZE;
+    UUID id = UUID.randomUUID();
+    List<String> events = new ArrayList<>();
+
+    InMemoryPaymentStore delegate = new InMemoryPaymentStore();
+    // No interval force comes in during the test, so only compaction forces the active segment
+    PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE,
+        JournalFsyncPolicy.INTERVAL, Duration.ofHours(1)) {
+      @Override
+      void forceAppended() throws IOException {
+        events.add(segments().size() == 2 ? "force" : "force after dropping");
+        super.forceAppended();
+      }
+    };
+    try (JournaledPaymentStore store = new JournaledPaymentStore(delegate, journal,
+        Duration.ZERO, 0.3)) {
+      // The first segment only holds superseded versions; the latest is in the active one
+      for (int i = 0; i <= perSegment; i++) {
+        store.put(payment(id, i));
+      }
+      assertThat(segments()).hasSize(2);
+
+      journal.compact(0.3, record -> {
+        events.add("scan");
+        return PaymentRecordCodec.sameRecord(delegate.get(record.getId()), record);
+      });
+    }
+
+    assertThat(segments()).hasSize(1);
+    assertThat(events).hasSize(perSegment + 1).endsWith("force");
+  }
+
+  @Test
+  void restart_shouldReplayVersion1Segments_andAppendToANewSegment() throws IOException {
+    PostPaymentResponse legacy = payment(UUID.randomUUID(), 7);
+    legacy.setCreatedAt(null);
+    writeVersion1Segment(legacy);
+
+    PostPaymentResponse current = payment(UUID.randomUUID(), 8);
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.get(legacy.getId())).usingRecursiveComparison().isEqualTo(legacy);
+      store.put(current);
+    }
+    assertThat(segments()).hasSize(2);
+
+    try (JournaledPaymentStore store = open(JournalFsyncPolicy.PER_WRITE)) {
+      assertThat(store.get(legacy.getId())).usingRecursiveComparison().isEqualTo(legacy);
+      assertThat(store.get(current.getId())).usingRecursiveComparison().isEqualTo(current);
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  void replay_ofTenMillionPayments() {
+    int count = 10_000_000;
+    try (JournaledPaymentStore store = new JournaledPaymentStore(new InMemoryPaymentStore(),
+        new PaymentJournal(directory, 256 * 1024 * 1024, JournalFsyncPolicy.NONE, Duration.ZERO),
+        Duration.ZERO, 0.3)) {
+      for (int i = 0; i < count; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+    }
+
+    long start = System.nanoTime();
+    try (JournaledPaymentStore store = new JournaledPaymentStore(
+        new OffHeapPaymentStore(2 * count),
+        new PaymentJournal(directory, 256 * 1024 * 1024, JournalFsyncPolicy.NONE, Duration.ZERO),
+        Duration.ZERO, 0.3)) {
+      long elapsed = System.nanoTime() - start;
+      System.out.printf("replayed %,d payments in %,d ms%n", store.size(), elapsed / 1_000_000);
+      assertThat(store.size()).isEqualTo(count);
+    }
+  }
+
+  private JournaledPaymentStore open(JournalFsyncPolicy fsyncPolicy) {
+    return new JournaledPaymentStore(new InMemoryPaymentStore(),
+        new PaymentJournal(directory, SEGMENT_SIZE, fsyncPolicy, Duration.ofMillis(5)),
+        Duration.ZERO, 0.3);
+  }
+
+  // A segment as the journal wrote it before records carried a creation time
+  private void writeVersion1Segment(PostPaymentResponse payment) throws IOException {
+    int recordSize = PaymentRecordCodec.V1_RECORD_SIZE;
+    ByteBuffer record = ByteBuffer.allocate(PaymentRecordCodec.RECORD_SIZE);
+    PaymentRecordCodec.encode(payment, record, 0);
+
+    ByteBuffer frame = ByteBuffer.allocate(PaymentJournal.FRAME_HEADER_SIZE + recordSize);
+    frame.putLong(8, 1L).put(PaymentJournal.FRAME_HEADER_SIZE, record, 0, recordSize);
+    CRC32C crc = new CRC32C();
+    crc.update(frame.slice(8, 8 + recordSize));
+    frame.putInt(0, recordSize).putInt(4, (int) crc.getValue());
+
+    ByteBuffer header = ByteBuffer.allocate(PaymentJournal.SEGMENT_HEADER_SIZE)
+        .putInt(PaymentJournal.MAGIC)
+        .putShort(PaymentJournal.V1_FORMAT_VERSION)
+        .putShort((short) 0)
+        .putLong(1L)
+        .flip();
+    try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%020d.log", 1)),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      channel.write(header);
+      channel.write(frame);
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".log")).sorted().toList();
+    }
+  }
+
+  private static PostPaymentResponse payment(UUID id, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(4242);
+    payment.setExpiryMonth(3);
+    payment.setExpiryYear(2029);
+    payment.setCurrency("EUR");
+    payment.setAmount(amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L + amount));
+    return payment;
+  }
+}
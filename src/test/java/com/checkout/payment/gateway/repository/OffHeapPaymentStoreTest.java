@@ -0,0 +1,94 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapPaymentStoreTest {
+
+  private OffHeapPaymentStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new OffHeapPaymentStore(16);
+  }
+
+  @Test
+  void putAndGet_shouldRoundTripEveryField() {
+    PostPaymentResponse payment = payment(UUID.randomUUID(), PaymentStatus.DECLINED, "GBP", 4321);
+
+    store.put(payment);
+
+    PostPaymentResponse found = store.get(payment.getId());
+    assertThat(found).isNotNull().usingRecursiveComparison().isEqualTo(payment);
+  }
+
+  @Test
+  void get_shouldReturnNull_whenPaymentDoesNotExist() {
+    store.put(payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED, "USD", 1));
+
+    assertThat(store.get(UUID.randomUUID())).isNull();
+  }
+
+  @Test
+  void put_shouldOverwriteExisting_whenSameIdAddedAgain() {
+    UUID id = UUID.randomUUID();
+    store.put(payment(id, PaymentStatus.AUTHORIZED, "USD", 1));
+    store.put(payment(id, PaymentStatus.REJECTED, "EUR", 2));
+
+    assertThat(store.size()).isEqualTo(1);
+    assertThat(store.get(id))
+        .hasFieldOrPropertyWithValue("status", PaymentStatus.REJECTED)
+        .hasFieldOrPropertyWithValue("currency", "EUR")
+        .hasFieldOrPropertyWithValue("amount", 2);
+  }
+
+  @Test
+  void put_shouldKeepPaymentsWithoutStatusOrCurrency() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setAmount(5);
+
+    store.put(payment);
+
+    assertThat(store.get(payment.getId()))
+        .hasFieldOrPropertyWithValue("status", null)
+        .hasFieldOrPropertyWithValue("currency", null)
+        .hasFieldOrPropertyWithValue("amount", 5);
+  }
+
+  @Test
+  void put_shouldGrowTheTable_andKeepEveryPayment() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      PostPaymentResponse payment = payment(UUID.randomUUID(), PaymentStatus.AUTHORIZED, "USD", i);
+      payments.add(payment);
+      store.put(payment);
+    }
+
+    assertThat(store.size()).isEqualTo(payments.size());
+    assertThat(store.capacity()).isGreaterThanOrEqualTo(2L * payments.size());
+    for (PostPaymentResponse payment : payments) {
+      assertThat(store.get(payment.getId())).usingRecursiveComparison().isEqualTo(payment);
+    }
+  }
+
+  private static PostPaymentResponse payment(UUID id, PaymentStatus status, String currency,
+      int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(status);
+    payment.setCardNumberLastFour(9876);
+    payment.setExpiryMonth(11);
+    payment.setExpiryYear(2031);
+    payment.setCurrency(currency);
+    payment.setAmount(amount);
+    return payment;
+  }
+}
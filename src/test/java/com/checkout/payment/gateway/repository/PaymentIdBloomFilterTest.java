@@ -0,0 +1,111 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class PaymentIdBloomFilterTest {
+
+  @Test
+  void mightContain_shouldNeverMissAnAddedId_whenFilterGrowsPastItsCapacity() {
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(1_000, 0.01);
+    List<UUID> ids = randomIds(20_000, 1);
+    ids.forEach(filter::add);
+
+    assertThat(ids).allMatch(filter::mightContain);
+    assertThat(filter.stageCount()).isGreaterThan(1);
+  }
+
+  @Test
+  void mightContain_shouldStayNearTheConfiguredRate_forUnknownIds() {
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(10_000, 0.01);
+    randomIds(80_000, 1).forEach(filter::add);
+
+    long falsePositives = randomIds(100_000, 2).stream().filter(filter::mightContain).count();
+
+    assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    assertThat(filter.estimatedFalsePositiveRate()).isLessThan(0.02);
+    assertThat(filter.definiteMisses() + filter.possibleHits()).isEqualTo(100_000);
+  }
+
+  @Test
+  void add_shouldNotUseCapacity_whenIdIsAlreadyPresent() {
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(10, 0.01);
+    UUID id = UUID.randomUUID();
+    for (int i = 0; i < 100; i++) {
+      filter.add(id);
+    }
+
+    assertThat(filter.stageCount()).isEqualTo(1);
+  }
+
+  @Test
+  void add_shouldKeepEveryId_whenCalledConcurrently() throws Exception {
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(1_000, 0.01);
+    List<List<UUID>> batches = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      batches.add(randomIds(10_000, 10 + i));
+    }
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(batches.size())) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<UUID> batch : batches) {
+        futures.add(executor.submit(() -> batch.forEach(filter::add)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    for (List<UUID> batch : batches) {
+      assertThat(batch).allMatch(filter::mightContain);
+    }
+  }
+
+  @Test
+  void bindTo_shouldReportMemoryAndChecks() {
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(1_000, 0.01);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    filter.bindTo(registry);
+    UUID id = UUID.randomUUID();
+    filter.add(id);
+    filter.mightContain(id);
+    filter.mightContain(UUID.randomUUID());
+    filter.recordFalsePositive();
+
+    assertThat(registry.get("payments.repository.bloom-filter.bytes").gauge().value())
+        .isEqualTo(filter.memoryBytes()).isPositive();
+    assertThat(registry.get("payments.repository.bloom-filter.checks")
+        .tag("result", "possible_hit").functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("payments.repository.bloom-filter.false-positives")
+        .functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void constructor_shouldRejectRatesOutsideZeroAndOne() {
+    assertThatThrownBy(() -> new PaymentIdBloomFilter(1_000, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new PaymentIdBloomFilter(1_000, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new PaymentIdBloomFilter(0, 0.01))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<UUID> randomIds(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<UUID> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(new UUID(random.nextLong(), random.nextLong()));
+    }
+    return ids;
+  }
+}
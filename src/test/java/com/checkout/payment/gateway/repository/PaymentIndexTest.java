@@ -0,0 +1,235 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidPaymentQueryException;
+import com.checkout.payment.gateway.exception.PaymentQueriesDisabledException;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class PaymentIndexTest {
+
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  private PaymentsRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = indexed(new InMemoryPaymentStore());
+  }
+
+  @Test
+  void query_shouldReturnMatchingPaymentsNewestFirst() {
+    List<PostPaymentResponse> gbpAuthorized = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      PostPaymentResponse payment = payment(i, i % 2 == 0 ? PaymentStatus.AUTHORIZED
+          : PaymentStatus.DECLINED, i % 3 == 0 ? "GBP" : "USD", 1000 + i % 5);
+      repository.add(payment);
+      if (payment.getStatus() == PaymentStatus.AUTHORIZED && "GBP".equals(payment.getCurrency())) {
+        gbpAuthorized.addFirst(payment);
+      }
+    }
+
+    PaymentPage page = repository.query(
+        new PaymentQuery(PaymentStatus.AUTHORIZED, "GBP", null, null, null, null, 50));
+
+    assertThat(page.payments()).containsExactlyElementsOf(gbpAuthorized);
+    assertThat(page.nextCursor()).isNull();
+  }
+
+  @Test
+  void query_shouldPageThroughEveryPaymentExactlyOnce_withCursors() {
+    List<PostPaymentResponse> expected = new ArrayList<>();
+    for (int i = 0; i < 95; i++) {
+      PostPaymentResponse payment = payment(i / 3, PaymentStatus.AUTHORIZED, "EUR", 4242);
+      repository.add(payment);
+      expected.add(payment);
+    }
+
+    List<PostPaymentResponse> seen = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      PaymentPage page = repository.query(
+          new PaymentQuery(null, null, 4242, null, null, cursor, 10));
+      seen.addAll(page.payments());
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    assertThat(pages).isEqualTo(10);
+    assertThat(seen).hasSize(95).containsExactlyInAnyOrderElementsOf(expected);
+    for (int i = 1; i < seen.size(); i++) {
+      assertThat(seen.get(i).getCreatedAt()).isBeforeOrEqualTo(seen.get(i - 1).getCreatedAt());
+    }
+  }
+
+  @Test
+  void query_shouldOnlyReturnPaymentsCreatedInTheRange() {
+    for (int i = 0; i < 20; i++) {
+      repository.add(payment(i, PaymentStatus.AUTHORIZED, "USD", 1));
+    }
+
+    PaymentPage page = repository.query(new PaymentQuery(null, null, null,
+        START.plusSeconds(5), START.plusSeconds(8), null, 50));
+
+    assertThat(page.payments()).extracting(PostPaymentResponse::getCreatedAt)
+        .containsExactly(START.plusSeconds(7), START.plusSeconds(6), START.plusSeconds(5));
+  }
+
+  @Test
+  void query_shouldEndThePageEarly_whenItReachesTheScanLimit() {
+    PaymentsRepository capped = indexed(new InMemoryPaymentStore(), 5);
+    List<PostPaymentResponse> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      PostPaymentResponse payment = payment(i, i % 4 == 0 ? PaymentStatus.AUTHORIZED
+          : PaymentStatus.DECLINED, "GBP", 1);
+      capped.add(payment);
+      if (payment.getStatus() == PaymentStatus.AUTHORIZED) {
+        expected.addFirst(payment);
+      }
+    }
+
+    List<PostPaymentResponse> seen = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      PaymentPage page = capped.query(
+          new PaymentQuery(PaymentStatus.AUTHORIZED, "GBP", null, null, null, cursor, 10));
+      assertThat(page.payments().size()).isLessThanOrEqualTo(2);
+      seen.addAll(page.payments());
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    assertThat(pages).isEqualTo(4);
+    assertThat(seen).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void add_shouldMoveIndexEntries_whenPaymentIsOverwritten() {
+    PostPaymentResponse first = payment(1, PaymentStatus.AUTHORIZED, "USD", 1111);
+    repository.add(first);
+    PostPaymentResponse second = payment(2, PaymentStatus.DECLINED, "GBP", 2222);
+    second.setId(first.getId());
+    repository.add(second);
+
+    assertThat(repository.query(
+        new PaymentQuery(PaymentStatus.AUTHORIZED, null, null, null, null, null, 10)).payments())
+        .isEmpty();
+    assertThat(repository.query(
+        new PaymentQuery(null, "USD", null, null, null, null, 10)).payments()).isEmpty();
+    assertThat(repository.query(
+        new PaymentQuery(null, null, 2222, null, null, null, 10)).payments())
+        .containsExactly(second);
+    assertThat(repository.query(
+        new PaymentQuery(null, null, null, null, null, null, 10)).payments())
+        .containsExactly(second);
+  }
+
+  @Test
+  void constructor_shouldIndexPaymentsAlreadyInTheStore() {
+    InMemoryPaymentStore store = new InMemoryPaymentStore();
+    PostPaymentResponse payment = payment(1, PaymentStatus.DECLINED, "EUR", 1);
+    store.put(payment);
+
+    PaymentsRepository reopened = indexed(store);
+
+    assertThat(reopened.query(
+        new PaymentQuery(PaymentStatus.DECLINED, null, null, null, null, null, 10)).payments())
+        .containsExactly(payment);
+  }
+
+  @Test
+  void query_shouldRejectCursorsItDidNotIssue() {
+    assertThatThrownBy(() -> repository.query(
+        new PaymentQuery(null, null, null, null, null, "not a cursor", 10)))
+        .isInstanceOf(InvalidPaymentQueryException.class);
+    assertThatThrownBy(() -> repository.query(
+        new PaymentQuery(null, null, null, null, null, "AAAA", 10)))
+        .isInstanceOf(InvalidPaymentQueryException.class);
+  }
+
+  @Test
+  void query_shouldBeRejected_whenTheIndexIsDisabled() {
+    PaymentsRepository unindexed = new PaymentsRepository();
+    unindexed.add(payment(1, PaymentStatus.AUTHORIZED, "GBP", 1));
+
+    assertThatThrownBy(() -> unindexed.query(
+        new PaymentQuery(null, null, null, null, null, null, 10)))
+        .isInstanceOf(PaymentQueriesDisabledException.class);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void footprint_ofTheIndexes() {
+    int count = 1_000_000;
+    PostPaymentResponse[] payments = new PostPaymentResponse[count];
+    SplittableRandom random = new SplittableRandom(42);
+    String[] currencies = {"USD", "GBP", "EUR"};
+    for (int i = 0; i < count; i++) {
+      payments[i] = payment(i, PaymentStatus.values()[random.nextInt(3)],
+          currencies[random.nextInt(3)], random.nextInt(10_000));
+    }
+
+    OffHeapPaymentStore store = new OffHeapPaymentStore(2 * count);
+    long before = usedHeap();
+    PaymentsRepository indexed = indexed(store);
+    long start = System.nanoTime();
+    for (PostPaymentResponse payment : payments) {
+      indexed.add(payment);
+    }
+    long elapsed = System.nanoTime() - start;
+    long after = usedHeap();
+
+    System.out.printf("indexed %,d payments in %,d ms, %.1f bytes of heap per payment%n", count,
+        elapsed / 1_000_000, (after - before) / (double) count);
+    assertThat(indexed.size()).isEqualTo(count);
+  }
+
+  private static PaymentsRepository indexed(PaymentStore store) {
+    return indexed(store, 10_000);
+  }
+
+  private static PaymentsRepository indexed(PaymentStore store, int maxScanned) {
+    return new PaymentsRepository(store, Optional.empty(),
+        Optional.of(new PaymentIndex(maxScanned)), Optional.empty());
+  }
+
+  // The off-heap store keeps no heap objects, so heap growth is the indexes alone
+  private static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private static PostPaymentResponse payment(int second, PaymentStatus status, String currency,
+      int lastFour) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(status);
+    payment.setCardNumberLastFour(lastFour);
+    payment.setExpiryMonth(6);
+    payment.setExpiryYear(2031);
+    payment.setCurrency(currency);
+    payment.setAmount(100);
+    payment.setCreatedAt(START.plusSeconds(second));
+    return payment;
+  }
+}
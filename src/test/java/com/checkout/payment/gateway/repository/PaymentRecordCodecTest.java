@@ -0,0 +1,140 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class PaymentRecordCodecTest {
+
+  @Test
+  void byteBuffer_shouldRoundTripEveryField() {
+    PostPaymentResponse payment = payment(PaymentStatus.DECLINED, "GBP", 4321);
+    ByteBuffer buffer = ByteBuffer.allocate(PaymentRecordCodec.RECORD_SIZE);
+
+    PaymentRecordCodec.encode(payment, buffer, 0);
+
+    assertThat(PaymentRecordCodec.decode(buffer, 0)).usingRecursiveComparison()
+        .isEqualTo(payment);
+  }
+
+  @Test
+  void memorySegment_shouldRoundTripEveryField_atAnyOffset() {
+    PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "JPY", 99_999);
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment segment = arena.allocate(PaymentRecordCodec.RECORD_SIZE + 3);
+
+      PaymentRecordCodec.encode(payment, segment, 3);
+
+      assertThat(PaymentRecordCodec.decode(segment, 3)).usingRecursiveComparison()
+          .isEqualTo(payment);
+    }
+  }
+
+  @Test
+  void encodeAll_shouldWriteTheBatchHeader_thenFixedSizeRecords() {
+    List<PostPaymentResponse> payments = List.of(payment(PaymentStatus.AUTHORIZED, "USD", 1),
+        payment(PaymentStatus.REJECTED, "EUR", 2));
+
+    byte[] batch = PaymentRecordCodec.encodeAll(payments);
+
+    assertThat(batch).hasSize(PaymentRecordCodec.BATCH_HEADER_SIZE
+        + payments.size() * PaymentRecordCodec.RECORD_SIZE);
+    ByteBuffer buffer = ByteBuffer.wrap(batch);
+    assertThat(buffer.getShort(0)).isEqualTo(PaymentRecordCodec.BATCH_MAGIC);
+    assertThat(buffer.getShort(2)).isEqualTo(PaymentRecordCodec.FORMAT_VERSION);
+    assertThat(PaymentRecordCodec.decodeAll(batch)).usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(payments);
+  }
+
+  @Test
+  void decodeAll_shouldAcceptVersion1Batches_withoutCreationTimes() {
+    PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "USD", 1);
+    ByteBuffer buffer = ByteBuffer.allocate(PaymentRecordCodec.RECORD_SIZE);
+    PaymentRecordCodec.encode(payment, buffer, 0);
+    ByteBuffer batch = ByteBuffer.allocate(PaymentRecordCodec.BATCH_HEADER_SIZE
+            + PaymentRecordCodec.V1_RECORD_SIZE)
+        .putShort(PaymentRecordCodec.BATCH_MAGIC)
+        .putShort(PaymentRecordCodec.V1_FORMAT_VERSION)
+        .put(buffer.array(), 0, PaymentRecordCodec.V1_RECORD_SIZE);
+
+    List<PostPaymentResponse> decoded = PaymentRecordCodec.decodeAll(batch.array());
+
+    assertThat(decoded).singleElement().usingRecursiveComparison().ignoringFields("createdAt")
+        .isEqualTo(payment);
+    assertThat(decoded.getFirst().getCreatedAt()).isNull();
+  }
+
+  @Test
+  void decodeAll_shouldRejectBatchesItCannotRead() {
+    byte[] batch = PaymentRecordCodec.encodeAll(List.of(payment(PaymentStatus.AUTHORIZED, "USD",
+        1)));
+
+    assertThatThrownBy(() -> PaymentRecordCodec.decodeAll(Arrays.copyOf(batch, batch.length - 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> PaymentRecordCodec.decodeAll(
+        Arrays.copyOfRange(batch, PaymentRecordCodec.BATCH_HEADER_SIZE, batch.length)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void decode_shouldRejectAmountsWiderThanTheModel_ratherThanTruncateThem() {
+    PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "GBP", 1);
+    ByteBuffer buffer = ByteBuffer.allocate(PaymentRecordCodec.RECORD_SIZE);
+    PaymentRecordCodec.encode(payment, buffer, 0);
+    buffer.putLong(PaymentRecordCodec.AMOUNT_OFFSET, Integer.MAX_VALUE + 1L);
+
+    assertThatThrownBy(() -> PaymentRecordCodec.decode(buffer, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment segment = arena.allocate(PaymentRecordCodec.RECORD_SIZE);
+      PaymentRecordCodec.encode(payment, segment, 0);
+      segment.set(ValueLayout.JAVA_LONG_UNALIGNED, PaymentRecordCodec.AMOUNT_OFFSET,
+          Integer.MIN_VALUE - 1L);
+
+      assertThatThrownBy(() -> PaymentRecordCodec.decode(segment, 0))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  // The sizes PaymentRecordCodecBenchmark compares the codecs at
+  @Test
+  void record_shouldBeSmallerThanJson_andJavaSerialization() throws IOException {
+    PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "GBP", 100);
+    byte[] json = Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(payment);
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+      out.writeObject(payment);
+    }
+
+    assertThat(PaymentRecordCodec.RECORD_SIZE).isLessThan(json.length)
+        .isLessThan(serialized.size());
+  }
+
+  private static PostPaymentResponse payment(PaymentStatus status, String currency, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(status);
+    payment.setCardNumberLastFour(8877);
+    payment.setExpiryMonth(4);
+    payment.setExpiryYear(2035);
+    payment.setCurrency(currency);
+    payment.setAmount(amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L + amount));
+    return payment;
+  }
+}
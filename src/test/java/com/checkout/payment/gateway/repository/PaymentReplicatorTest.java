@@ -0,0 +1,248 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.JournalFsyncPolicy;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PaymentReplicatorTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+
+  @TempDir
+  private Path directory;
+
+  private final FakePeer peer = new FakePeer();
+
+  @Test
+  void appends_shouldReachThePeerInJournalOrder() throws Exception {
+    UUID updated = UUID.randomUUID();
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      payments.add(payment(i % 100 == 0 ? updated : UUID.randomUUID(), i));
+    }
+
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 4096)) {
+      for (PostPaymentResponse payment : payments) {
+        store.put(payment);
+      }
+      awaitCaughtUp(replicator);
+
+      assertThat(peer.received()).extracting(PostPaymentResponse::getAmount)
+          .containsExactlyElementsOf(payments.stream().map(PostPaymentResponse::getAmount)
+              .toList());
+      assertThat(peer.batches()).isLessThan(payments.size());
+      assertThat(replicator.sentFromBacklog()).isEqualTo(payments.size());
+      assertThat(replicator.sentFromJournal()).isZero();
+    }
+  }
+
+  @Test
+  void unreachablePeer_shouldBeCaughtUpFromTheJournal_onceItIsBack() throws Exception {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 16)) {
+      peer.down = true;
+      for (int i = 0; i < 500; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+      }
+      awaitUntil(() -> replicator.failures() > 0);
+      assertThat(replicator.overflows()).isPositive();
+      assertThat(replicator.lag()).isPositive();
+
+      peer.down = false;
+      awaitCaughtUp(replicator);
+
+      assertThat(peer.received()).extracting(PostPaymentResponse::getId)
+          .containsAll(payments.stream().map(PostPaymentResponse::getId).toList());
+      assertThat(replicator.failures()).isPositive();
+      assertThat(replicator.sentFromJournal()).isPositive();
+    }
+  }
+
+  @Test
+  void unreadableJournal_shouldBeRetried_ratherThanEndTheSender() throws Exception {
+    AtomicInteger failingReads = new AtomicInteger(3);
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (PaymentJournal journal = failingJournal(failingReads);
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 16)) {
+      peer.down = true;
+      for (int i = 0; i < 500; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+      }
+      awaitUntil(() -> replicator.failures() > 0);
+
+      peer.down = false;
+      awaitCaughtUp(replicator);
+
+      assertThat(failingReads.get()).isNegative();
+      assertThat(peer.received()).extracting(PostPaymentResponse::getId)
+          .containsAll(payments.stream().map(PostPaymentResponse::getId).toList());
+    }
+  }
+
+  @Test
+  void restart_shouldOnlySendWhatThePeerHasNotAcknowledged() throws Exception {
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 1024)) {
+      for (int i = 0; i < 100; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+      awaitCaughtUp(replicator);
+    }
+
+    // Written while replication was off, so only the journal has them
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal)) {
+      for (int i = 100; i < 110; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+    }
+
+    peer.clear();
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 1024)) {
+      store.put(payment(UUID.randomUUID(), 110));
+      awaitCaughtUp(replicator);
+
+      assertThat(peer.received()).extracting(PostPaymentResponse::getAmount)
+          .containsExactly(100, 101, 102, 103, 104, 105, 106, 107, 108, 109, 110);
+    }
+  }
+
+  @Test
+  void awaitBacklog_shouldHoldWritersBack_forAtMostTheMaximumWait() throws Exception {
+    try (PaymentJournal journal = journal();
+        JournaledPaymentStore store = store(journal);
+        PaymentReplicator replicator = replicator(journal, 16)) {
+      peer.down = true;
+      store.put(payment(UUID.randomUUID(), 0));
+      // The sender is stuck on its first batch, so nothing leaves the backlog any more
+      awaitUntil(() -> replicator.failures() > 0);
+      for (int i = 1; i < 200; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+
+      long start = System.nanoTime();
+      replicator.awaitBacklog();
+      long waited = System.nanoTime() - start;
+
+      assertThat(waited).isBetween(TimeUnit.MILLISECONDS.toNanos(50),
+          TimeUnit.SECONDS.toNanos(5));
+    }
+  }
+
+  private PaymentJournal journal() {
+    return new PaymentJournal(directory.resolve("journal"), SEGMENT_SIZE, JournalFsyncPolicy.NONE,
+        Duration.ofMillis(5));
+  }
+
+  // Fails the first reads back, as an unreadable segment would
+  private PaymentJournal failingJournal(AtomicInteger failingReads) {
+    return new PaymentJournal(directory.resolve("journal"), SEGMENT_SIZE, JournalFsyncPolicy.NONE,
+        Duration.ofMillis(5)) {
+      @Override
+      public void read(long fromSequence, long toSequence, RecordListener records) {
+        if (failingReads.getAndDecrement() > 0) {
+          throw new UncheckedIOException(new IOException("Journal segment unreadable"));
+        }
+        super.read(fromSequence, toSequence, records);
+      }
+    };
+  }
+
+  private static JournaledPaymentStore store(PaymentJournal journal) {
+    return new JournaledPaymentStore(new InMemoryPaymentStore(), journal, Duration.ZERO, 0.3);
+  }
+
+  private PaymentReplicator replicator(PaymentJournal journal, int backlogCapacity) {
+    return new PaymentReplicator(journal, peer, "http://peer", directory.resolve("replication"),
+        backlogCapacity, 64, Duration.ofMillis(1), Duration.ofMillis(50), Duration.ofMillis(5),
+        Duration.ofMillis(20), false);
+  }
+
+  private static void awaitCaughtUp(PaymentReplicator replicator) throws InterruptedException {
+    awaitUntil(() -> replicator.lag() == 0);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+
+  private static PostPaymentResponse payment(UUID id, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(4242);
+    payment.setExpiryMonth(3);
+    payment.setExpiryYear(2029);
+    payment.setCurrency("EUR");
+    payment.setAmount(amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L + amount));
+    return payment;
+  }
+
+  // Keeps whatever it is sent, or refuses it while down
+  private static final class FakePeer implements PaymentPeerTransport {
+
+    private final List<PostPaymentResponse> received =
+        Collections.synchronizedList(new ArrayList<>());
+    private volatile int batches;
+    private volatile boolean down;
+
+    @Override
+    public void put(String node, byte[] records) {
+      if (down) {
+        throw new UncheckedIOException(new IOException("Connection refused: " + node));
+      }
+      received.addAll(PaymentRecordCodec.decodeAll(records));
+      batches++;
+    }
+
+    @Override
+    public byte[] get(String node, UUID id) {
+      throw new UnsupportedOperationException();
+    }
+
+    List<PostPaymentResponse> received() {
+      return List.copyOf(received);
+    }
+
+    int batches() {
+      return batches;
+    }
+
+    void clear() {
+      received.clear();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class PaymentsRepositoryConcurrencyTest {
+
+  private static final int THREADS = 16;
+  private static final int PAYMENTS_PER_THREAD = 20_000;
+
+  @Test
+  void concurrentAdds_shouldNotLoseAnyWrite() throws Exception {
+    PaymentsRepository repository = new PaymentsRepository();
+    List<List<PostPaymentResponse>> batches = generateBatches(THREADS, PAYMENTS_PER_THREAD);
+
+    runConcurrently(batches, repository::add);
+
+    assertThat(repository.size()).isEqualTo((long) THREADS * PAYMENTS_PER_THREAD);
+    for (List<PostPaymentResponse> batch : batches) {
+      for (PostPaymentResponse payment : batch) {
+        assertThat(repository.get(payment.getId())).containsSame(payment);
+      }
+    }
+  }
+
+  @Test
+  void concurrentOverwrites_ofSameIds_shouldKeepOneOfTheWrittenPayments() throws Exception {
+    InMemoryPaymentStore store = new InMemoryPaymentStore();
+    PaymentsRepository repository = new PaymentsRepository(store);
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      ids.add(UUID.randomUUID());
+    }
+
+    // Every thread writes its own instance for each of a handful of shared IDs:
+    List<List<PostPaymentResponse>> batches = new ArrayList<>();
+    Set<PostPaymentResponse> written = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    for (int t = 0; t < THREADS; t++) {
+      List<PostPaymentResponse> batch = new ArrayList<>();
+      for (int i = 0; i < 2_000; i++) {
+        PostPaymentResponse payment = payment(ids.get(i % ids.size()));
+        payment.setAmount(t * 10_000 + i);
+        batch.add(payment);
+      }
+      written.addAll(batch);
+      batches.add(batch);
+    }
+
+    runConcurrently(batches, repository::add);
+
+    assertThat(repository.size()).isEqualTo(ids.size());
+    for (UUID id : ids) {
+      assertThat(repository.get(id)).get().isIn(written);
+    }
+    assertThat(store.overwrites()).isEqualTo((long) THREADS * 2_000 - ids.size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void throughput_comparedToSynchronizedHashMap() throws Exception {
+    // The previous HashMap is not thread-safe at all, so the closest working baseline is the
+    // same map behind a single monitor:
+    Map<UUID, PostPaymentResponse> baseline = Collections.synchronizedMap(new HashMap<>());
+
+    for (int round = 0; round < 3; round++) {
+      List<List<PostPaymentResponse>> batches = generateBatches(THREADS, PAYMENTS_PER_THREAD);
+      baseline.clear();
+      InMemoryPaymentStore store = new InMemoryPaymentStore();
+      PaymentsRepository repository = new PaymentsRepository(store);
+
+      double baselineOps = measure(batches, mixedWorkload(p -> baseline.put(p.getId(), p),
+          baseline::get));
+      double repositoryOps = measure(batches, mixedWorkload(repository::add, repository::get));
+
+      System.out.printf("round %d: synchronized HashMap %,.0f ops/s, PaymentsRepository %,.0f "
+          + "ops/s%n", round, baselineOps, repositoryOps);
+      assertThat(repository.size()).isEqualTo((long) THREADS * PAYMENTS_PER_THREAD);
+    }
+  }
+
+  // Each write is followed by four reads, roughly the GET/POST mix we see in production:
+  private static Consumer<PostPaymentResponse> mixedWorkload(Consumer<PostPaymentResponse> writer,
+      Function<UUID, ?> reader) {
+    return payment -> {
+      writer.accept(payment);
+      for (int i = 0; i < 4; i++) {
+        reader.apply(payment.getId());
+      }
+    };
+  }
+
+  private static double measure(List<List<PostPaymentResponse>> batches,
+      Consumer<PostPaymentResponse> operation) throws Exception {
+    long start = System.nanoTime();
+    runConcurrently(batches, operation);
+    long elapsed = System.nanoTime() - start;
+    long operations = (long) batches.size() * batches.get(0).size() * 5;
+    return operations / (elapsed / 1_000_000_000.0);
+  }
+
+  private static void runConcurrently(List<List<PostPaymentResponse>> batches,
+      Consumer<PostPaymentResponse> operation) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<PostPaymentResponse> batch : batches) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          batch.forEach(operation);
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<List<PostPaymentResponse>> generateBatches(int threads, int perThread) {
+    List<List<PostPaymentResponse>> batches = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      List<PostPaymentResponse> batch = new ArrayList<>(perThread);
+      for (int i = 0; i < perThread; i++) {
+        batch.add(payment(UUID.randomUUID()));
+      }
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private static PostPaymentResponse payment(UUID id) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(1234);
+    payment.setExpiryMonth(12);
+    payment.setExpiryYear(2030);
+    payment.setCurrency("USD");
+    payment.setAmount(100);
+    return payment;
+  }
+}
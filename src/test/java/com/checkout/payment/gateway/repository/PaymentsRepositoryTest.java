@@ -1,9 +1,16 @@
 package com.checkout.payment.gateway.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -62,4 +69,95 @@ public class PaymentsRepositoryTest {
     assertThat(found.get()).isSameAs(second);
     assertThat(found.get().getAmount()).isEqualTo(2);
   }
+
+  @Test
+  void getAll_shouldAnswerEveryIdInOrder_withNullForMissingPayments() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    repository.add(payment);
+    UUID missing = UUID.randomUUID();
+
+    List<UUID> ids = new ArrayList<>();
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    repository.getAll(List.of(missing, payment.getId()), (id, found) -> {
+      ids.add(id);
+      payments.add(found);
+    });
+
+    assertThat(ids).containsExactly(missing, payment.getId());
+    assertThat(payments).containsExactly(null, payment);
+  }
+
+  @Test
+  void get_shouldNotReadTheStore_whenBloomFilterRulesTheIdOut() {
+    PaymentStore store = spy(new InMemoryPaymentStore());
+    PaymentIdBloomFilter filter = new PaymentIdBloomFilter(1_000, 0.01);
+    PaymentsRepository filtered = new PaymentsRepository(store, Optional.of(filter));
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    filtered.add(payment);
+    clearInvocations(store);
+
+    assertThat(filtered.get(payment.getId())).containsSame(payment);
+    UUID unknown = UUID.randomUUID();
+    assertThat(filtered.get(unknown)).isEmpty();
+
+    verify(store).get(payment.getId());
+    verify(store, never()).get(unknown);
+    assertThat(filter.definiteMisses()).isEqualTo(1);
+  }
+
+  @Test
+  void add_shouldNotReadThePreviousVersion_whenTheIndexIsDisabled() {
+    PaymentStore store = spy(new InMemoryPaymentStore());
+    PaymentsRepository unindexed = new PaymentsRepository(store);
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+
+    unindexed.add(payment);
+    unindexed.addAll(List.of(payment));
+
+    verify(store, never()).get(payment.getId());
+    verify(store, never()).peek(payment.getId());
+  }
+
+  @Test
+  void constructor_shouldFillBloomFilter_fromPaymentsAlreadyInTheStore() {
+    InMemoryPaymentStore store = new InMemoryPaymentStore();
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    store.put(payment);
+
+    PaymentsRepository reopened = new PaymentsRepository(store,
+        Optional.of(new PaymentIdBloomFilter(1_000, 0.01)));
+
+    assertThat(reopened.get(payment.getId())).containsSame(payment);
+  }
+
+  @Test
+  void addReplicas_shouldKeepTheLastVersion_andSkipPaymentsAlreadyHeld() {
+    PaymentStore store = spy(new InMemoryPaymentStore());
+    PaymentsRepository replica = new PaymentsRepository(store);
+    PostPaymentResponse held = replicated(UUID.randomUUID(), 1);
+    replica.add(held);
+    UUID updated = UUID.randomUUID();
+    clearInvocations(store);
+
+    replica.addReplicas(PaymentRecordCodec.encodeAll(List.of(replicated(updated, 1),
+        replicated(held.getId(), 1), replicated(updated, 2))));
+
+    verify(store).putAll(argThat(payments -> payments.size() == 1));
+    assertThat(replica.get(updated)).get().extracting(PostPaymentResponse::getAmount)
+        .isEqualTo(2);
+    assertThat(replica.size()).isEqualTo(2);
+  }
+
+  private static PostPaymentResponse replicated(UUID id, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCurrency("GBP");
+    payment.setAmount(amount);
+    return payment;
+  }
 }
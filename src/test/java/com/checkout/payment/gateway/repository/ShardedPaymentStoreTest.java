@@ -0,0 +1,200 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.PaymentClusterUnavailableException;
+import com.checkout.payment.gateway.model.PaymentQuery;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardedPaymentStoreTest {
+
+  private static final List<String> NODES = List.of("http://a", "http://b", "http://c");
+
+  private final Map<String, ShardedPaymentStore> cluster = new HashMap<>();
+  private final Map<String, InMemoryPaymentStore> shards = new HashMap<>();
+  private final Set<String> down = new HashSet<>();
+  private ConsistentHashRing ring;
+
+  // Nodes call each other directly instead of over HTTP
+  private final PaymentPeerTransport transport = new PaymentPeerTransport() {
+    @Override
+    public void put(String node, byte[] records) {
+      reachable(node).putReplicas(records);
+    }
+
+    @Override
+    public byte[] get(String node, UUID id) {
+      return reachable(node).getReplica(id);
+    }
+  };
+
+  @BeforeEach
+  void setUp() {
+    ring = new ConsistentHashRing(NODES, 64);
+    for (String node : NODES) {
+      InMemoryPaymentStore shard = new InMemoryPaymentStore();
+      shards.put(node, shard);
+      cluster.put(node, new ShardedPaymentStore(node, shard, ring, 2, transport, Runnable::run));
+    }
+  }
+
+  @Test
+  void put_shouldStoreEachPaymentOnItsTwoOwners_only() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      PostPaymentResponse payment = payment(i);
+      payments.add(payment);
+      cluster.get(NODES.get(i % NODES.size())).put(payment);
+    }
+
+    for (PostPaymentResponse payment : payments) {
+      List<String> owners = ring.owners(payment.getId(), 2);
+      for (String node : NODES) {
+        assertThat(shards.get(node).get(payment.getId()) != null)
+            .isEqualTo(owners.contains(node));
+      }
+    }
+    assertThat(shards.values().stream().mapToLong(InMemoryPaymentStore::size).sum())
+        .isEqualTo(2L * payments.size());
+  }
+
+  @Test
+  void get_shouldFindAPayment_fromEveryNode() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      payments.add(payment(i));
+    }
+    cluster.get(NODES.getFirst()).putAll(payments);
+
+    for (String node : NODES) {
+      for (PostPaymentResponse payment : payments) {
+        assertThat(cluster.get(node).get(payment.getId()))
+            .usingRecursiveComparison().isEqualTo(payment);
+      }
+      assertThat(cluster.get(node).get(UUID.randomUUID())).isNull();
+    }
+  }
+
+  @Test
+  void get_shouldFallBackToTheOtherOwner_whenOneIsDown() {
+    PostPaymentResponse payment = payment(1);
+    List<String> owners = ring.owners(payment.getId(), 2);
+    String other = NODES.stream().filter(node -> !owners.contains(node)).findFirst().orElseThrow();
+    cluster.get(other).put(payment);
+
+    down.add(owners.getFirst());
+
+    assertThat(cluster.get(other).get(payment.getId())).isNotNull();
+    assertThat(cluster.get(other).failedReads()).isEqualTo(1);
+  }
+
+  @Test
+  void putAndGet_shouldFail_whenEveryOwnerIsDown() {
+    PostPaymentResponse payment = payment(1);
+    List<String> owners = ring.owners(payment.getId(), 2);
+    String other = NODES.stream().filter(node -> !owners.contains(node)).findFirst().orElseThrow();
+    down.addAll(owners);
+
+    assertThatThrownBy(() -> cluster.get(other).put(payment))
+        .isInstanceOf(PaymentClusterUnavailableException.class);
+    assertThatThrownBy(() -> cluster.get(other).get(payment.getId()))
+        .isInstanceOf(PaymentClusterUnavailableException.class);
+  }
+
+  @Test
+  void getLocal_shouldNeverForward() {
+    PostPaymentResponse payment = payment(1);
+    List<String> owners = ring.owners(payment.getId(), 2);
+    String other = NODES.stream().filter(node -> !owners.contains(node)).findFirst().orElseThrow();
+    cluster.get(other).put(payment);
+
+    assertThat(cluster.get(other).getLocal(payment.getId())).isNull();
+    assertThat(cluster.get(other).forwardedReads()).isZero();
+  }
+
+  @Test
+  void query_shouldListThePaymentsEachNodeOwns_includingAfterARestart() {
+    List<String> nodes = List.of("http://a", "http://b");
+    ConsistentHashRing twoNodes = new ConsistentHashRing(nodes, 64);
+    Map<String, PaymentsRepository> repositories = new HashMap<>();
+    PaymentPeerTransport peers = new PaymentPeerTransport() {
+      @Override
+      public void put(String node, byte[] records) {
+        repositories.get(node).addOwned(records);
+      }
+
+      @Override
+      public byte[] get(String node, UUID id) {
+        return null;
+      }
+    };
+    Map<String, ShardedPaymentStore> stores = new HashMap<>();
+    for (String node : nodes) {
+      stores.put(node, new ShardedPaymentStore(node, new InMemoryPaymentStore(), twoNodes, 1,
+          peers, Runnable::run));
+      repositories.put(node, indexed(stores.get(node)));
+    }
+
+    Map<String, List<UUID>> owned = new HashMap<>();
+    for (int i = 0; i < 200; i++) {
+      PostPaymentResponse payment = payment(i);
+      repositories.get("http://a").add(payment);
+      owned.computeIfAbsent(twoNodes.owners(payment.getId(), 1).getFirst(),
+          node -> new ArrayList<>()).add(payment.getId());
+    }
+
+    for (String node : nodes) {
+      assertThat(owned.get(node)).isNotEmpty();
+      assertThat(listed(repositories.get(node))).containsExactlyInAnyOrderElementsOf(
+          owned.get(node));
+      // A restarted node rebuilds its index from what its shard holds
+      assertThat(listed(indexed(stores.get(node)))).containsExactlyInAnyOrderElementsOf(
+          owned.get(node));
+    }
+  }
+
+  private static PaymentsRepository indexed(PaymentStore store) {
+    return new PaymentsRepository(store, Optional.empty(), Optional.of(new PaymentIndex(10_000)),
+        Optional.empty());
+  }
+
+  private static List<UUID> listed(PaymentsRepository repository) {
+    return repository.query(new PaymentQuery(null, null, null, null, null, null, 500)).payments()
+        .stream().map(PostPaymentResponse::getId).toList();
+  }
+
+  private ShardedPaymentStore reachable(String node) {
+    if (down.contains(node)) {
+      throw new UncheckedIOException(new IOException("Connection refused: " + node));
+    }
+    return cluster.get(node);
+  }
+
+  private static PostPaymentResponse payment(int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(4242);
+    payment.setExpiryMonth(3);
+    payment.setExpiryYear(2029);
+    payment.setCurrency("EUR");
+    payment.setAmount(amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L + amount));
+    return payment;
+  }
+}
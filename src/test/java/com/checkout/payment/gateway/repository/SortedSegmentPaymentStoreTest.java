@@ -0,0 +1,180 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SortedSegmentPaymentStoreTest {
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void get_shouldFindPayments_inTheMemtableAndInFlushedSegments() throws Exception {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (SortedSegmentPaymentStore store = open(100, 100)) {
+      for (int i = 0; i < 1_050; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+      }
+      store.awaitFlushes();
+
+      assertThat(store.segmentCount()).isEqualTo(10);
+      assertThat(store.memtableSize()).isEqualTo(50);
+      assertThat(store.size()).isEqualTo(payments.size());
+      for (PostPaymentResponse payment : payments) {
+        assertThat(store.get(payment.getId())).usingRecursiveComparison().isEqualTo(payment);
+      }
+      assertThat(store.get(UUID.randomUUID())).isNull();
+    }
+  }
+
+  @Test
+  void restart_shouldKeepEveryPayment_includingThoseStillInTheMemtable() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (SortedSegmentPaymentStore store = open(100, 100)) {
+      for (int i = 0; i < 250; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+      }
+    }
+
+    try (SortedSegmentPaymentStore store = open(100, 100)) {
+      assertThat(store.size()).isEqualTo(payments.size());
+      for (PostPaymentResponse payment : payments) {
+        assertThat(store.get(payment.getId())).usingRecursiveComparison().isEqualTo(payment);
+      }
+    }
+  }
+
+  @Test
+  void merge_shouldKeepTheNewestVersionOfEachPayment() throws Exception {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      ids.add(UUID.randomUUID());
+    }
+    Map<UUID, PostPaymentResponse> latest = new HashMap<>();
+    try (SortedSegmentPaymentStore store = open(100, 100)) {
+      for (int round = 0; round < 4; round++) {
+        for (UUID id : ids.subList(0, 300 - round * 50)) {
+          PostPaymentResponse payment = payment(id, round);
+          latest.put(id, payment);
+          store.put(payment);
+        }
+      }
+      store.awaitFlushes();
+      assertThat(store.segmentCount()).isGreaterThan(1);
+
+      store.merge();
+
+      assertThat(store.segmentCount()).isEqualTo(1);
+      assertThat(segmentFiles()).hasSize(1);
+      assertThat(store.size()).isEqualTo(ids.size());
+      for (UUID id : ids) {
+        assertThat(store.get(id)).usingRecursiveComparison().isEqualTo(latest.get(id));
+      }
+      List<PostPaymentResponse> visited = new ArrayList<>();
+      store.forEach(visited::add);
+      assertThat(visited).hasSize(ids.size());
+    }
+  }
+
+  @Test
+  void flush_shouldMergeInTheBackground_whenThereAreTooManySegments() throws Exception {
+    try (SortedSegmentPaymentStore store = open(10, 3)) {
+      for (int i = 0; i < 200; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (store.merges() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(store.merges()).isPositive();
+      assertThat(store.size()).isEqualTo(200);
+      List<PostPaymentResponse> visited = new ArrayList<>();
+      store.forEach(visited::add);
+      assertThat(visited).hasSize(200);
+    }
+  }
+
+  @Test
+  void get_shouldFindPayments_whileTheirTableIsQueuedOrBeingWritten() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (SortedSegmentPaymentStore store = open(10, 100)) {
+      for (int i = 0; i < 500; i++) {
+        PostPaymentResponse payment = payment(UUID.randomUUID(), i);
+        payments.add(payment);
+        store.put(payment);
+        PostPaymentResponse earlier = payments.get(i / 2);
+        assertThat(store.get(earlier.getId())).usingRecursiveComparison().isEqualTo(earlier);
+      }
+      for (PostPaymentResponse payment : payments.subList(0, 100)) {
+        store.put(payment(payment.getId(), payment.getAmount() + 1));
+      }
+
+      assertThat(store.size()).isEqualTo(payments.size());
+      List<PostPaymentResponse> visited = new ArrayList<>();
+      store.forEach(visited::add);
+      assertThat(visited).hasSize(payments.size());
+    }
+  }
+
+  @Test
+  void open_shouldRejectASegmentWithABadChecksum() throws IOException {
+    try (SortedSegmentPaymentStore store = open(10, 100)) {
+      for (int i = 0; i < 10; i++) {
+        store.put(payment(UUID.randomUUID(), i));
+      }
+    }
+    try (FileChannel channel = FileChannel.open(segmentFiles().getFirst(),
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), PaymentSegment.HEADER_SIZE + 20);
+    }
+
+    assertThatThrownBy(() -> open(10, 100)).isInstanceOf(UncheckedIOException.class);
+  }
+
+  private SortedSegmentPaymentStore open(int memtableCapacity, int maxSegments) {
+    return new SortedSegmentPaymentStore(directory, memtableCapacity, maxSegments, 16, false);
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".seg")).sorted().toList();
+    }
+  }
+
+  private static PostPaymentResponse payment(UUID id, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(4242);
+    payment.setExpiryMonth(3);
+    payment.setExpiryYear(2029);
+    payment.setCurrency("EUR");
+    payment.setAmount(amount);
+    payment.setCreatedAt(Instant.ofEpochMilli(1_760_000_000_000L + amount));
+    return payment;
+  }
+}
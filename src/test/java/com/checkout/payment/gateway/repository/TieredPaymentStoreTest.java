@@ -0,0 +1,149 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentQuery;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TieredPaymentStoreTest {
+
+  private InMemoryPaymentStore cold;
+  private TieredPaymentStore store;
+
+  @BeforeEach
+  void setUp() {
+    cold = spy(new InMemoryPaymentStore());
+    store = new TieredPaymentStore(100, cold);
+  }
+
+  @Test
+  void get_shouldAnswerFromTheHotTier_withoutReadingTheColdStore() {
+    PostPaymentResponse payment = payment();
+    store.put(payment);
+
+    assertThat(store.get(payment.getId())).isSameAs(payment);
+
+    verify(cold).put(payment);
+    verify(cold, never()).get(payment.getId());
+    assertThat(store.hotReads()).isEqualTo(1);
+  }
+
+  @Test
+  void get_shouldPromoteColdPayments_intoTheHotTier() {
+    PostPaymentResponse payment = payment();
+    cold.put(payment);
+
+    assertThat(store.get(payment.getId())).isSameAs(payment);
+    assertThat(store.get(payment.getId())).isSameAs(payment);
+
+    verify(cold, times(1)).get(payment.getId());
+    assertThat(store.coldReads()).isEqualTo(1);
+    assertThat(store.hotReads()).isEqualTo(1);
+    assertThat(store.hotHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  void get_shouldCountReadsNeitherTierAnswers() {
+    assertThat(store.get(UUID.randomUUID())).isNull();
+
+    assertThat(store.missingReads()).isEqualTo(1);
+    assertThat(store.hotHitRatio()).isZero();
+  }
+
+  @Test
+  void peek_shouldNeitherCountNorPromote() {
+    PostPaymentResponse payment = payment();
+    cold.put(payment);
+
+    assertThat(store.peek(payment.getId())).isSameAs(payment);
+    assertThat(store.peek(UUID.randomUUID())).isNull();
+
+    assertThat(store.hotSize()).isZero();
+    assertThat(store.hotReads()).isZero();
+    assertThat(store.coldReads()).isZero();
+    assertThat(store.missingReads()).isZero();
+  }
+
+  @Test
+  void repositoryWrites_shouldNotCountAsReads() {
+    PaymentsRepository repository = new PaymentsRepository(store, Optional.empty(),
+        Optional.of(new PaymentIndex(10_000)), Optional.empty());
+    PostPaymentResponse payment = payment();
+
+    repository.add(payment);
+    repository.add(payment);
+
+    assertThat(store.missingReads()).isZero();
+    assertThat(store.hotReads()).isZero();
+  }
+
+  @Test
+  void repositoryQueries_shouldNeitherCountNorPromote() {
+    List<PostPaymentResponse> payments = List.of(payment(), payment(), payment());
+    cold.putAll(payments);
+    PaymentsRepository repository = new PaymentsRepository(store, Optional.empty(),
+        Optional.of(new PaymentIndex(10_000)), Optional.empty());
+
+    PaymentPage page = repository.query(new PaymentQuery(null, "GBP", null, null, null, null,
+        10));
+
+    assertThat(page.payments()).containsExactlyInAnyOrderElementsOf(payments);
+    assertThat(store.hotSize()).isZero();
+    assertThat(store.hotReads()).isZero();
+    assertThat(store.coldReads()).isZero();
+    assertThat(store.missingReads()).isZero();
+  }
+
+  @Test
+  void putAll_shouldReachTheColdStoreAsOneBatch_andWarmTheHotTier() {
+    List<PostPaymentResponse> payments = List.of(payment(), payment(), payment());
+    store.putAll(payments);
+    clearInvocations(cold);
+
+    for (PostPaymentResponse payment : payments) {
+      assertThat(store.get(payment.getId())).isSameAs(payment);
+    }
+    verify(cold).putAll(payments);
+    assertThat(store.size()).isEqualTo(3);
+    assertThat(store.hotReads()).isEqualTo(3);
+  }
+
+  @Test
+  void bindTo_shouldReportReadsByTier_andColdReadTimes() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    store.bindTo(registry);
+    PostPaymentResponse payment = payment();
+    cold.put(payment);
+    store.get(payment.getId());
+    store.get(payment.getId());
+
+    assertThat(registry.get("payments.repository.tier.reads").tag("tier", "hot")
+        .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("payments.repository.tier.reads").tag("tier", "cold")
+        .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("payments.repository.tier.cold.read").timer().count())
+        .isEqualTo(1);
+    assertThat(registry.get("payments.repository.tier.hot.hit-ratio").gauge().value())
+        .isEqualTo(0.5);
+  }
+
+  private static PostPaymentResponse payment() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setAmount(100);
+    payment.setCurrency("GBP");
+    return payment;
+  }
+}
@@ -0,0 +1,104 @@
+package com.checkout.payment.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.AcquiringBankUnavailableException;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentBatchProcessorTest {
+
+  private PaymentGatewayService paymentGatewayService;
+  private final List<PostPaymentResponse> stored = new CopyOnWriteArrayList<>();
+  private final List<BatchPaymentResult> results = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    paymentGatewayService = mock(PaymentGatewayService.class);
+    doAnswer(invocation -> stored.addAll(invocation.getArgument(0)))
+        .when(paymentGatewayService).storeAll(any());
+  }
+
+  @Test
+  void process_shouldLimitCallsInFlight_andStoreAndReportEveryItem() {
+    List<CompletableFuture<PostPaymentResponse>> calls = new ArrayList<>();
+    when(paymentGatewayService.authorizeAsync(any(PaymentRequestDTO.class))).thenAnswer(
+        invocation -> {
+          CompletableFuture<PostPaymentResponse> call = new CompletableFuture<>();
+          calls.add(call);
+          return call;
+        });
+    PaymentBatchProcessor processor =
+        new PaymentBatchProcessor(paymentGatewayService, Runnable::run, 2);
+
+    CompletableFuture<Void> done = processor.process(items(5), results::add);
+
+    assertThat(calls).hasSize(2);
+    for (int i = 0; i < 5; i++) {
+      calls.get(i).complete(payment());
+      assertThat(calls).hasSize(Math.min(i + 3, 5));
+    }
+
+    assertThat(done).isCompleted();
+    assertThat(stored).hasSize(5);
+    assertThat(results).extracting(BatchPaymentResult::index)
+        .containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+    assertThat(results).extracting(BatchPaymentResult::status)
+        .containsOnly(PaymentStatus.AUTHORIZED);
+  }
+
+  @Test
+  void process_shouldReportBankFailuresPerItem_withoutStoringThem() {
+    when(paymentGatewayService.authorizeAsync(any(PaymentRequestDTO.class)))
+        .thenReturn(CompletableFuture.completedFuture(payment()))
+        .thenReturn(CompletableFuture.failedFuture(
+            new AcquiringBankUnavailableException("Acquiring bank circuit breaker is open")));
+    PaymentBatchProcessor processor =
+        new PaymentBatchProcessor(paymentGatewayService, Runnable::run, 1);
+
+    processor.process(items(2), results::add).join();
+
+    assertThat(stored).hasSize(1);
+    assertThat(results).containsExactly(
+        BatchPaymentResult.processed(0, stored.get(0)),
+        BatchPaymentResult.failed(1, "Acquiring bank unavailable"));
+  }
+
+  @Test
+  void process_shouldCompleteStraightAway_forAnEmptyBatch() {
+    PaymentBatchProcessor processor =
+        new PaymentBatchProcessor(paymentGatewayService, Runnable::run, 4);
+
+    assertThat(processor.process(List.of(), results::add)).isCompleted();
+    assertThat(results).isEmpty();
+  }
+
+  private static List<PaymentBatchProcessor.Item> items(int count) {
+    List<PaymentBatchProcessor.Item> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(new PaymentBatchProcessor.Item(i, PaymentRequestDTO.builder().build()));
+    }
+    return items;
+  }
+
+  private static PostPaymentResponse payment() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCurrency("GBP");
+    return payment;
+  }
+}
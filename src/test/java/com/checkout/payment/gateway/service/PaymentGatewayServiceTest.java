@@ -1,23 +1,32 @@
 package com.checkout.payment.gateway.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import com.checkout.payment.gateway.client.AcquiringBankPaymentRequest;
 import com.checkout.payment.gateway.client.AcquiringBankPaymentResponse;
 import com.checkout.payment.gateway.client.AcquiringBankingClient;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.AcquiringBankException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
 import com.checkout.payment.gateway.model.PaymentRequestDTO;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.SupportedCurrency;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
-import java.math.BigInteger;
-import java.util.Currency;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -28,13 +37,14 @@ public class PaymentGatewayServiceTest {
   private static final int CARD_LAST_FOUR_DIGIT = 1234;
   private static final int VALID_EXPIRY_MONTH = 7;
   private static final int VALID_EXPIRY_YEAR = 2030;
-  private static final Currency USD_CURRENCY = Currency.getInstance("USD");
-  private static final BigInteger AMOUNT = BigInteger.valueOf(1599);
+  private static final SupportedCurrency USD_CURRENCY = CurrencyRegistry.byCode("USD");
+  private static final int AMOUNT = 1599;
   private static final String CVV = "123";
   private static final UUID AUTHORIZATION_CODE = UUID.randomUUID();
 
   private PaymentsRepository paymentsRepository;
   private AcquiringBankingClient acquiringBankingClient;
+  private SimpleMeterRegistry registry;
 
   private PaymentGatewayService underTest;
 
@@ -42,7 +52,12 @@ public class PaymentGatewayServiceTest {
   void setUp() {
     paymentsRepository = mock(PaymentsRepository.class);
     acquiringBankingClient = mock(AcquiringBankingClient.class);
-    underTest = new PaymentGatewayService(paymentsRepository, acquiringBankingClient);
+    registry = new SimpleMeterRegistry();
+    PaymentMetrics paymentMetrics = new PaymentMetrics(List.of("USD", "GBP"));
+    paymentMetrics.bindTo(registry);
+    underTest = new PaymentGatewayService(paymentsRepository, acquiringBankingClient,
+        Runnable::run, new PaymentIdempotencyCache(Duration.ofHours(1), 1000), paymentMetrics,
+        Duration.ofSeconds(10));
   }
 
   @Test
@@ -57,7 +72,7 @@ public class PaymentGatewayServiceTest {
         .cvv(CVV)
         .build();
 
-    when(acquiringBankingClient.processPayment(any(AcquiringBankPaymentRequest.class)))
+    when(acquiringBankingClient.processPayment(any(PaymentRequestDTO.class)))
         .thenReturn(AcquiringBankPaymentResponse.builder()
             .authorized(true)
             .authorizationCode(AUTHORIZATION_CODE.toString())
@@ -71,8 +86,8 @@ public class PaymentGatewayServiceTest {
         .hasFieldOrPropertyWithValue("cardNumberLastFour", CARD_LAST_FOUR_DIGIT)
         .hasFieldOrPropertyWithValue("expiryMonth", VALID_EXPIRY_MONTH)
         .hasFieldOrPropertyWithValue("expiryYear", VALID_EXPIRY_YEAR)
-        .hasFieldOrPropertyWithValue("currency", USD_CURRENCY.getCurrencyCode())
-        .hasFieldOrPropertyWithValue("amount", AMOUNT.intValue());
+        .hasFieldOrPropertyWithValue("currency", USD_CURRENCY.code())
+        .hasFieldOrPropertyWithValue("amount", AMOUNT);
 
     // Verify repository add was called with the same response object
     ArgumentCaptor<PostPaymentResponse> captor = ArgumentCaptor.forClass(PostPaymentResponse.class);
@@ -93,7 +108,7 @@ public class PaymentGatewayServiceTest {
         .cvv(CVV)
         .build();
 
-    when(acquiringBankingClient.processPayment(any(AcquiringBankPaymentRequest.class)))
+    when(acquiringBankingClient.processPayment(any(PaymentRequestDTO.class)))
         .thenReturn(AcquiringBankPaymentResponse.builder()
             .authorized(true)
             .authorizationCode("")
@@ -118,7 +133,7 @@ public class PaymentGatewayServiceTest {
         .build();
 
     UUID authCode = UUID.randomUUID();
-    when(acquiringBankingClient.processPayment(any(AcquiringBankPaymentRequest.class)))
+    when(acquiringBankingClient.processPayment(any(PaymentRequestDTO.class)))
         .thenReturn(AcquiringBankPaymentResponse.builder()
             .authorized(false)
             .authorizationCode(authCode.toString())
@@ -135,6 +150,128 @@ public class PaymentGatewayServiceTest {
     verify(paymentsRepository, times(1)).add(captor.capture());
   }
 
+  @Test
+  void processPaymentAsync_shouldMapFieldsAndPersist_whenBankAnswers() {
+
+    PaymentRequestDTO paymentRequestDTO = PaymentRequestDTO.builder()
+        .cardNumber(VALID_CARD_NUMBER)
+        .expiryMonth(VALID_EXPIRY_MONTH)
+        .expiryYear(VALID_EXPIRY_YEAR)
+        .currency(USD_CURRENCY)
+        .amount(AMOUNT)
+        .cvv(CVV)
+        .build();
+
+    CompletableFuture<AcquiringBankPaymentResponse> bank = new CompletableFuture<>();
+    when(acquiringBankingClient.processPaymentAsync(any(PaymentRequestDTO.class)))
+        .thenReturn(bank);
+
+    CompletableFuture<PostPaymentResponse> result = underTest.processPaymentAsync(
+        paymentRequestDTO);
+
+    // Nothing is stored until the bank has answered
+    assertThat(result).isNotDone();
+    verify(paymentsRepository, never()).add(any(PostPaymentResponse.class));
+
+    bank.complete(AcquiringBankPaymentResponse.builder()
+        .authorized(true)
+        .authorizationCode(AUTHORIZATION_CODE.toString())
+        .build());
+
+    PostPaymentResponse response = result.join();
+    assertThat(response)
+        .hasFieldOrPropertyWithValue("id", AUTHORIZATION_CODE)
+        .hasFieldOrPropertyWithValue("status", PaymentStatus.AUTHORIZED)
+        .hasFieldOrPropertyWithValue("cardNumberLastFour", CARD_LAST_FOUR_DIGIT)
+        .hasFieldOrPropertyWithValue("amount", AMOUNT);
+    verify(paymentsRepository, times(1)).add(response);
+  }
+
+  @Test
+  void processPaymentAsync_shouldFailWithoutPersisting_whenBankFails() {
+
+    PaymentRequestDTO paymentRequestDTO = PaymentRequestDTO.builder()
+        .cardNumber(VALID_CARD_NUMBER)
+        .expiryMonth(VALID_EXPIRY_MONTH)
+        .expiryYear(VALID_EXPIRY_YEAR)
+        .currency(USD_CURRENCY)
+        .amount(AMOUNT)
+        .cvv(CVV)
+        .build();
+
+    when(acquiringBankingClient.processPaymentAsync(any(PaymentRequestDTO.class)))
+        .thenReturn(CompletableFuture.failedFuture(
+            new RuntimeException("Error processing payment")));
+
+    assertThatThrownBy(() -> underTest.processPaymentAsync(paymentRequestDTO).join())
+        .isInstanceOf(CompletionException.class)
+        .hasRootCauseMessage("Error processing payment");
+    verify(paymentsRepository, never()).add(any(PostPaymentResponse.class));
+  }
+
+  @Test
+  void processPaymentAsync_shouldRecordStagesOutcomesAndBankErrors() {
+
+    PaymentRequestDTO paymentRequestDTO = PaymentRequestDTO.builder()
+        .cardNumber(VALID_CARD_NUMBER)
+        .expiryMonth(VALID_EXPIRY_MONTH)
+        .expiryYear(VALID_EXPIRY_YEAR)
+        .currency(USD_CURRENCY)
+        .amount(AMOUNT)
+        .cvv(CVV)
+        .build();
+
+    when(acquiringBankingClient.processPaymentAsync(any(PaymentRequestDTO.class)))
+        .thenReturn(CompletableFuture.completedFuture(AcquiringBankPaymentResponse.builder()
+            .authorized(true)
+            .authorizationCode(AUTHORIZATION_CODE.toString())
+            .build()))
+        .thenReturn(CompletableFuture.failedFuture(new AcquiringBankException(503)));
+
+    underTest.processPaymentAsync(paymentRequestDTO).join();
+    assertThatThrownBy(() -> underTest.processPaymentAsync(paymentRequestDTO).join())
+        .isInstanceOf(CompletionException.class);
+
+    assertThat(registry.get("payments.processed").tags("status", "authorized", "currency", "USD")
+        .counter().count()).isEqualTo(1);
+    assertThat(registry.get("payments.bank.errors").tag("status", "503").counter().count())
+        .isEqualTo(1);
+    assertThat(registry.get("payments.stage.duration").tag("stage", "bank").timer().count())
+        .isEqualTo(2);
+    assertThat(registry.get("payments.stage.duration").tag("stage", "repository_write").timer()
+        .count()).isEqualTo(1);
+  }
+
+  @Test
+  void processPaymentAsync_withIdempotencyKey_chargesOnce_andForwardsTheKeyToTheBank() {
+
+    PaymentRequestDTO paymentRequestDTO = PaymentRequestDTO.builder()
+        .cardNumber(VALID_CARD_NUMBER)
+        .expiryMonth(VALID_EXPIRY_MONTH)
+        .expiryYear(VALID_EXPIRY_YEAR)
+        .currency(USD_CURRENCY)
+        .amount(AMOUNT)
+        .cvv(CVV)
+        .build();
+
+    when(acquiringBankingClient.processPaymentAsync(any(PaymentRequestDTO.class),
+        eq("order-42")))
+        .thenReturn(CompletableFuture.completedFuture(AcquiringBankPaymentResponse.builder()
+            .authorized(true)
+            .authorizationCode(AUTHORIZATION_CODE.toString())
+            .build()));
+
+    PostPaymentResponse first = underTest.processPaymentAsync(paymentRequestDTO, "order-42")
+        .join();
+    PostPaymentResponse replay = underTest.processPaymentAsync(paymentRequestDTO, "order-42")
+        .join();
+
+    assertSame(first, replay);
+    verify(acquiringBankingClient, times(1))
+        .processPaymentAsync(any(PaymentRequestDTO.class), eq("order-42"));
+    verify(paymentsRepository, times(1)).add(first);
+  }
+
   @Test
   void processPayment_overloadedMethod_withPostPaymentRequest_returnsUUID() {
     UUID result = underTest.processPayment(new com.checkout.payment.gateway.model.PostPaymentRequest());
@@ -142,15 +279,25 @@ public class PaymentGatewayServiceTest {
   }
 
   @Test
-  void getPaymentById_shouldReturnFromRepository_whenPresent() {
+  void findPaymentById_shouldReturnFromRepository_whenPresent() {
     UUID id = UUID.randomUUID();
     PostPaymentResponse stored = new PostPaymentResponse();
     stored.setId(id);
 
     when(paymentsRepository.get(id)).thenReturn(java.util.Optional.of(stored));
 
-    PostPaymentResponse result = underTest.getPaymentById(id);
+    assertThat(underTest.findPaymentById(id)).containsSame(stored);
+    assertThat(registry.get("payments.lookup.misses").counter().count()).isZero();
+  }
+
+  @Test
+  void findPaymentById_shouldReturnEmptyAndCountTheMiss_whenUnknown() {
+    when(paymentsRepository.get(any(UUID.class))).thenReturn(java.util.Optional.empty());
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(underTest.findPaymentById(UUID.randomUUID())).isEmpty();
+    }
 
-    assertThat(result).isSameAs(stored);
+    assertThat(registry.get("payments.lookup.misses").counter().count()).isEqualTo(3);
   }
 }
@@ -0,0 +1,145 @@
+package com.checkout.payment.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyReuseException;
+import com.checkout.payment.gateway.model.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PaymentRequestDTO;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PaymentIdempotencyCacheTest {
+
+  private static final PaymentRequestDTO REQUEST = request(1599);
+
+  private final AtomicInteger bankCalls = new AtomicInteger();
+  private SimpleMeterRegistry registry;
+  private PaymentIdempotencyCache cache;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    cache = new PaymentIdempotencyCache(Duration.ofHours(1), 1000);
+    cache.bindTo(registry);
+  }
+
+  @Test
+  void completedDuplicate_isReplayed_withoutCallingTheBank() {
+    PostPaymentResponse first = cache.execute("key-1", REQUEST, this::pay).join();
+    PostPaymentResponse replay = cache.execute("key-1", REQUEST, this::pay).join();
+
+    assertThat(replay).isSameAs(first);
+    assertThat(bankCalls).hasValue(1);
+    assertThat(count("miss")).isEqualTo(1);
+    assertThat(count("hit")).isEqualTo(1);
+  }
+
+  @Test
+  void concurrentDuplicates_collapseOntoOneInFlightPayment() throws Exception {
+    CompletableFuture<PostPaymentResponse> bank = new CompletableFuture<>();
+    int callers = 32;
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<CompletableFuture<PostPaymentResponse>>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < callers; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return cache.execute("key-2", REQUEST, () -> {
+            bankCalls.incrementAndGet();
+            return bank;
+          });
+        }));
+      }
+      start.countDown();
+      List<CompletableFuture<PostPaymentResponse>> futures = new ArrayList<>();
+      for (Future<CompletableFuture<PostPaymentResponse>> result : results) {
+        futures.add(result.get(10, TimeUnit.SECONDS));
+      }
+
+      PostPaymentResponse response = new PostPaymentResponse();
+      bank.complete(response);
+
+      assertThat(futures).allSatisfy(future -> assertThat(future.join()).isSameAs(response));
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(bankCalls).hasValue(1);
+    assertThat(count("collapsed")).isEqualTo(callers - 1);
+  }
+
+  @Test
+  void reusedKey_withDifferentPaymentDetails_isRejected() {
+    cache.execute("key-3", REQUEST, this::pay).join();
+
+    assertThatThrownBy(() -> cache.execute("key-3", request(1), this::pay))
+        .isInstanceOf(IdempotencyKeyReuseException.class);
+    assertThat(bankCalls).hasValue(1);
+    assertThat(count("mismatch")).isEqualTo(1);
+  }
+
+  @Test
+  void duplicate_isMatchedWithoutItsCvv() {
+    PaymentRequestDTO retried = PaymentRequestDTO.builder()
+        .cardNumber(REQUEST.cardNumber())
+        .expiryMonth(REQUEST.expiryMonth())
+        .expiryYear(REQUEST.expiryYear())
+        .currency(REQUEST.currency())
+        .amount(REQUEST.amount())
+        .cvv("9876")
+        .build();
+
+    PostPaymentResponse first = cache.execute("key-5", REQUEST, this::pay).join();
+
+    assertThat(cache.execute("key-5", retried, this::pay).join()).isSameAs(first);
+    assertThat(bankCalls).hasValue(1);
+  }
+
+  @Test
+  void failedPayment_isForgotten_soTheMerchantCanRetry() {
+    CompletableFuture<PostPaymentResponse> failed = cache.execute("key-4", REQUEST, () -> {
+      bankCalls.incrementAndGet();
+      return CompletableFuture.failedFuture(new RuntimeException("Error processing payment"));
+    });
+    assertThat(failed).isCompletedExceptionally();
+
+    cache.execute("key-4", REQUEST, this::pay).join();
+
+    assertThat(bankCalls).hasValue(2);
+    assertThat(count("miss")).isEqualTo(2);
+  }
+
+  private CompletableFuture<PostPaymentResponse> pay() {
+    bankCalls.incrementAndGet();
+    return CompletableFuture.completedFuture(new PostPaymentResponse());
+  }
+
+  private double count(String result) {
+    return registry.get("payments.idempotency.requests").tag("result", result).functionCounter()
+        .count();
+  }
+
+  private static PaymentRequestDTO request(int amount) {
+    return PaymentRequestDTO.builder()
+        .cardNumber("4111111111111234")
+        .expiryMonth(7)
+        .expiryYear(2030)
+        .currency(CurrencyRegistry.byCode("USD"))
+        .amount(amount)
+        .cvv("123")
+        .build();
+  }
+}
@@ -0,0 +1,150 @@
+package com.checkout.payment.gateway.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process replacement for the mountebank simulator in imposters/bank_simulator.ejs, with the
+// same rules: a card number ending in an odd digit is authorized, in an even digit declined and
+// in 0 answered with 503; a request missing any field gets 400. Every request is handled on its
+// own virtual thread, so even long simulated latencies do not limit throughput.
+public class EmbeddedBankSimulator implements AutoCloseable {
+
+  private static final String[] REQUIRED_FIELDS = {"card_number", "expiry_date", "currency",
+      "amount", "cvv"};
+  private static final byte[] DECLINED = json("{\"authorized\":false,\"authorization_code\":\"\"}");
+  private static final byte[] MISSING_FIELDS = json(
+      "{\"error_message\":\"Not all required properties were sent in the request\"}");
+  private static final byte[] UNSUPPORTED = json(
+      "{\"errorMessage\":\"The request supplied is not supported by the simulator\"}");
+  private static final byte[] EMPTY = json("{}");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final HttpServer server;
+  private volatile LatencyDistribution latency;
+
+  private final LongAdder authorized = new LongAdder();
+  private final LongAdder declined = new LongAdder();
+  private final LongAdder unavailable = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public EmbeddedBankSimulator(LatencyDistribution latency) throws IOException {
+    this.latency = latency;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+    this.server.createContext("/", this::handle);
+    this.server.setExecutor(executor);
+    this.server.start();
+  }
+
+  public String baseUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  public void setLatency(LatencyDistribution latency) {
+    this.latency = latency;
+  }
+
+  public long authorized() {
+    return authorized.sum();
+  }
+
+  public long declined() {
+    return declined.sum();
+  }
+
+  public long unavailable() {
+    return unavailable.sum();
+  }
+
+  public long rejected() {
+    return rejected.sum();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    byte[] body;
+    try (InputStream in = exchange.getRequestBody()) {
+      body = in.readAllBytes();
+    }
+
+    long delay = latency.nextNanos(ThreadLocalRandom.current());
+    if (delay > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    if (!"POST".equals(exchange.getRequestMethod())
+        || !"/payments".equals(exchange.getRequestURI().getPath())) {
+      rejected.increment();
+      respond(exchange, 400, UNSUPPORTED);
+      return;
+    }
+
+    JsonNode request;
+    try {
+      request = objectMapper.readTree(body);
+    } catch (IOException ex) {
+      rejected.increment();
+      respond(exchange, 400, UNSUPPORTED);
+      return;
+    }
+    for (String field : REQUIRED_FIELDS) {
+      if (request == null || !request.hasNonNull(field)) {
+        rejected.increment();
+        respond(exchange, 400, MISSING_FIELDS);
+        return;
+      }
+    }
+
+    String cardNumber = request.get("card_number").asText();
+    int lastDigit = cardNumber.isEmpty() ? -1 : cardNumber.charAt(cardNumber.length() - 1) - '0';
+    if (lastDigit == 0) {
+      unavailable.increment();
+      respond(exchange, 503, EMPTY);
+    } else if (lastDigit > 0 && lastDigit <= 9 && lastDigit % 2 == 1) {
+      authorized.increment();
+      respond(exchange, 200, json("{\"authorized\":true,\"authorization_code\":\""
+          + UUID.randomUUID() + "\"}"));
+    } else if (lastDigit > 0 && lastDigit <= 9) {
+      declined.increment();
+      respond(exchange, 200, DECLINED);
+    } else {
+      rejected.increment();
+      respond(exchange, 400, UNSUPPORTED);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static byte[] json(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,98 @@
+package com.checkout.payment.gateway.simulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EmbeddedBankSimulatorTest {
+
+  private EmbeddedBankSimulator simulator;
+  private HttpClient httpClient;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    simulator = new EmbeddedBankSimulator(LatencyDistribution.none());
+    httpClient = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    httpClient.close();
+    simulator.close();
+  }
+
+  @Test
+  void cardEndingInOddDigit_shouldBeAuthorized() throws Exception {
+    HttpResponse<String> response = send(payment("2222405343248877"));
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).contains("\"authorized\":true")
+        .containsPattern("\"authorization_code\":\"[0-9a-f-]{36}\"");
+    assertThat(simulator.authorized()).isEqualTo(1);
+  }
+
+  @Test
+  void cardEndingInEvenDigit_shouldBeDeclined() throws Exception {
+    HttpResponse<String> response = send(payment("2222405343248112"));
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo("{\"authorized\":false,\"authorization_code\":\"\"}");
+    assertThat(simulator.declined()).isEqualTo(1);
+  }
+
+  @Test
+  void cardEndingInZero_shouldBeUnavailable() throws Exception {
+    HttpResponse<String> response = send(payment("2222405343248110"));
+
+    assertThat(response.statusCode()).isEqualTo(503);
+    assertThat(simulator.unavailable()).isEqualTo(1);
+  }
+
+  @Test
+  void missingField_shouldBeRejected() throws Exception {
+    HttpResponse<String> response = send("{\"card_number\":\"2222405343248877\"}");
+
+    assertThat(response.statusCode()).isEqualTo(400);
+    assertThat(response.body()).contains("Not all required properties were sent in the request");
+    assertThat(simulator.rejected()).isEqualTo(1);
+  }
+
+  @Test
+  void latencyDistributions_shouldStayWithinTheirBounds() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LatencyDistribution uniform =
+        LatencyDistribution.uniform(Duration.ofMillis(5), Duration.ofMillis(10));
+    LatencyDistribution logNormal =
+        LatencyDistribution.logNormal(Duration.ofMillis(20), Duration.ofMillis(200));
+
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(uniform.nextNanos(random))
+          .isBetween(Duration.ofMillis(5).toNanos(), Duration.ofMillis(10).toNanos());
+      assertThat(logNormal.nextNanos(random)).isPositive();
+    }
+    assertThat(LatencyDistribution.fixed(Duration.ofMillis(7)).nextNanos(random))
+        .isEqualTo(Duration.ofMillis(7).toNanos());
+  }
+
+  private HttpResponse<String> send(String body) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(simulator.baseUrl() + "/payments"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String payment(String cardNumber) {
+    return "{\"card_number\":\"" + cardNumber + "\",\"expiry_date\":\"04/2035\","
+        + "\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}";
+  }
+}
@@ -0,0 +1,38 @@
+package com.checkout.payment.gateway.simulator;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// How long the embedded bank simulator takes to answer a request
+@FunctionalInterface
+public interface LatencyDistribution {
+
+  long nextNanos(ThreadLocalRandom random);
+
+  static LatencyDistribution none() {
+    return random -> 0;
+  }
+
+  static LatencyDistribution fixed(Duration latency) {
+    long nanos = latency.toNanos();
+    return random -> nanos;
+  }
+
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    long minNanos = min.toNanos();
+    long maxNanos = max.toNanos();
+    return random -> random.nextLong(minNanos, maxNanos + 1);
+  }
+
+  static LatencyDistribution exponential(Duration mean) {
+    double meanNanos = mean.toNanos();
+    return random -> (long) (-meanNanos * Math.log(1 - random.nextDouble()));
+  }
+
+  // Long-tailed latency described by its median and p99, the shape real acquirers tend to show
+  static LatencyDistribution logNormal(Duration median, Duration p99) {
+    double mu = Math.log(median.toNanos());
+    double sigma = (Math.log(p99.toNanos()) - mu) / 2.326;
+    return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+  }
+}
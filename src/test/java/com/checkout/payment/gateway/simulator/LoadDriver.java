@@ -0,0 +1,184 @@
+package com.checkout.payment.gateway.simulator;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+// Open-loop load against a running gateway: requests are sent at a fixed arrival rate no matter
+// how fast the gateway answers, and every latency is measured from the moment the request was
+// due rather than from when it was actually sent. A closed-loop client slows down together with
+// the server and hides exactly the queueing delay this is meant to show (coordinated omission).
+public class LoadDriver implements AutoCloseable {
+
+  private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+  private static final int KNOWN_IDS = 4096;
+  private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+
+  private final URI paymentUri;
+  private final List<String> cardNumbers;
+  private final HttpClient httpClient;
+
+  // Recently created payments, read back by the GET share of the load:
+  private final AtomicReferenceArray<String> knownIds = new AtomicReferenceArray<>(KNOWN_IDS);
+  private final AtomicLong created = new AtomicLong();
+
+  public LoadDriver(String gatewayUrl, List<String> cardNumbers) {
+    this.paymentUri = URI.create(gatewayUrl + "/payment");
+    this.cardNumbers = List.copyOf(cardNumbers);
+    this.httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+  }
+
+  // Sends ratePerSecond requests per second for the given duration, readShare of them
+  // GET /payment/{id} for a payment created earlier in the run and the rest POST /payment
+  public Result run(double ratePerSecond, Duration duration, double readShare) {
+    Operation posts = new Operation("POST /payment");
+    Operation gets = new Operation("GET /payment/{id}");
+    AtomicInteger inFlight = new AtomicInteger();
+
+    long interval = (long) (1_000_000_000L / ratePerSecond);
+    long total = (long) (ratePerSecond * duration.toNanos() / 1_000_000_000.0);
+    long start = System.nanoTime();
+    for (long i = 0; i < total; i++) {
+      long intended = start + i * interval;
+      long wait = intended - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      String id = created.get() > 0 && random.nextDouble() < readShare ? randomKnownId() : null;
+      Operation operation = id == null ? posts : gets;
+      HttpRequest request = id == null ? post(random) : get(id);
+
+      inFlight.incrementAndGet();
+      CompletableFuture<HttpResponse<String>> response =
+          httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+      response.whenComplete((result, failure) -> {
+        operation.record(System.nanoTime() - intended,
+            failure == null && result.statusCode() == (id == null ? 201 : 200));
+        if (failure == null && id == null && result.statusCode() == 201) {
+          remember(result.body());
+        }
+        inFlight.decrementAndGet();
+      });
+    }
+
+    long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+    return new Result(ratePerSecond, total / elapsedSeconds, posts, gets, inFlight.get());
+  }
+
+  @Override
+  public void close() {
+    httpClient.close();
+  }
+
+  private HttpRequest post(ThreadLocalRandom random) {
+    String cardNumber = cardNumbers.get(random.nextInt(cardNumbers.size()));
+    String body = "{\"card_number\":\"" + cardNumber + "\",\"expiry_month\":4,"
+        + "\"expiry_year\":2035,\"currency\":\"GBP\",\"amount\":" + random.nextInt(1, 100_000)
+        + ",\"cvv\":\"123\"}";
+    return HttpRequest.newBuilder(paymentUri)
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(30))
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private HttpRequest get(String id) {
+    return HttpRequest.newBuilder(URI.create(paymentUri + "/" + id))
+        .timeout(Duration.ofSeconds(30))
+        .GET()
+        .build();
+  }
+
+  private void remember(String body) {
+    Matcher matcher = ID.matcher(body);
+    if (matcher.find()) {
+      knownIds.set((int) (created.getAndIncrement() % KNOWN_IDS), matcher.group(1));
+    }
+  }
+
+  private String randomKnownId() {
+    int bound = (int) Math.min(created.get(), KNOWN_IDS);
+    String id;
+    do {
+      id = knownIds.get(ThreadLocalRandom.current().nextInt(bound));
+    } while (id == null);
+    return id;
+  }
+
+  public static final class Operation {
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY, 3);
+    private final LongAdder failures = new LongAdder();
+
+    private Operation(String name) {
+      this.name = name;
+    }
+
+    private void record(long latencyNanos, boolean succeeded) {
+      latencies.recordValue(Math.min(latencyNanos, HIGHEST_LATENCY));
+      if (!succeeded) {
+        failures.increment();
+      }
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public Histogram latencies() {
+      return latencies;
+    }
+
+    public long failures() {
+      return failures.sum();
+    }
+
+    public double percentileMillis(double percentile) {
+      return latencies.getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+  }
+
+  public record Result(double targetRate, double achievedRate, Operation posts, Operation gets,
+      int unanswered) {
+
+    public void print(PrintStream out) {
+      out.printf("target %,.0f req/s, achieved %,.0f req/s, %d unanswered%n", targetRate,
+          achievedRate, unanswered);
+      for (Operation operation : List.of(posts, gets)) {
+        out.printf("  %-18s %,8d requests, %,d failed | p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, "
+                + "p99.9 %.2f ms, max %.2f ms%n", operation.name(),
+            operation.latencies().getTotalCount(), operation.failures(),
+            operation.percentileMillis(50), operation.percentileMillis(90),
+            operation.percentileMillis(99), operation.percentileMillis(99.9),
+            operation.latencies().getMaxValue() / 1_000_000.0);
+      }
+    }
+  }
+}